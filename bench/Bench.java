@@ -0,0 +1,255 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal micro-benchmark harness for the WalkSim hot paths.
+ * The simulator's classes live in the unnamed package, which JMH cannot generate
+ * benchmark stubs against, so this class provides the few JMH features we rely on:
+ * warmup and measurement iterations, a sink which defeats dead-code elimination,
+ * and allocated bytes per operation (the equivalent of JMH's -prof gc).
+ * Results can be written as JSON in the layout of JMH's -rf json, so they can be
+ * compared over time with the same tools; see writeJson().
+ *
+ * Iteration counts and duration can be overridden with the system properties
+ * bench.warmup, bench.iterations and bench.time (milliseconds per iteration).
+ */
+public class Bench {
+
+    public static final int WARMUP_ITERATIONS = Integer.getInteger("bench.warmup", 3);
+    public static final int MEASUREMENT_ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    public static final long ITERATION_NANOS = Long.getLong("bench.time", 1000) * 1_000_000L;
+
+    /* Every measured result is written here so the JIT cannot discard the work. */
+    public static volatile Object sink;
+
+    /**
+     * A single benchmarked operation.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        Object run() throws Exception;
+    }
+
+    /**
+     * The outcome of measuring one operation.
+     */
+    public static class Result {
+        public final String name;
+        public final String benchmark;
+        public final Map<String, String> params;
+        public final double nanosPerOp;
+        public final double errorNanosPerOp;
+        public final double bytesPerOp;
+        public final double[] rawNanosPerOp;
+
+        Result(String benchmark, Map<String, String> params, double nanosPerOp, double errorNanosPerOp,
+               double bytesPerOp, double[] rawNanosPerOp) {
+            StringBuilder sb = new StringBuilder(benchmark);
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                sb.append(' ').append(param.getKey()).append('=').append(param.getValue());
+            }
+            this.name = sb.toString();
+            this.benchmark = benchmark;
+            this.params = Collections.unmodifiableMap(new LinkedHashMap<>(params));
+            this.nanosPerOp = nanosPerOp;
+            this.errorNanosPerOp = errorNanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+            this.rawNanosPerOp = rawNanosPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-48s %14.1f +- %10.1f ns/op %14.1f B/op",
+                    name, nanosPerOp, errorNanosPerOp, bytesPerOp);
+        }
+    }
+
+    /**
+     * Measure an operation, where each call of op performs exactly one operation.
+     * @param name: the name to report the result under
+     * @param op: the operation to measure
+     * @return the measured result
+     * @throws Exception if the operation throws
+     */
+    public static Result measure(String name, Operation op) throws Exception {
+        return measure(name, 1, op);
+    }
+
+    /**
+     * Measure an operation, where each call of op performs opsPerCall operations.
+     * This is used for operations too short to time individually.
+     * The result is printed to standard out before being returned.
+     * @param name: the name to report the result under
+     * @param opsPerCall: the number of operations each call of op performs
+     * @param op: the operation to measure
+     * @return the measured result
+     * @throws Exception if the operation throws
+     */
+    public static Result measure(String name, long opsPerCall, Operation op) throws Exception {
+        return measure(name, Collections.emptyMap(), opsPerCall, op);
+    }
+
+    /**
+     * Measure an operation of a parameterized benchmark, where each call of op performs opsPerCall operations.
+     * The result is reported under the benchmark's name followed by its parameters,
+     * and printed to standard out before being returned.
+     * @param benchmark: the name of the benchmark
+     * @param params: the names and values of the benchmark's parameters, in the order to report them
+     * @param opsPerCall: the number of operations each call of op performs
+     * @param op: the operation to measure
+     * @return the measured result
+     * @throws Exception if the operation throws
+     */
+    public static Result measure(String benchmark, Map<String, String> params, long opsPerCall, Operation op)
+            throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            _iteration(op);
+        }
+
+        double[] nanos = new double[MEASUREMENT_ITERATIONS];
+        long totalCalls = 0;
+        long totalBytes = 0;
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; ++i) {
+            long bytesBefore = _allocatedBytes();
+            long[] calls = new long[1];
+            long elapsed = _iteration(op, calls);
+            totalBytes += _allocatedBytes() - bytesBefore;
+            totalCalls += calls[0];
+            nanos[i] = (double) elapsed / (calls[0] * opsPerCall);
+        }
+
+        double mean = 0.0;
+        for (double n : nanos) {
+            mean += n;
+        }
+        mean /= nanos.length;
+        double var = 0.0;
+        for (double n : nanos) {
+            var += (n - mean) * (n - mean);
+        }
+        double stdDev = nanos.length > 1 ? Math.sqrt(var / (nanos.length - 1)) : 0.0;
+
+        Result res = new Result(benchmark, params, mean, stdDev, (double) totalBytes / (totalCalls * opsPerCall),
+                nanos);
+        System.out.println(res);
+        return res;
+    }
+
+    /**
+     * Write results to a file as JSON, in the layout of JMH's -rf json:
+     * an array with an object per result, giving its benchmark, mode "avgt", iteration settings, params,
+     * the time per operation as primaryMetric, with the time of each iteration as rawData,
+     * and the allocated bytes per operation as the secondary metric "gc.alloc.rate.norm".
+     * @param results: the results to write
+     * @param fname: the name of the file to write
+     * @throws IOException if the file could not be written
+     */
+    public static void writeJson(List<Result> results, String fname) throws IOException {
+        try (PrintWriter out = new PrintWriter(fname)) {
+            out.println("[");
+            for (int r = 0; r < results.size(); ++r) {
+                Result res = results.get(r);
+                out.println("    {");
+                out.println("        \"benchmark\" : " + _jsonString(res.benchmark) + ",");
+                out.println("        \"mode\" : \"avgt\",");
+                out.println("        \"threads\" : 1,");
+                out.println("        \"jvm\" : " + _jsonString(System.getProperty("java.home")) + ",");
+                out.println("        \"jdkVersion\" : " + _jsonString(System.getProperty("java.version")) + ",");
+                out.println("        \"warmupIterations\" : " + WARMUP_ITERATIONS + ",");
+                out.println("        \"warmupTime\" : \"" + ITERATION_NANOS / 1_000_000 + " ms\",");
+                out.println("        \"measurementIterations\" : " + MEASUREMENT_ITERATIONS + ",");
+                out.println("        \"measurementTime\" : \"" + ITERATION_NANOS / 1_000_000 + " ms\",");
+                StringBuilder params = new StringBuilder();
+                for (Map.Entry<String, String> param : res.params.entrySet()) {
+                    if (params.length() > 0) {
+                        params.append(", ");
+                    }
+                    params.append(_jsonString(param.getKey())).append(" : ").append(_jsonString(param.getValue()));
+                }
+                out.println("        \"params\" : {" + params + "},");
+                StringBuilder raw = new StringBuilder();
+                for (double n : res.rawNanosPerOp) {
+                    if (raw.length() > 0) {
+                        raw.append(", ");
+                    }
+                    raw.append(_jsonNumber(n));
+                }
+                out.println("        \"primaryMetric\" : {");
+                out.println("            \"score\" : " + _jsonNumber(res.nanosPerOp) + ",");
+                out.println("            \"scoreError\" : " + _jsonNumber(res.errorNanosPerOp) + ",");
+                out.println("            \"scoreUnit\" : \"ns/op\",");
+                out.println("            \"rawData\" : [[" + raw + "]]");
+                out.println("        },");
+                out.println("        \"secondaryMetrics\" : {");
+                out.println("            \"gc.alloc.rate.norm\" : {");
+                out.println("                \"score\" : " + _jsonNumber(res.bytesPerOp) + ",");
+                out.println("                \"scoreUnit\" : \"B/op\"");
+                out.println("            }");
+                out.println("        }");
+                out.println(r + 1 < results.size() ? "    }," : "    }");
+            }
+            out.println("]");
+            if (out.checkError()) {
+                throw new IOException("Could not write benchmark results to " + fname);
+            }
+        }
+    }
+
+    private static String _jsonString(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /* JSON has no NaN or infinity, so they are written as null. */
+    private static String _jsonNumber(double d) {
+        return Double.isFinite(d) ? Double.toString(d) : "null";
+    }
+
+    private static long _iteration(Operation op) throws Exception {
+        return _iteration(op, new long[1]);
+    }
+
+    /**
+     * Call op repeatedly for at least ITERATION_NANOS, storing the number of calls in calls[0].
+     * @return the elapsed time in nanoseconds.
+     */
+    private static long _iteration(Operation op, long[] calls) throws Exception {
+        long n = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            sink = op.run();
+            ++n;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        calls[0] = n;
+        return elapsed;
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or 0 if the JVM cannot report it.
+     */
+    private static long _allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+}
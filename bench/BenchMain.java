@@ -0,0 +1,262 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the parameterized benchmark suite covering the hot paths of matrices, chains, walkers and walk I/O,
+ * and writes the results as JSON in the layout of JMH's -rf json (see Bench.writeJson),
+ * so runs can be kept and compared over time.
+ *
+ * Each benchmark is run once for every combination of its parameter values:
+ *    FloatMatrix.multiply       n        square matrices of side n, per multiply
+ *    FloatMatrix.fromFile       n        a text file of an n by n matrix, per file
+ *    FloatMatrix.toString       n        an n by n matrix, per call (toString is quadratic, so n stays small)
+ *    MarkovChain.nextState      states   a dense random chain, per transition
+ *    RandomWalker.walk          steps    walkCompact(steps), per step
+ *    SpiralWalker.walk          steps    walkCompact(steps) of a new walker, per step
+ *    BreadCrumbWalker.walk      steps    walkCompact(steps) out and back, per step
+ *    WalkStatistics.accept      steps    a RandomWalker streaming into WalkStatistics counting sites, per step
+ *    SiteTable.increment        table    the visits of a walk of SITE_STEPS steps counted in a HashSet of boxed
+ *                                        sites or a SiteTable on or off the heap, per visit
+ *    RandomWalker.saveWalkToFile format  a walk of SAVE_STEPS steps saved as .txt or .dat, per coordinate
+ *
+ * Command line arguments:
+ *    -o file: the file to write the results to (default bench-results.json)
+ *    -p name=v1,v2,...: override the values of a parameter, for every benchmark which has it
+ *    [0..]: regular expressions; only benchmarks whose name contains a match are run (default all)
+ * The iteration settings are those of Bench: -Dbench.warmup, -Dbench.iterations and -Dbench.time.
+ */
+public class BenchMain {
+
+    static final String DEFAULT_OUTPUT = "bench-results.json";
+    static final int SAVE_STEPS = 100000;
+    static final int SITE_STEPS = 1000000;
+
+    /**
+     * A benchmark to run once per combination of its parameter values.
+     */
+    interface Suite {
+        Bench.Result run(String benchmark, Map<String, String> params) throws Exception;
+    }
+
+    static final class Entry {
+        final String benchmark;
+        final LinkedHashMap<String, String[]> params;
+        final Suite suite;
+
+        Entry(String benchmark, String param, String[] values, Suite suite) {
+            this.benchmark = benchmark;
+            this.params = new LinkedHashMap<>();
+            this.params.put(param, values);
+            this.suite = suite;
+        }
+    }
+
+    static List<Entry> registry() {
+        List<Entry> entries = new ArrayList<>();
+
+        entries.add(new Entry("FloatMatrix.multiply", "n", new String[]{"64", "256"}, (benchmark, params) -> {
+            int n = Integer.parseInt(params.get("n"));
+            FloatMatrix A = FloatMatrixBenchmark.randomMatrix(n, n, 1);
+            FloatMatrix B = FloatMatrixBenchmark.randomMatrix(n, n, 2);
+            return Bench.measure(benchmark, params, 1, () -> A.multiply(B));
+        }));
+
+        entries.add(new Entry("FloatMatrix.fromFile", "n", new String[]{"64", "512"}, (benchmark, params) -> {
+            int n = Integer.parseInt(params.get("n"));
+            File fp = generateMatrixFile(n);
+            try {
+                return Bench.measure(benchmark, params, 1, () -> FloatMatrix.fromFile(fp.getPath()));
+            } finally {
+                fp.delete();
+            }
+        }));
+
+        entries.add(new Entry("FloatMatrix.toString", "n", new String[]{"16", "64"}, (benchmark, params) -> {
+            int n = Integer.parseInt(params.get("n"));
+            FloatMatrix A = FloatMatrixBenchmark.randomMatrix(n, n, 1);
+            return Bench.measure(benchmark, params, 1, A::toString);
+        }));
+
+        entries.add(new Entry("MarkovChain.nextState", "states", new String[]{"4", "64", "1024"},
+                (benchmark, params) -> {
+            int states = Integer.parseInt(params.get("states"));
+            MarkovChain mc = new MarkovChain(MarkovChainBenchmark.randomTransitionMatrix(states, 1), 1);
+            return Bench.measure(benchmark, params, MarkovChainBenchmark.TRANSITIONS, () -> {
+                int s = 0;
+                for (int i = 0; i < MarkovChainBenchmark.TRANSITIONS; ++i) {
+                    s += mc.nextState();
+                }
+                return s;
+            });
+        }));
+
+        String[] steps = {"1000", "100000"};
+        entries.add(new Entry("RandomWalker.walk", "steps", steps, (benchmark, params) -> {
+            int n = Integer.parseInt(params.get("steps"));
+            RandomWalker walker = new RandomWalker(walkerChain());
+            return Bench.measure(benchmark, params, n, () -> walker.walkCompact(n).size());
+        }));
+
+        //A SpiralWalker keeps its position between walks, so each walk uses a new walker.
+        entries.add(new Entry("SpiralWalker.walk", "steps", steps, (benchmark, params) -> {
+            int n = Integer.parseInt(params.get("steps"));
+            MarkovChain mc = walkerChain();
+            return Bench.measure(benchmark, params, n, () -> new SpiralWalker(mc).walkCompact(n).size());
+        }));
+
+        entries.add(new Entry("BreadCrumbWalker.walk", "steps", steps, (benchmark, params) -> {
+            int n = Integer.parseInt(params.get("steps"));
+            BreadCrumbWalker walker = new BreadCrumbWalker(walkerChain());
+            return Bench.measure(benchmark, params, n, () -> walker.walkCompact(n).size());
+        }));
+
+        entries.add(new Entry("WalkStatistics.accept", "steps", steps, (benchmark, params) -> {
+            int n = Integer.parseInt(params.get("steps"));
+            RandomWalker walker = new RandomWalker(walkerChain());
+            WalkStatistics stats = new WalkStatistics(0, 1, true);
+            return Bench.measure(benchmark, params, n, () -> {
+                stats.newWalk();
+                walker.walk(n, stats);
+                return stats.getDistinctSites();
+            });
+        }));
+
+        entries.add(new Entry("SiteTable.increment", "table", new String[]{"HashSet", "heap", "offheap"},
+                (benchmark, params) -> {
+            WalkPath path = new RandomWalker(walkerChain()).walkCompact(SITE_STEPS);
+            if (params.get("table").equals("HashSet")) {
+                return Bench.measure(benchmark, params, path.size(), () -> {
+                    HashSet<Long> sites = new HashSet<>();
+                    for (int i = 0; i < path.size(); ++i) {
+                        sites.add(path.getPacked(i));
+                    }
+                    return sites.size();
+                });
+            }
+            SiteTable table = new SiteTable(0, params.get("table").equals("offheap"));
+            return Bench.measure(benchmark, params, path.size(), () -> {
+                table.clear();
+                for (int i = 0; i < path.size(); ++i) {
+                    table.increment(path.getPacked(i));
+                }
+                return table.size();
+            });
+        }));
+
+        entries.add(new Entry("RandomWalker.saveWalkToFile", "format", new String[]{".txt", ".dat"},
+                (benchmark, params) -> {
+            RandomWalker walker = new RandomWalker(walkerChain());
+            walker.walkCompact(SAVE_STEPS);
+            File fp = File.createTempFile("BenchMain", params.get("format"));
+            fp.deleteOnExit();
+            try {
+                return Bench.measure(benchmark, params, SAVE_STEPS + 1, () -> {
+                    walker.saveWalkToFile(fp.getPath());
+                    return fp.length();
+                });
+            } finally {
+                fp.delete();
+            }
+        }));
+
+        return entries;
+    }
+
+    static MarkovChain walkerChain() {
+        return new MarkovChain(MarkovChainBenchmark.randomTransitionMatrix(4, 1), RandomWalkerBenchmark.CARDINALS, 1);
+    }
+
+    /**
+     * Write a random n by n matrix to a temporary text file in the format read by FloatMatrix.fromFile.
+     */
+    static File generateMatrixFile(int n) throws IOException {
+        File fp = File.createTempFile("BenchMain-" + n + "-", ".txt");
+        fp.deleteOnExit();
+        Random rand = new Random(n);
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(fp), 1 << 16)) {
+            for (int i = 0; i < n; ++i) {
+                for (int j = 0; j < n; ++j) {
+                    if (j > 0) {
+                        out.write(", ");
+                    }
+                    out.write(String.format("%.7f", rand.nextFloat()));
+                }
+                out.newLine();
+            }
+        }
+        return fp;
+    }
+
+    /**
+     * Every combination of the values of params, in order, the last parameter varying fastest.
+     */
+    static List<Map<String, String>> combinations(LinkedHashMap<String, String[]> params) {
+        List<Map<String, String>> combos = new ArrayList<>();
+        combos.add(new LinkedHashMap<>());
+        for (Map.Entry<String, String[]> param : params.entrySet()) {
+            List<Map<String, String>> next = new ArrayList<>();
+            for (Map<String, String> combo : combos) {
+                for (String value : param.getValue()) {
+                    Map<String, String> extended = new LinkedHashMap<>(combo);
+                    extended.put(param.getKey(), value);
+                    next.add(extended);
+                }
+            }
+            combos = next;
+        }
+        return combos;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String output = DEFAULT_OUTPUT;
+        Map<String, String[]> overrides = new HashMap<>();
+        List<Pattern> filters = new ArrayList<>();
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i].equals("-o") && i + 1 < args.length) {
+                output = args[++i];
+            } else if (args[i].equals("-p") && i + 1 < args.length) {
+                String[] param = args[++i].split("=", 2);
+                if (param.length != 2 || param[1].isEmpty()) {
+                    System.out.println("Invalid parameter, expected name=v1,v2,...: " + args[i]);
+                    System.exit(1);
+                }
+                overrides.put(param[0], param[1].split(","));
+            } else {
+                filters.add(Pattern.compile(args[i]));
+            }
+        }
+
+        List<Bench.Result> results = new ArrayList<>();
+        for (Entry entry : registry()) {
+            boolean selected = filters.isEmpty();
+            for (Pattern filter : filters) {
+                selected |= filter.matcher(entry.benchmark).find();
+            }
+            if (!selected) {
+                continue;
+            }
+            LinkedHashMap<String, String[]> params = new LinkedHashMap<>(entry.params);
+            for (String name : params.keySet()) {
+                if (overrides.containsKey(name)) {
+                    params.put(name, overrides.get(name));
+                }
+            }
+            for (Map<String, String> combo : combinations(params)) {
+                results.add(entry.suite.run(entry.benchmark, combo));
+            }
+        }
+
+        Bench.writeJson(results, output);
+        System.out.println("Wrote " + results.size() + " results to " + output);
+    }
+}
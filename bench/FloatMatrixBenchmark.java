@@ -0,0 +1,60 @@
+import java.util.Random;
+
+/**
+ * Benchmarks for FloatMatrix.
+ * Compares the blocked multiply kernel against the previous implementation,
+ * a naive i-j-k triple loop through get() and set().
+ *
+ * Command line arguments:
+ *    [0..]: matrix sizes to benchmark (default 64 256 1024)
+ */
+public class FloatMatrixBenchmark {
+
+    static FloatMatrix randomMatrix(int rows, int cols, long seed) {
+        Random rand = new Random(seed);
+        FloatMatrix M = new FloatMatrix(rows, cols);
+        for (int i = 0; i < rows; ++i) {
+            for (int j = 0; j < cols; ++j) {
+                M.set(i, j, rand.nextFloat());
+            }
+        }
+        return M;
+    }
+
+    /**
+     * The FloatMatrix.multiply implementation this benchmark compares against.
+     */
+    static FloatMatrix multiplyNaive(FloatMatrix A, FloatMatrix B) {
+        int prodRows = A.rows();
+        int prodCols = B.columns();
+        int N = A.columns();
+        FloatMatrix product = new FloatMatrix(prodRows, prodCols);
+        for (int i = 0; i < prodRows; ++i) {
+            for (int j = 0; j < prodCols; ++j) {
+                float entry = product.get(i, j);
+                for (int k = 0; k < N; ++k) {
+                    entry += A.get(i, k) * B.get(k, j);
+                }
+                product.set(i, j, entry);
+            }
+        }
+        return product;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {64, 256, 1024};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; ++i) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        for (int size : sizes) {
+            FloatMatrix A = randomMatrix(size, size, 1);
+            FloatMatrix B = randomMatrix(size, size, 2);
+            Bench.measure("multiplyNaive size=" + size, () -> multiplyNaive(A, B));
+            Bench.measure("multiply size=" + size, () -> A.multiply(B));
+        }
+    }
+}
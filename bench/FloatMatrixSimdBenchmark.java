@@ -0,0 +1,86 @@
+import java.util.Arrays;
+
+/**
+ * Benchmarks comparing the scalar kernels of FloatMatrix with the SIMD kernels of FloatMatrixSimd,
+ * for the matrix product, row sums and fills of square matrices, reported per whole matrix.
+ * The SIMD kernels are only measured when FloatMatrix.isSimdEnabled(), which needs simd/ on the
+ * class path and the JVM started with --add-modules jdk.incubator.vector.
+ *
+ * Command line arguments:
+ *    [0..]: sizes of the square matrices to benchmark (default 64 256 512)
+ */
+public class FloatMatrixSimdBenchmark {
+
+    static float[] randomEntries(int n, long seed) {
+        java.util.Random rand = new java.util.Random(seed);
+        float[] entries = new float[n];
+        for (int i = 0; i < n; ++i) {
+            entries[i] = rand.nextFloat();
+        }
+        return entries;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {64, 256, 512};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; ++i) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        System.out.println("FloatMatrix.isSimdEnabled() = " + FloatMatrix.isSimdEnabled());
+
+        for (int n : sizes) {
+            float[] a = randomEntries(n * n, 1);
+            float[] b = randomEntries(n * n, 2);
+            float[] c = new float[n * n];
+
+            Bench.measure("multiply scalar n=" + n, () -> {
+                Arrays.fill(c, 0.0f);
+                FloatMatrix._multiplyBlockedScalar(a, b, c, n, n, 0, n, 0, n);
+                return c;
+            });
+            if (FloatMatrix.isSimdEnabled()) {
+                Bench.measure("multiply simd n=" + n, () -> {
+                    Arrays.fill(c, 0.0f);
+                    FloatMatrix._multiplyBlockedSimd(a, b, c, n, n, 0, n, 0, n);
+                    return c;
+                });
+            }
+
+            Bench.measure("row sums scalar n=" + n, () -> {
+                double total = 0.0;
+                for (int i = 0; i < n; ++i) {
+                    double sum = 0.0;
+                    for (int j = i * n; j < (i + 1) * n; ++j) {
+                        sum += a[j];
+                    }
+                    total += sum;
+                }
+                return total;
+            });
+            if (FloatMatrix.isSimdEnabled()) {
+                Bench.measure("row sums simd n=" + n, () -> {
+                    double total = 0.0;
+                    for (int i = 0; i < n; ++i) {
+                        total += FloatMatrix._sumSimd(a, i * n, (i + 1) * n);
+                    }
+                    return total;
+                });
+            }
+
+            Bench.measure("fill scalar n=" + n, () -> {
+                for (int j = 0; j < c.length; ++j) {
+                    c[j] = 0.0f;
+                }
+                return c;
+            });
+            if (FloatMatrix.isSimdEnabled()) {
+                Bench.measure("fill simd n=" + n, () -> {
+                    FloatMatrix._fillSimd(c, 0, c.length, 0.0f);
+                    return c;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Benchmarks for MappedWalkReader on walks saved as .walk and .dat files:
+ * opening a file, which builds the checkpoint index, reported per coordinate;
+ * random access to single coordinates, reported per access;
+ * and reading a range of coordinates into a sink, reported per coordinate.
+ * The files are written to the temporary directory and deleted afterwards.
+ *
+ * Command line arguments:
+ *    [0..]: numbers of steps per walk to benchmark (default 10000000)
+ */
+public class MappedWalkReaderBenchmark {
+
+    static final int RANDOM_ACCESSES = 10000;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {10000000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; ++i) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        FloatMatrix T = MarkovChainBenchmark.randomTransitionMatrix(4, 1);
+        for (int steps : sizes) {
+            RandomWalker walker = new RandomWalker(new MarkovChain(T, RandomWalkerBenchmark.CARDINALS, 1));
+            for (String suffix : new String[]{".walk", ".dat"}) {
+                File fp = File.createTempFile("MappedWalkReaderBenchmark", suffix);
+                fp.deleteOnExit();
+                String fname = fp.getPath();
+                walker.walkToFile(steps, fname);
+
+                Bench.measure("open " + suffix + " steps=" + steps, steps + 1L, () -> {
+                    try (MappedWalkReader reader = new MappedWalkReader(fname)) {
+                        return reader.size();
+                    }
+                });
+
+                MappedWalkReader reader = new MappedWalkReader(fname);
+                long[] indices = new long[RANDOM_ACCESSES];
+                Random rand = new Random(1);
+                for (int i = 0; i < indices.length; ++i) {
+                    indices[i] = (long) (rand.nextDouble() * reader.size());
+                }
+                Bench.measure("random access " + suffix + " steps=" + steps, RANDOM_ACCESSES, () -> {
+                    long sum = 0;
+                    for (long i : indices) {
+                        sum += reader.getPacked(i);
+                    }
+                    return sum;
+                });
+
+                WalkPath range = new WalkPath(steps / 2 + 1);
+                Bench.measure("readRange " + suffix + " steps=" + steps, steps / 2, () -> {
+                    range.clear();
+                    reader.readRange(steps / 4, steps / 4 + steps / 2, range);
+                    return range.size();
+                });
+                reader.close();
+                fp.delete();
+            }
+        }
+    }
+}
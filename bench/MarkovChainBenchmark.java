@@ -0,0 +1,126 @@
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * Benchmarks for MarkovChain.nextState with each sampling strategy,
+ * on dense chains with random transition probabilities,
+ * on a sparse chain over the positions of a periodic lattice,
+ * and with each kind of random number generator.
+ * Creating a chain from a matrix is compared with splitting one from an existing chain,
+ * and with creating one on an existing TransitionModel.
+ *
+ * Command line arguments:
+ *    [0..]: numbers of states to benchmark (default 4 64 1024)
+ */
+public class MarkovChainBenchmark {
+
+    /* Transitions performed per measured call. */
+    static final int TRANSITIONS = 100000;
+
+    static FloatMatrix randomTransitionMatrix(int states, long seed) {
+        Random rand = new Random(seed);
+        FloatMatrix T = new FloatMatrix(states);
+        for (int i = 0; i < states; ++i) {
+            float sum = 0.0f;
+            for (int j = 0; j < states; ++j) {
+                float p = rand.nextFloat();
+                T.set(i, j, p);
+                sum += p;
+            }
+            for (int j = 0; j < states; ++j) {
+                T.set(i, j, T.get(i, j) / sum);
+            }
+        }
+        return T;
+    }
+
+    /**
+     * A chain over the sites of a side by side periodic lattice,
+     * moving to each of the 4 neighbouring sites with equal probability.
+     */
+    static SparseFloatMatrix latticeTransitionMatrix(int side) {
+        int states = side * side;
+        int[] rowPtr = new int[states + 1];
+        int[] colIdx = new int[4 * states];
+        float[] values = new float[4 * states];
+        int[] neighbours = new int[4];
+        for (int s = 0; s < states; ++s) {
+            int x = s % side;
+            int y = s / side;
+            neighbours[0] = y * side + (x + 1) % side;
+            neighbours[1] = y * side + (x + side - 1) % side;
+            neighbours[2] = ((y + 1) % side) * side + x;
+            neighbours[3] = ((y + side - 1) % side) * side + x;
+            java.util.Arrays.sort(neighbours);
+            for (int k = 0; k < 4; ++k) {
+                colIdx[4 * s + k] = neighbours[k];
+                values[4 * s + k] = 0.25f;
+            }
+            rowPtr[s + 1] = 4 * (s + 1);
+        }
+        return new SparseFloatMatrix(states, states, rowPtr, colIdx, values);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {4, 64, 1024};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; ++i) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        for (int states : sizes) {
+            FloatMatrix T = randomTransitionMatrix(states, 1);
+            for (MarkovChain.SamplingStrategy strategy : MarkovChain.SamplingStrategy.values()) {
+                MarkovChain mc = new MarkovChain(T, 1);
+                mc.setSamplingStrategy(strategy);
+                Bench.measure("nextState " + strategy + " states=" + states, TRANSITIONS, () -> {
+                    int s = 0;
+                    for (int i = 0; i < TRANSITIONS; ++i) {
+                        s += mc.nextState();
+                    }
+                    return s;
+                });
+            }
+        }
+
+        SparseFloatMatrix lattice = latticeTransitionMatrix(316);
+        for (MarkovChain.SamplingStrategy strategy : MarkovChain.SamplingStrategy.values()) {
+            MarkovChain mc = new MarkovChain(lattice, 1);
+            mc.setSamplingStrategy(strategy);
+            Bench.measure("nextState " + strategy + " sparse lattice states=" + lattice.rows(),
+                    TRANSITIONS, () -> {
+                int s = 0;
+                for (int i = 0; i < TRANSITIONS; ++i) {
+                    s += mc.nextState();
+                }
+                return s;
+            });
+        }
+    
+        FloatMatrix T4 = randomTransitionMatrix(4, 1);
+        RandomGenerator[] generators = {new Random(1), new SplittableRandom(1),
+                RandomGeneratorFactory.of("L64X128MixRandom").create(1)};
+        for (RandomGenerator generator : generators) {
+            MarkovChain mc = new MarkovChain(T4, generator);
+            Bench.measure("nextState CDF states=4 " + generator.getClass().getSimpleName(), TRANSITIONS, () -> {
+                int s = 0;
+                for (int i = 0; i < TRANSITIONS; ++i) {
+                    s += mc.nextState();
+                }
+                return s;
+            });
+        }
+
+        int states = sizes[sizes.length - 1];
+        FloatMatrix T = randomTransitionMatrix(states, 1);
+        MarkovChain parent = new MarkovChain(T, new SplittableRandom(1));
+        Bench.measure("new MarkovChain states=" + states, () -> new MarkovChain(T, 1));
+        Bench.measure("split states=" + states, () -> parent.split());
+        TransitionModel model = parent.getModel();
+        Bench.measure("new MarkovChain(model) states=" + states, () -> new MarkovChain(model, new SplittableRandom(1)));
+    }
+}
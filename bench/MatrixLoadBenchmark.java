@@ -0,0 +1,96 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * Load-time benchmark for FloatMatrix.fromFile on generated square matrix files,
+ * compared against the previous Scanner and String.split based parser,
+ * and against FloatMatrix.fromBinaryFile on the same matrix in binary form.
+ * The previous parser boxes every value, so it is skipped for files over
+ * LEGACY_LIMIT_MB to avoid running out of heap.
+ *
+ * Command line arguments:
+ *    [0..]: approximate file sizes in megabytes (default 10 100 1000)
+ */
+public class MatrixLoadBenchmark {
+
+    static final int LEGACY_LIMIT_MB = 256;
+    /* Each generated value, such as "0.1234567, ", takes this many bytes. */
+    static final int BYTES_PER_VALUE = 11;
+
+    static File generateMatrixFile(int megabytes) throws IOException {
+        int side = (int) Math.sqrt((double) megabytes * 1024 * 1024 / BYTES_PER_VALUE);
+        File fp = File.createTempFile("MatrixLoadBenchmark-" + megabytes + "MB-", ".txt");
+        fp.deleteOnExit();
+        Random rand = new Random(megabytes);
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(fp), 1 << 16)) {
+            for (int i = 0; i < side; ++i) {
+                for (int j = 0; j < side; ++j) {
+                    if (j > 0) {
+                        out.write(", ");
+                    }
+                    out.write(String.format("%.7f", rand.nextFloat()));
+                }
+                out.newLine();
+            }
+        }
+        return fp;
+    }
+
+    /**
+     * The FloatMatrix.fromFile implementation this benchmark compares against.
+     */
+    static FloatMatrix fromFileLegacy(String fname) throws IOException {
+        Scanner rd = new Scanner(new FileReader(fname));
+        ArrayList<Float> matVals = new ArrayList<Float>();
+        int nCols = 0;
+        while (rd.hasNextLine()) {
+            String line = rd.nextLine();
+            String[] vals = line.split(",");
+            if (nCols == 0) {
+                nCols = vals.length;
+            } else if (nCols != vals.length) {
+                throw new RuntimeException("Malformed file for FloatMatrix.fromFile. Are all rows the same length?");
+            }
+            for (int i = 0; i < vals.length; ++i) {
+                matVals.add(Float.valueOf(vals[i].strip()));
+            }
+        }
+        rd.close();
+
+        float[] floatVals = new float[matVals.size()];
+        for (int i = 0; i < matVals.size(); ++i) {
+            floatVals[i] = matVals.get(i);
+        }
+        return new FloatMatrix(floatVals, nCols);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {10, 100, 1000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; ++i) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        for (int megabytes : sizes) {
+            String fname = generateMatrixFile(megabytes).getPath();
+            if (megabytes <= LEGACY_LIMIT_MB) {
+                Bench.measure("fromFileLegacy size=" + megabytes + "MB", () -> fromFileLegacy(fname));
+            }
+            Bench.measure("fromFile size=" + megabytes + "MB", () -> FloatMatrix.fromFile(fname));
+
+            String binName = fname + ".bin";
+            FloatMatrix.fromFile(fname).toBinaryFile(binName);
+            Bench.measure("fromBinaryFile size=" + megabytes + "MB", () -> FloatMatrix.fromBinaryFile(binName));
+            new File(fname).delete();
+            new File(binName).delete();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Scaling benchmark for FloatMatrix.multiplyParallel.
+ * Every matrix size is multiplied with 1, 2, 4, ... threads up to the number of
+ * available processors, alongside the sequential multiply as a baseline.
+ *
+ * Command line arguments:
+ *    [0..]: matrix sizes to benchmark (default 256 1024 4096)
+ */
+public class ParallelMultiplyBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {256, 1024, 4096};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; ++i) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int size : sizes) {
+            FloatMatrix A = FloatMatrixBenchmark.randomMatrix(size, size, 1);
+            FloatMatrix B = FloatMatrixBenchmark.randomMatrix(size, size, 2);
+            Bench.measure("multiply size=" + size, () -> A.multiply(B));
+
+            for (int threads = 1; ; threads = Math.min(2 * threads, maxThreads)) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    Bench.measure("multiplyParallel size=" + size + " threads=" + threads,
+                            () -> A.multiplyParallel(B, pool));
+                } finally {
+                    pool.shutdown();
+                }
+                if (threads == maxThreads) {
+                    break;
+                }
+            }
+        }
+    }
+}
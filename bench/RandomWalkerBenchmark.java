@@ -0,0 +1,60 @@
+/**
+ * Benchmarks for the step loop of RandomWalker.walk,
+ * reported per step so that B/op shows any allocation left in the loop.
+ * The legacy loop, which compared state labels and allocated Coordinates
+ * on every step, is reproduced here for comparison.
+ *
+ * Command line arguments:
+ *    [0..]: numbers of steps per walk to benchmark (default 1000 100000)
+ */
+public class RandomWalkerBenchmark {
+
+    static final String[] CARDINALS = {"N", "E", "S", "W"};
+
+    /**
+     * The step loop of RandomWalker.walk as it was before the step table.
+     */
+    static int walkLegacy(MarkovChain mc, int Nsteps, WalkPath path) {
+        Coordinate curPos = new Coordinate(RandomWalker.START_X, RandomWalker.START_Y);
+        path.clear();
+        path.add(curPos.x, curPos.y);
+        for (int step = 0; step < Nsteps; ++step) {
+            mc.nextState();
+            Coordinate delta = new Coordinate(0, 0);
+            String state = mc.getStateString();
+            if (state.equals("N")) {
+                delta.accumulate(new Coordinate(0, RandomWalker.STEP_SIZE));
+            } else if (state.equals("E")) {
+                delta.accumulate(new Coordinate(RandomWalker.STEP_SIZE, 0));
+            } else if (state.equals("S")) {
+                delta.accumulate(new Coordinate(0, -RandomWalker.STEP_SIZE));
+            } else {
+                delta.accumulate(new Coordinate(-RandomWalker.STEP_SIZE, 0));
+            }
+            curPos.accumulate(delta);
+            path.add(curPos.x, curPos.y);
+        }
+        return path.size();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {1000, 100000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; ++i) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        FloatMatrix T = MarkovChainBenchmark.randomTransitionMatrix(4, 1);
+        for (int steps : sizes) {
+            MarkovChain legacyChain = new MarkovChain(T, CARDINALS, 1);
+            WalkPath legacyPath = new WalkPath(steps + 1);
+            Bench.measure("walk legacy steps=" + steps, steps,
+                    () -> walkLegacy(legacyChain, steps, legacyPath));
+
+            RandomWalker walker = new RandomWalker(new MarkovChain(T, CARDINALS, 1));
+            Bench.measure("walkCompact steps=" + steps, steps, () -> walker.walkCompact(steps).size());
+        }
+    }
+}
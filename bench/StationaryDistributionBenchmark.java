@@ -0,0 +1,77 @@
+import java.util.Random;
+
+/**
+ * Benchmarks for TransitionModel.stationaryDistribution on random sparse chains,
+ * each state transitioning to a few random states, reported per solve
+ * along with the iterations each solve needed.
+ * For a small dense chain it is compared with estimating the distribution by
+ * counting the states visited in a million simulated transitions.
+ *
+ * Command line arguments:
+ *    [0..]: numbers of states of the sparse chains (default 10000 100000 1000000)
+ */
+public class StationaryDistributionBenchmark {
+
+    static final int NON_ZEROS_PER_ROW = 8;
+    static final double TOLERANCE = 1e-9;
+    static final int MAX_ITERS = 10000;
+    static final int SIMULATED_TRANSITIONS = 1000000;
+
+    static SparseFloatMatrix randomSparseTransitionMatrix(int states, int perRow, long seed) {
+        Random rand = new Random(seed);
+        int[] rowPtr = new int[states + 1];
+        int[] colIdx = new int[states * perRow];
+        float[] values = new float[states * perRow];
+        int[] cols = new int[perRow];
+        for (int i = 0; i < states; ++i) {
+            //perRow distinct columns, drawn from consecutive slices of the states.
+            for (int k = 0; k < perRow; ++k) {
+                int lo = (int) ((long) states * k / perRow);
+                int hi = (int) ((long) states * (k + 1) / perRow);
+                cols[k] = lo + rand.nextInt(hi - lo);
+            }
+            float sum = 0.0f;
+            for (int k = 0; k < perRow; ++k) {
+                values[i * perRow + k] = 1.0f + rand.nextFloat();
+                sum += values[i * perRow + k];
+            }
+            for (int k = 0; k < perRow; ++k) {
+                colIdx[i * perRow + k] = cols[k];
+                values[i * perRow + k] /= sum;
+            }
+            rowPtr[i + 1] = (i + 1) * perRow;
+        }
+        return new SparseFloatMatrix(states, states, rowPtr, colIdx, values);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {10000, 100000, 1000000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; ++i) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        TransitionModel small = new TransitionModel(MarkovChainBenchmark.randomTransitionMatrix(4, 1));
+        System.out.println("states=4 iterations=" + small.stationaryDistribution(TOLERANCE, MAX_ITERS).getIterations());
+        Bench.measure("stationaryDistribution states=4", () -> small.stationaryDistribution(TOLERANCE, MAX_ITERS));
+        MarkovChain mc = new MarkovChain(small, 1);
+        Bench.measure("simulate " + SIMULATED_TRANSITIONS + " transitions states=4", () -> {
+            int[] counts = new int[4];
+            for (int i = 0; i < SIMULATED_TRANSITIONS; ++i) {
+                counts[mc.nextState()]++;
+            }
+            return counts;
+        });
+
+        for (int states : sizes) {
+            TransitionModel model = new TransitionModel(randomSparseTransitionMatrix(states, NON_ZEROS_PER_ROW, 1));
+            TransitionModel.StationaryDistribution pi = model.stationaryDistribution(TOLERANCE, MAX_ITERS);
+            System.out.println("states=" + states + " iterations=" + pi.getIterations()
+                    + " residual=" + pi.getResidual());
+            Bench.measure("stationaryDistribution sparse states=" + states,
+                    () -> model.stationaryDistribution(TOLERANCE, MAX_ITERS));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Benchmarks for WalkEnsemble, reported per walker step,
+ * for increasing numbers of threads on the same ensemble.
+ *
+ * Command line arguments:
+ *    [0]: number of walkers (default 10000)
+ *    [1]: number of steps per walker (default 1000)
+ *    [2..]: numbers of threads to benchmark (default 1 and the available processors)
+ */
+public class WalkEnsembleBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int walkers = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int[] threads = {1, Runtime.getRuntime().availableProcessors()};
+        if (args.length > 2) {
+            threads = new int[args.length - 2];
+            for (int i = 2; i < args.length; ++i) {
+                threads[i - 2] = Integer.parseInt(args[i]);
+            }
+        }
+
+        FloatMatrix T = MarkovChainBenchmark.randomTransitionMatrix(4, 1);
+        WalkEnsemble ensemble = new WalkEnsemble(T, RandomWalkerBenchmark.CARDINALS,
+                WalkEnsemble.WalkerType.RANDOM, steps, walkers, 1);
+        for (int n : threads) {
+            ExecutorService executor = Executors.newFixedThreadPool(n);
+            try {
+                Bench.measure("ensemble walkers=" + walkers + " steps=" + steps + " threads=" + n,
+                        (long) walkers * steps, () -> ensemble.run(executor, null));
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
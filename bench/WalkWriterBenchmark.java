@@ -0,0 +1,93 @@
+import java.io.File;
+import java.io.PrintWriter;
+
+/**
+ * Benchmarks for writing a walk to .txt and .dat files, reported per coordinate.
+ * The legacy saveWalkToFile, which formatted each coordinate with String.format
+ * through an unbuffered PrintWriter and built .dat files in one StringBuilder,
+ * is reproduced here for comparison with WalkWriter.
+ * Walking and saving a path is also compared with streaming the walk straight to the file,
+ * where B/op shows the path no longer being stored.
+ * The binary .walk format, which has no legacy writer, is measured writing and reading back,
+ * and the size of each file is printed.
+ * The files are written to the temporary directory and deleted afterwards.
+ *
+ * Command line arguments:
+ *    [0..]: numbers of steps per walk to benchmark (default 10000000)
+ */
+public class WalkWriterBenchmark {
+
+    /**
+     * saveWalkToFile as it was before WalkWriter.
+     */
+    static void writeLegacy(String fname, WalkPath path) throws Exception {
+        PrintWriter writer = new PrintWriter(fname);
+        if (fname.endsWith(".txt")) {
+            for (int i = 0; i < path.size(); ++i) {
+                writer.println(String.format("(%d, %d)", path.getX(i), path.getY(i)));
+            }
+        } else if (fname.endsWith(".dat")) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < path.size(); ++i) {
+                if (sb.length() > 0) sb.append(" ");
+                sb.append(path.getX(i)).append(" ").append(path.getY(i));
+            }
+            writer.println(sb.toString());
+        }
+        writer.close();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {10000000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; ++i) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        FloatMatrix T = MarkovChainBenchmark.randomTransitionMatrix(4, 1);
+        for (int steps : sizes) {
+            RandomWalker walker = new RandomWalker(new MarkovChain(T, RandomWalkerBenchmark.CARDINALS, 1));
+            WalkPath path = walker.walkCompact(steps);
+            for (String suffix : new String[]{".txt", ".dat", ".walk"}) {
+                File fp = File.createTempFile("WalkWriterBenchmark", suffix);
+                fp.deleteOnExit();
+                String fname = fp.getPath();
+                if (!suffix.equals(".walk")) {
+                    Bench.measure("legacy " + suffix + " steps=" + steps, path.size(), () -> {
+                        writeLegacy(fname, path);
+                        return fp.length();
+                    });
+                }
+                Bench.measure("WalkWriter " + suffix + " steps=" + steps, path.size(), () -> {
+                    WalkWriter.write(fname, path);
+                    return fp.length();
+                });
+                Bench.measure("walk and save " + suffix + " steps=" + steps, path.size(), () -> {
+                    RandomWalker w = new RandomWalker(new MarkovChain(T, RandomWalkerBenchmark.CARDINALS, 1));
+                    w.walkCompact(steps);
+                    w.saveWalkToFile(fname);
+                    return fp.length();
+                });
+                Bench.measure("walkToFile " + suffix + " steps=" + steps, path.size(), () -> {
+                    RandomWalker w = new RandomWalker(new MarkovChain(T, RandomWalkerBenchmark.CARDINALS, 1));
+                    w.walkToFile(steps, fname);
+                    return fp.length();
+                });
+                System.out.println(suffix + " steps=" + steps + ": " + fp.length() + " bytes");
+                if (suffix.equals(".walk")) {
+                    WalkPath readBack = new WalkPath(path.size());
+                    Bench.measure("BinaryWalkReader " + suffix + " steps=" + steps, path.size(), () -> {
+                        readBack.clear();
+                        try (BinaryWalkReader reader = new BinaryWalkReader(fname)) {
+                            reader.readTo(readBack);
+                        }
+                        return readBack.size();
+                    });
+                }
+                fp.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of the inner loops of FloatMatrix, written with the incubating JDK Vector API.
+ * This class needs the module jdk.incubator.vector, so it lives in its own source root, simd/,
+ * compiled with --add-modules jdk.incubator.vector, and the rest of the tree never refers to it by name.
+ * FloatMatrix looks it up at run time, only when the module is present; see FloatMatrix.isSimdEnabled().
+ * Each method works on row-major backing arrays, like the scalar helpers of FloatMatrix.
+ */
+final class FloatMatrixSimd {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    /* Doubles in vectors of the same size as FLOATS, so each float vector converts to two of these. */
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    private FloatMatrixSimd() {
+    }
+
+    /**
+     * Compute rows [rowStart, rowEnd) and columns [colStart, colEnd) of a * b into c,
+     * tiled exactly as FloatMatrix's scalar kernel, with the innermost loop over j vectorized.
+     * Each lane multiplies and then adds, rather than using a fused multiply-add,
+     * so every entry of c is rounded exactly as by the scalar kernel and the results are identical.
+     * The entries of c in the computed block must be 0 on entry.
+     * @param a: the entries of the left-hand matrix
+     * @param b: the entries of the right-hand matrix
+     * @param c: the entries of the product matrix
+     * @param N: the number of columns of a (and rows of b)
+     * @param P: the number of columns of b (and of c)
+     * @param rowStart: the first row of c to compute
+     * @param rowEnd: one past the last row of c to compute
+     * @param colStart: the first column of c to compute
+     * @param colEnd: one past the last column of c to compute
+     * @param blockSize: the edge length of the tiles
+     */
+    static void multiplyBlocked(float[] a, float[] b, float[] c, int N, int P,
+                                int rowStart, int rowEnd, int colStart, int colEnd, int blockSize) {
+        int lanes = FLOATS.length();
+        for (int ii = rowStart; ii < rowEnd; ii += blockSize) {
+            int iMax = Math.min(ii + blockSize, rowEnd);
+            for (int kk = 0; kk < N; kk += blockSize) {
+                int kMax = Math.min(kk + blockSize, N);
+                for (int jj = colStart; jj < colEnd; jj += blockSize) {
+                    int jMax = Math.min(jj + blockSize, colEnd);
+                    int jVecEnd = jj + ((jMax - jj) / lanes) * lanes;
+                    for (int i = ii; i < iMax; ++i) {
+                        int aRow = i * N;
+                        int cRow = i * P;
+                        for (int k = kk; k < kMax; ++k) {
+                            float aik = a[aRow + k];
+                            FloatVector va = FloatVector.broadcast(FLOATS, aik);
+                            int bRow = k * P;
+                            int j = jj;
+                            for (; j < jVecEnd; j += lanes) {
+                                FloatVector vb = FloatVector.fromArray(FLOATS, b, bRow + j);
+                                FloatVector vc = FloatVector.fromArray(FLOATS, c, cRow + j);
+                                vc.add(va.mul(vb)).intoArray(c, cRow + j);
+                            }
+                            for (; j < jMax; ++j) {
+                                c[cRow + j] += aik * b[bRow + j];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sum the entries from..to-1 of an array in double precision.
+     * The entries are added in a different order than a sequential loop,
+     * so the result may differ from it in the last bits.
+     * @param a: the array to sum a range of.
+     * @param from: the first index to sum.
+     * @param to: one past the last index to sum.
+     * @return the sum.
+     */
+    static double sum(float[] a, int from, int to) {
+        int lanes = FLOATS.length();
+        DoubleVector acc0 = DoubleVector.zero(DOUBLES);
+        DoubleVector acc1 = DoubleVector.zero(DOUBLES);
+        int j = from;
+        for (int end = from + ((to - from) / lanes) * lanes; j < end; j += lanes) {
+            FloatVector v = FloatVector.fromArray(FLOATS, a, j);
+            acc0 = acc0.add((DoubleVector) v.convertShape(VectorOperators.F2D, DOUBLES, 0));
+            acc1 = acc1.add((DoubleVector) v.convertShape(VectorOperators.F2D, DOUBLES, 1));
+        }
+        double sum = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; j < to; ++j) {
+            sum += a[j];
+        }
+        return sum;
+    }
+
+    /**
+     * Set the entries from..to-1 of an array to val.
+     * @param a: the array to fill a range of.
+     * @param from: the first index to set.
+     * @param to: one past the last index to set.
+     * @param val: the value to set.
+     */
+    static void fill(float[] a, int from, int to, float val) {
+        int lanes = FLOATS.length();
+        FloatVector v = FloatVector.broadcast(FLOATS, val);
+        int j = from;
+        for (int end = from + ((to - from) / lanes) * lanes; j < end; j += lanes) {
+            v.intoArray(a, j);
+        }
+        for (; j < to; ++j) {
+            a[j] = val;
+        }
+    }
+
+}
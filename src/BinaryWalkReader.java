@@ -0,0 +1,230 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The BinaryWalkReader class reads a walk from a .walk file written by WalkWriter.
+ * Coordinates are reconstructed lazily from the start point and the 2 bit direction codes,
+ * one at a time as next() is called, reading the file through a small reusable buffer,
+ * so a walk of any length can be read in constant memory.
+ *
+ * A reader is positioned before the first coordinate; each call to next() moves
+ * to the following coordinate, whose value is then given by getX() and getY().
+ */
+public class BinaryWalkReader implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buf;
+    private final int startX;
+    private final int startY;
+    private final long numSteps; //-1 for a walk with no coordinates
+    private long index;
+    private int x;
+    private int y;
+    private int codes;
+    private int numCodes;
+
+    /**
+     * Open a .walk file for reading, checking its header.
+     * @param fname: the name of the file to read
+     * @throws IOException if the file could not be opened or read
+     * @throws RuntimeException if the file is not a .walk file, or is truncated.
+     */
+    public BinaryWalkReader(String fname) throws IOException, RuntimeException {
+        channel = FileChannel.open(Paths.get(fname), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < WalkWriter.BINARY_HEADER_SIZE) {
+                throw new RuntimeException("Malformed file for BinaryWalkReader. File is too short.");
+            }
+            ByteBuffer header = ByteBuffer.allocate(WalkWriter.BINARY_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            _readFully(header);
+            header.flip();
+            byte[] magic = new byte[WalkWriter.BINARY_MAGIC.length];
+            header.get(magic);
+            startX = header.getInt();
+            startY = header.getInt();
+            numSteps = header.getLong();
+            if (!Arrays.equals(magic, WalkWriter.BINARY_MAGIC) || numSteps < -1) {
+                throw new RuntimeException("Malformed file for BinaryWalkReader. Not a .walk file.");
+            }
+            if (size != WalkWriter.BINARY_HEADER_SIZE + codeBytes(numSteps)) {
+                throw new RuntimeException("Malformed file for BinaryWalkReader. "
+                        + "File size does not match its number of steps.");
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        buf = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+        buf.limit(0);
+        index = -1;
+    }
+
+    /**
+     * Read a whole .walk file into a WalkPath.
+     * @param fname: the name of the file to read
+     * @return the path of the walk.
+     * @throws IOException if the file could not be opened or read
+     * @throws RuntimeException if the file is not a .walk file, is truncated,
+     *         or holds more coordinates than a WalkPath can.
+     */
+    public static WalkPath read(String fname) throws IOException, RuntimeException {
+        try (BinaryWalkReader reader = new BinaryWalkReader(fname)) {
+            if (reader.size() > Integer.MAX_VALUE - 8) {
+                throw new RuntimeException("The walk in " + fname + " is too long to hold in a WalkPath.");
+            }
+            WalkPath path = new WalkPath((int) reader.size());
+            reader.readTo(path);
+            return path;
+        }
+    }
+
+    /**
+     * Get the number of bytes of direction codes of a walk.
+     * @param numSteps: the number of steps of the walk, or -1 for a walk with no coordinates.
+     * @return the number of bytes, ceil(numSteps / 4).
+     */
+    static long codeBytes(long numSteps) {
+        return (Math.max(numSteps, 0) + 3) / 4;
+    }
+
+    /**
+     * Get the x coordinate the walk starts from.
+     * @return the starting x.
+     */
+    public int getStartX() {
+        return startX;
+    }
+
+    /**
+     * Get the y coordinate the walk starts from.
+     * @return the starting y.
+     */
+    public int getStartY() {
+        return startY;
+    }
+
+    /**
+     * Get the number of steps of the walk, which is 0 for a walk with no coordinates.
+     * @return the number of steps.
+     */
+    public long getStepCount() {
+        return Math.max(numSteps, 0);
+    }
+
+    /**
+     * Get the number of coordinates of the walk: one more than its number of steps,
+     * or 0 for a walk with no coordinates.
+     * @return the number of coordinates.
+     */
+    public long size() {
+        return numSteps + 1;
+    }
+
+    /**
+     * Get the index of the current coordinate, -1 before the first call to next().
+     * @return the index of the current coordinate.
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the x coordinate of the current coordinate.
+     * @return the current x.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Get the y coordinate of the current coordinate.
+     * @return the current y.
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Move to the next coordinate of the walk, if there is one.
+     * @return true if and only if there was a next coordinate.
+     * @throws IOException if the file could not be read
+     * @throws RuntimeException if the file was truncated while being read.
+     */
+    public boolean next() throws IOException, RuntimeException {
+        if (index + 1 >= size()) {
+            return false;
+        }
+        if (index < 0) {
+            x = startX;
+            y = startY;
+        } else {
+            if (numCodes == 0) {
+                if (!buf.hasRemaining()) {
+                    _fillBuffer();
+                }
+                codes = buf.get() & 0xff;
+                numCodes = 4;
+            }
+            int code = codes & 3;
+            codes >>>= 2;
+            --numCodes;
+            x += WalkWriter.CODE_DX[code];
+            y += WalkWriter.CODE_DY[code];
+        }
+        ++index;
+        return true;
+    }
+
+    /**
+     * Push every remaining coordinate of the walk into a sink, in order.
+     * @param sink: the sink to receive the coordinates
+     * @throws IOException if the file could not be read or the sink could not write a coordinate
+     * @throws RuntimeException if the file was truncated while being read.
+     */
+    public void readTo(WalkSink sink) throws IOException, RuntimeException {
+        while (next()) {
+            sink.accept(x, y);
+        }
+    }
+
+    /**
+     * Close the file.
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Private helper method to refill the buffer with the next bytes of direction codes.
+     */
+    private void _fillBuffer() throws IOException, RuntimeException {
+        buf.clear();
+        if (channel.read(buf) <= 0) {
+            throw new RuntimeException("Malformed file for BinaryWalkReader. File is truncated.");
+        }
+        buf.flip();
+    }
+
+    /**
+     * Private helper method to read until a buffer is full.
+     */
+    private void _readFully(ByteBuffer dst) throws IOException, RuntimeException {
+        while (dst.hasRemaining()) {
+            if (channel.read(dst) < 0) {
+                throw new RuntimeException("Malformed file for BinaryWalkReader. File is truncated.");
+            }
+        }
+    }
+
+}
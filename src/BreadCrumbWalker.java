@@ -1,15 +1,8 @@
-
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.Collections;
 
 public class BreadCrumbWalker extends RandomWalker {
 
-    private MarkovChain mc;
-    private Coordinate curPos;
-    private ArrayList<Coordinate> path;
-
 
     public BreadCrumbWalker(MarkovChain chain) {
             super(chain);
@@ -17,61 +10,58 @@ public class BreadCrumbWalker extends RandomWalker {
 
 
         @Override
-        public ArrayList<Coordinate> walk(int Nsteps) {
+        public WalkPath walkCompact(int Nsteps) {
             // Perform the initial random walk
+            WalkPath path = super.walkCompact(Nsteps);
             if (Nsteps <= 0) {
-                ArrayList<Coordinate> path = new ArrayList<>();
-                path.add(new Coordinate(START_X, START_Y));
+                path.add(START_X, START_Y);
                 return path;
             }
 
-            ArrayList<Coordinate> path = super.walk(Nsteps);
-
-            // Copy the forward path except the last element (to avoid duplication)
-            ArrayList<Coordinate> reversePath = new ArrayList<>(path.subList(0, path.size() - 1));
-
-            // Reverse the path to walk back
-            Collections.reverse(reversePath);
-
-            // Combine the forward and reverse paths
-            path.addAll(reversePath);
+            // Walk back along the forward path, except its last point (to avoid duplication)
+            for (int i = path.size() - 2; i >= 0; --i) {
+                path.add(path.getX(i), path.getY(i));
+            }
 
             return path;
         }
 
+        /**
+         * Perform the walk of Nsteps out and back, as walk() does, pushing each coordinate into a sink.
+         * The way back retraces the way out, so unlike RandomWalker this walker must store
+         * the path of the walk, and uses memory proportional to Nsteps; the path is then
+         * available from getPath().
+         * @param Nsteps: the number of steps out
+         * @param sink: the sink to receive the coordinates of the walk
+         * @throws IOException if the sink could not write a coordinate
+         * @throws IllegalArgumentException if Nsteps is larger than Integer.MAX_VALUE.
+         */
+        @Override
+        public void walk(long Nsteps, WalkSink sink) throws IOException, IllegalArgumentException {
+            if (Nsteps > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("A BreadCrumbWalker cannot walk more than "
+                        + Integer.MAX_VALUE + " steps.");
+            }
+            WalkPath path = walkCompact((int) Math.max(Nsteps, 0));
+            for (int i = 0; i < path.size(); ++i) {
+                sink.accept(path.getX(i), path.getY(i));
+            }
+        }
+
         public void saveWalkToFile(String fname) throws IOException {
-            PrintWriter writer = new PrintWriter(fname);
+            long start = Metrics.startTimer();
+            WalkPath path = getPath();
 
-            if (this.path == null || this.path.isEmpty()) {
+            if (path.size() == 0) {
                 // Handle the empty path scenario
-                // For example, write a message to the file or just return
-                 writer = new PrintWriter(fname);
+                PrintWriter writer = new PrintWriter(fname);
                 writer.println("No path available or path is empty.");
                 writer.close();
+                Metrics.recordPhase(Metrics.Phase.SAVE, start);
                 return;
             }
-            if (fname.endsWith(".txt")) {
-                for (Coordinate coord : path) {
-                    writer.println(String.format("(%d, %d)", coord.x, coord.y));
-                }
-            } else if (fname.endsWith(".dat")) {
-                StringBuilder sb = new StringBuilder();
-                for (Coordinate coord : path) {
-                    if (sb.length() > 0) sb.append(" ");
-                    sb.append(coord.x).append(" ").append(coord.y);
-                }
-                writer.println(sb.toString());
-            }
-            writer.close();
-
-//            for (Coordinate coord : path) {
-//                writer.println(String.format("(%d, %d)", coord.x, coord.y));
-//            }
-//
-//            writer.close();
+            WalkWriter.write(fname, path);
+            Metrics.recordPhase(Metrics.Phase.SAVE, start);
         }
 
-
-        // The saveWalkToFile method would be the same as in RandomWalker
     }
-
@@ -70,6 +70,28 @@ public class Coordinate {
         return new Coordinate(this.x*scale, this.y*scale);
     }
 
+    /**
+     * Two Coordinates are equal if both of their components are equal.
+     * @param other: the object to compare to this Coordinate
+     * @return true iff other is a Coordinate with the same x and y as this Coordinate.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Coordinate)) {
+            return false;
+        }
+        Coordinate c = (Coordinate) other;
+        return x == c.x && y == c.y;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * x + y;
+    }
+
     @Override
     public String toString() {
         return "(" + Integer.toString(x) + ", " + Integer.toString(y) + ")";
@@ -1,17 +1,61 @@
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.util.ArrayList;
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.lang.Math;
 
 /**
- * The FloatMatrix class represents a matrix of floating point numbers.
+ * The FloatMatrix class represents a dense matrix of floating point numbers.
+ *
+ * The matrix product and row sums use the SIMD kernels of FloatMatrixSimd
+ * when the JVM is started with --add-modules jdk.incubator.vector, unless the
+ * system property floatmatrix.simd is false. Otherwise they use scalar loops.
+ * FloatMatrixSimd is compiled separately, from simd/, and only found at run time,
+ * so this class compiles without the Vector API module.
  */
-public class FloatMatrix {
+public class FloatMatrix implements Matrix {
 
     /* A small number for floating point comparison.*/
     public static final double EPSILON = 0.00001;
     public static final int DEFAULT_SIZE = 10;
+    /* Edge length of the square tiles used by the multiply kernel. */
+    private static final int BLOCK_SIZE = 64;
+    /* Products with fewer multiply-adds than this are not worth splitting across threads. */
+    private static final long PARALLEL_THRESHOLD = 1L << 21;
+    /* The first bytes of a binary matrix file: "FMAT" in ASCII. */
+    private static final byte[] BINARY_MAGIC = {'F', 'M', 'A', 'T'};
+    /* The magic number, followed by the number of rows and columns as int32. */
+    private static final int BINARY_HEADER_SIZE = 12;
+    /* The largest region of a binary matrix file mapped at once. */
+    private static final int MAX_MAPPING = 1 << 30;
+    /* The FloatMatrixSimd kernels, or null if they are not used; see isSimdEnabled(). */
+    private static final MethodHandle SIMD_MULTIPLY;
+    private static final MethodHandle SIMD_SUM;
+    private static final MethodHandle SIMD_FILL;
+    private static final boolean SIMD_ENABLED;
+    static {
+        MethodHandle[] kernels = _findSimd();
+        SIMD_ENABLED = kernels != null;
+        SIMD_MULTIPLY = SIMD_ENABLED ? kernels[0] : null;
+        SIMD_SUM = SIMD_ENABLED ? kernels[1] : null;
+        SIMD_FILL = SIMD_ENABLED ? kernels[2] : null;
+    }
     private int nCols;
     private int nRows;
     private float[] entries;
@@ -91,6 +135,139 @@ public class FloatMatrix {
         }
     }
 
+    /**
+     * Create a FloatMatrix which takes ownership of an existing array of entries,
+     * stored in row-major order. The array must have exactly rows*cols entries.
+     * @param rows: the number of rows.
+     * @param cols: the number of columns.
+     * @param entries: the row-major entries of the matrix.
+     */
+    private FloatMatrix(int rows, int cols, float[] entries) {
+        this.nRows = rows;
+        this.nCols = cols;
+        this.entries = entries;
+    }
+
+    /**
+     * Create a size by size identity matrix.
+     * @param size: the number of rows in the square matrix to create.
+     * @return the identity matrix.
+     */
+    public static FloatMatrix identity(int size) {
+        FloatMatrix I = new FloatMatrix(size);
+        for (int i = 0; i < size; ++i) {
+            I.entries[i * size + i] = 1.0f;
+        }
+        return I;
+    }
+
+    /**
+     * Determine if this JVM uses the SIMD kernels of FloatMatrixSimd.
+     * They need the module jdk.incubator.vector and the compiled simd/ classes on the class path,
+     * and can be disabled by
+     * setting the system property floatmatrix.simd to false.
+     * Products are identical either way; row sums may differ in the last bits.
+     * @return true if and only if the SIMD kernels are used.
+     */
+    public static boolean isSimdEnabled() {
+        return SIMD_ENABLED;
+    }
+
+    /**
+     * A private helper finding the SIMD kernels, if they can be used.
+     * FloatMatrixSimd is only looked up once the Vector API module is known to be present,
+     * and if it is missing from the class path, or fails to link or run, the scalar kernels are used.
+     * @return the handles of FloatMatrixSimd's multiplyBlocked, sum and fill, or null if they should not be used.
+     */
+    private static MethodHandle[] _findSimd() {
+        if (!Boolean.parseBoolean(System.getProperty("floatmatrix.simd", "true"))) {
+            return null;
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class<?> simd = Class.forName("FloatMatrixSimd", true, FloatMatrix.class.getClassLoader());
+            MethodHandle multiply = lookup.findStatic(simd, "multiplyBlocked", MethodType.methodType(void.class,
+                    float[].class, float[].class, float[].class, int.class, int.class,
+                    int.class, int.class, int.class, int.class, int.class));
+            MethodHandle sum = lookup.findStatic(simd, "sum",
+                    MethodType.methodType(double.class, float[].class, int.class, int.class));
+            MethodHandle fill = lookup.findStatic(simd, "fill",
+                    MethodType.methodType(void.class, float[].class, int.class, int.class, float.class));
+            float[] probe = new float[3];
+            fill.invokeExact(probe, 0, probe.length, 1.0f);
+            double probeSum = (double) sum.invokeExact(probe, 0, probe.length);
+            return probeSum == 3.0 ? new MethodHandle[]{multiply, sum, fill} : null;
+        } catch (Throwable t) {
+            //Not found, not linkable or not working: fall back to the scalar kernels.
+            return null;
+        }
+    }
+
+    /**
+     * Compute a block of a * b into c with the SIMD product kernel; see _multiplyBlocked.
+     * Package-private so that it can be tested and benchmarked against the scalar kernel.
+     * @throws IllegalStateException if the SIMD kernels are not enabled.
+     */
+    static void _multiplyBlockedSimd(float[] a, float[] b, float[] c, int N, int P,
+                                     int rowStart, int rowEnd, int colStart, int colEnd) {
+        if (!SIMD_ENABLED) {
+            throw new IllegalStateException("The SIMD kernels are not enabled.");
+        }
+        try {
+            SIMD_MULTIPLY.invokeExact(a, b, c, N, P, rowStart, rowEnd, colStart, colEnd, BLOCK_SIZE);
+        } catch (Throwable t) {
+            throw _rethrow(t);
+        }
+    }
+
+    /**
+     * Sum the entries from..to-1 of an array in double precision with the SIMD kernel.
+     * Package-private so that it can be tested and benchmarked.
+     * @throws IllegalStateException if the SIMD kernels are not enabled.
+     */
+    static double _sumSimd(float[] a, int from, int to) {
+        if (!SIMD_ENABLED) {
+            throw new IllegalStateException("The SIMD kernels are not enabled.");
+        }
+        try {
+            return (double) SIMD_SUM.invokeExact(a, from, to);
+        } catch (Throwable t) {
+            throw _rethrow(t);
+        }
+    }
+
+    /**
+     * Set the entries from..to-1 of an array to val with the SIMD kernel.
+     * Package-private so that it can be tested and benchmarked.
+     * @throws IllegalStateException if the SIMD kernels are not enabled.
+     */
+    static void _fillSimd(float[] a, int from, int to, float val) {
+        if (!SIMD_ENABLED) {
+            throw new IllegalStateException("The SIMD kernels are not enabled.");
+        }
+        try {
+            SIMD_FILL.invokeExact(a, from, to, val);
+        } catch (Throwable t) {
+            throw _rethrow(t);
+        }
+    }
+
+    /**
+     * Private helper method rethrowing what a SIMD kernel threw, which can only be unchecked.
+     */
+    private static RuntimeException _rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+
     /**
      * A simple private method to initialize the entries instance variable.
      * @param rows: number of rows.
@@ -122,13 +299,8 @@ public class FloatMatrix {
      * Set this matrix to have 0 in all entries.
      */
     public void zero() {
-        int M = this.rows();
-        int N = this.columns();
-        for (int i = 0; i < M; ++i) {
-            for (int j = 0; j < N; ++j) {
-                this.set(i, j, 0.0f);
-            }
-        }
+        //Arrays.fill is already vectorized by the JIT; FloatMatrixSimd.fill is no faster.
+        Arrays.fill(this.entries, 0.0f);
     }
 
     /**
@@ -167,6 +339,57 @@ public class FloatMatrix {
         this.entries[i * this.columns() + j] = val;
     }
 
+    @Override
+    public int getRow(int i, int[] cols, float[] vals) throws IndexOutOfBoundsException {
+        _validateIndices(i, 0);
+        int N = this.columns();
+        int row = i * N;
+        int count = 0;
+        for (int j = 0; j < N; ++j) {
+            float val = this.entries[row + j];
+            if (val != 0.0f) {
+                cols[count] = j;
+                vals[count] = val;
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public double rowSum(int i) throws IndexOutOfBoundsException {
+        _validateIndices(i, 0);
+        int N = this.columns();
+        int row = i * N;
+        if (SIMD_ENABLED) {
+            return _sumSimd(this.entries, row, row + N);
+        }
+        double sum = 0.0;
+        for (int j = 0; j < N; ++j) {
+            sum += this.entries[row + j];
+        }
+        return sum;
+    }
+
+    @Override
+    public void leftMultiply(double[] vec, double[] result) throws ArithmeticException {
+        if (vec == null || result == null || vec.length != this.rows() || result.length != this.columns()) {
+            throw new ArithmeticException("Invalid vector dimensions for product.");
+        }
+        int N = this.columns();
+        Arrays.fill(result, 0.0);
+        for (int i = 0; i < this.rows(); ++i) {
+            double v = vec[i];
+            if (v == 0.0) {
+                continue;
+            }
+            int row = i * N;
+            for (int j = 0; j < N; ++j) {
+                result[j] += v * this.entries[row + j];
+            }
+        }
+    }
+
     /**
      * Right-multiply this FloatMatrix by the FloatMatrix other.
      * That is, this * other.
@@ -186,20 +409,237 @@ public class FloatMatrix {
         int prodCols = other.columns();
         FloatMatrix product = new FloatMatrix(prodRows, prodCols);
 
-        int i, j;  //indices in product matrix
-        int k;     //index for dot product
-        int N = this.columns(); // dot product length
+        _multiplyBlocked(this.entries, other.entries, product.entries,
+                this.columns(), prodCols, 0, prodRows, 0, prodCols);
+        return product;
+    }
+
+    /**
+     * Right-multiply this FloatMatrix by the FloatMatrix other, using the threads
+     * of the common ForkJoinPool.
+     * @param other: the right-hand matrix (i.e. the multiplicand)
+     * @return the product of this FloatMatrix by other.
+     * @throws ArithmeticException if the matrix product is undefined.
+     * @see #multiplyParallel(FloatMatrix, ForkJoinPool)
+     */
+    public FloatMatrix multiplyParallel(FloatMatrix other) throws ArithmeticException {
+        return multiplyParallel(other, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Right-multiply this FloatMatrix by the FloatMatrix other, using at most
+     * parallelism threads.
+     * If parallelism is that of the common ForkJoinPool, its threads are used;
+     * otherwise a ForkJoinPool is created for this product and shut down once it is computed.
+     * To reuse a pool across many products, pass it to multiplyParallel(other, pool) instead.
+     * @param other: the right-hand matrix (i.e. the multiplicand)
+     * @param parallelism: the number of threads to compute the product with.
+     * @return the product of this FloatMatrix by other.
+     * @throws ArithmeticException if the matrix product is undefined.
+     * @throws IllegalArgumentException if parallelism is not positive.
+     * @see #multiplyParallel(FloatMatrix, ForkJoinPool)
+     */
+    public FloatMatrix multiplyParallel(FloatMatrix other, int parallelism) throws ArithmeticException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("The parallelism must be positive.");
+        }
+        if (parallelism == ForkJoinPool.getCommonPoolParallelism()) {
+            return multiplyParallel(other, ForkJoinPool.commonPool());
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return multiplyParallel(other, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Right-multiply this FloatMatrix by the FloatMatrix other, splitting the
+     * product into row and column blocks which are computed on the given pool.
+     * Every entry of the product is computed by a single task with the same
+     * summation order as multiply(), so the result is identical to multiply()
+     * regardless of the number of threads.
+     * Small products are computed on the calling thread.
+     * @param other: the right-hand matrix (i.e. the multiplicand)
+     * @param pool: the pool to run the blocks of the product on.
+     * @return the product of this FloatMatrix by other.
+     * @throws ArithmeticException if the matrix product is undefined.
+     */
+    public FloatMatrix multiplyParallel(FloatMatrix other, ForkJoinPool pool) throws ArithmeticException {
+        if (other == null || this.columns() != other.rows()) {
+            throw new ArithmeticException("Invalid Matrix dimensions for product.");
+        }
+
+        int prodRows = this.rows();
+        int prodCols = other.columns();
+        FloatMatrix product = new FloatMatrix(prodRows, prodCols);
 
-        for (i = 0; i < prodRows; ++i) {
-            for (j = 0; j < prodCols; ++j) {
-                float entry = product.get(i, j);
-                for (k = 0; k < N; ++k) {
-                    entry += this.get(i,k) * other.get(k, j);
+        MultiplyTask task = new MultiplyTask(this.entries, other.entries, product.entries,
+                this.columns(), prodCols, 0, prodRows, 0, prodCols);
+        if ((long) prodRows * prodCols * this.columns() < PARALLEL_THRESHOLD) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        return product;
+    }
+
+    /**
+     * A private helper method implementing the matrix product kernel directly
+     * on row-major backing arrays, computing rows [rowStart, rowEnd) and
+     * columns [colStart, colEnd) of a * b into c.
+     * The loops are ordered i-k-j and tiled by BLOCK_SIZE so that rows of b and c
+     * are streamed contiguously and stay in cache while they are reused.
+     * For every entry of c, the products a(i,k)*b(k,j) are still accumulated
+     * in increasing order of k, so the result is identical to the naive i-j-k loop.
+     * The entries of c in the computed block must be 0 on entry.
+     * @param a: the entries of the left-hand matrix
+     * @param b: the entries of the right-hand matrix
+     * @param c: the entries of the product matrix
+     * @param N: the number of columns of a (and rows of b)
+     * @param P: the number of columns of b (and of c)
+     * @param rowStart: the first row of c to compute
+     * @param rowEnd: one past the last row of c to compute
+     * @param colStart: the first column of c to compute
+     * @param colEnd: one past the last column of c to compute
+     */
+    private static void _multiplyBlocked(float[] a, float[] b, float[] c, int N, int P,
+                                         int rowStart, int rowEnd, int colStart, int colEnd) {
+        if (SIMD_ENABLED) {
+            _multiplyBlockedSimd(a, b, c, N, P, rowStart, rowEnd, colStart, colEnd);
+        } else {
+            _multiplyBlockedScalar(a, b, c, N, P, rowStart, rowEnd, colStart, colEnd);
+        }
+    }
+
+    /**
+     * The scalar kernel of _multiplyBlocked, used when SIMD is not enabled.
+     * It is package-private so that it can be benchmarked against _multiplyBlockedSimd.
+     */
+    static void _multiplyBlockedScalar(float[] a, float[] b, float[] c, int N, int P,
+                                       int rowStart, int rowEnd, int colStart, int colEnd) {
+        for (int ii = rowStart; ii < rowEnd; ii += BLOCK_SIZE) {
+            int iMax = Math.min(ii + BLOCK_SIZE, rowEnd);
+            for (int kk = 0; kk < N; kk += BLOCK_SIZE) {
+                int kMax = Math.min(kk + BLOCK_SIZE, N);
+                for (int jj = colStart; jj < colEnd; jj += BLOCK_SIZE) {
+                    int jMax = Math.min(jj + BLOCK_SIZE, colEnd);
+                    for (int i = ii; i < iMax; ++i) {
+                        int aRow = i * N;
+                        int cRow = i * P;
+                        for (int k = kk; k < kMax; ++k) {
+                            float aik = a[aRow + k];
+                            int bRow = k * P;
+                            for (int j = jj; j < jMax; ++j) {
+                                c[cRow + j] += aik * b[bRow + j];
+                            }
+                        }
+                    }
                 }
-                product.set(i, j, entry);
             }
         }
-        return product;
+    }
+
+    /**
+     * Raise this square FloatMatrix to the power n, that is, multiply it by itself n times.
+     * The power is computed by repeated squaring, so only O(log n) matrix products
+     * are performed, and all products are computed into the same three buffers.
+     * A power of 0 is the identity matrix.
+     *
+     * Since products are not associated in the same order as repeated calls to
+     * multiply(), the result may differ from them by floating point rounding.
+     * @param n: the power to raise this matrix to.
+     * @return this matrix to the power n.
+     * @throws ArithmeticException if this matrix is not square.
+     * @throws IllegalArgumentException if n is negative.
+     */
+    public FloatMatrix pow(long n) throws ArithmeticException, IllegalArgumentException {
+        if (this.rows() != this.columns()) {
+            throw new ArithmeticException("Matrix power is only defined for square matrices.");
+        }
+        if (n < 0) {
+            throw new IllegalArgumentException("Matrix power must not be negative: " + n);
+        }
+
+        int N = this.rows();
+        if (n == 0) {
+            return identity(N);
+        }
+
+        float[] base = Arrays.copyOf(this.entries, this.entries.length);
+        float[] result = null; //null stands for the identity until the first factor is taken
+        float[] scratch = new float[this.entries.length];
+
+        while (true) {
+            if ((n & 1) != 0) {
+                if (result == null) {
+                    result = Arrays.copyOf(base, base.length);
+                } else {
+                    Arrays.fill(scratch, 0.0f);
+                    _multiplyBlocked(result, base, scratch, N, N, 0, N, 0, N);
+                    float[] tmp = result;
+                    result = scratch;
+                    scratch = tmp;
+                }
+            }
+            n >>= 1;
+            if (n == 0) {
+                break;
+            }
+            Arrays.fill(scratch, 0.0f);
+            _multiplyBlocked(base, base, scratch, N, N, 0, N, 0, N);
+            float[] tmp = base;
+            base = scratch;
+            scratch = tmp;
+        }
+
+        return new FloatMatrix(N, N, result);
+    }
+
+    /**
+     * A fork/join task computing one block of a matrix product with _multiplyBlocked.
+     * Blocks larger than a few tiles are split in half along their longer side.
+     */
+    private static class MultiplyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        /* Blocks with no side longer than this are computed directly. */
+        private static final int MAX_BLOCK = 4 * BLOCK_SIZE;
+
+        private final float[] a, b, c;
+        private final int N, P;
+        private final int rowStart, rowEnd, colStart, colEnd;
+
+        MultiplyTask(float[] a, float[] b, float[] c, int N, int P,
+                     int rowStart, int rowEnd, int colStart, int colEnd) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.N = N;
+            this.P = P;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.colStart = colStart;
+            this.colEnd = colEnd;
+        }
+
+        @Override
+        protected void compute() {
+            int nRows = rowEnd - rowStart;
+            int nCols = colEnd - colStart;
+            if (nRows <= MAX_BLOCK && nCols <= MAX_BLOCK) {
+                _multiplyBlocked(a, b, c, N, P, rowStart, rowEnd, colStart, colEnd);
+            } else if (nRows >= nCols) {
+                //split on a tile boundary so each half is tiled exactly as in multiply()
+                int mid = rowStart + (nRows / 2 / BLOCK_SIZE) * BLOCK_SIZE;
+                invokeAll(new MultiplyTask(a, b, c, N, P, rowStart, mid, colStart, colEnd),
+                          new MultiplyTask(a, b, c, N, P, mid, rowEnd, colStart, colEnd));
+            } else {
+                int mid = colStart + (nCols / 2 / BLOCK_SIZE) * BLOCK_SIZE;
+                invokeAll(new MultiplyTask(a, b, c, N, P, rowStart, rowEnd, colStart, mid),
+                          new MultiplyTask(a, b, c, N, P, rowStart, rowEnd, mid, colEnd));
+            }
+        }
     }
 
     /**
@@ -275,38 +715,292 @@ public class FloatMatrix {
      * Each line of the file is one row of values for the matrix.
      * Each line of the file must list the same number of floats.
      * The file should contain nothing else.
+     * The file is parsed in a single streaming pass with no per-value allocation.
+     *
+     * Files written by toBinaryFile are recognized by their magic number
+     * and read with fromBinaryFile instead.
      * @param fname: the file name (path) of the file to open.
      * @return the constructed matrix.
      * @throws FileNotFoundException if the file at path fname cannot be opened
      * @throws RuntimeException if the file cannot be parsed correctly
      */
     public static FloatMatrix fromFile(String fname) throws FileNotFoundException, RuntimeException {
-        Scanner rd = new Scanner(new FileReader(fname));
+        long start = Metrics.startTimer();
+        try (InputStream in = new FileInputStream(fname)) {
+            byte[] head = in.readNBytes(BINARY_MAGIC.length);
+            if (Arrays.equals(head, BINARY_MAGIC)) {
+                return fromBinaryFile(fname);
+            }
+            InputStream text = new SequenceInputStream(new ByteArrayInputStream(head), in);
+            return new TextParser(text).parse();
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            Metrics.recordPhase(Metrics.Phase.MATRIX_LOAD, start);
+        }
+    }
+
+    /**
+     * Write this matrix to a file in the binary matrix format.
+     * The file holds the 4 byte magic number "FMAT", then the number of rows and
+     * the number of columns as little-endian 32 bit integers, then every entry in
+     * row-major order as a little-endian 32 bit float.
+     * @param fname: the file name (path) of the file to write.
+     * @throws IOException if the file cannot be created or written.
+     */
+    public void toBinaryFile(String fname) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(fname), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buf.put(BINARY_MAGIC).putInt(this.rows()).putInt(this.columns());
+
+            int pos = 0;
+            while (pos < this.entries.length) {
+                FloatBuffer fbuf = buf.asFloatBuffer();
+                int count = Math.min(fbuf.remaining(), this.entries.length - pos);
+                fbuf.put(this.entries, pos, count);
+                buf.position(buf.position() + 4 * count);
+                pos += count;
+                _writeFully(ch, buf);
+            }
+            _writeFully(ch, buf);
+        }
+    }
+
+    private static void _writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * Read a file written by toBinaryFile to construct a FloatMatrix.
+     * The file is memory-mapped, so its entries are copied directly from the
+     * page cache into the new matrix without any parsing.
+     * @param fname: the file name (path) of the file to open.
+     * @return the constructed matrix.
+     * @throws IOException if the file cannot be opened or read.
+     * @throws RuntimeException if the file is not a binary matrix file, or is truncated.
+     */
+    public static FloatMatrix fromBinaryFile(String fname) throws IOException, RuntimeException {
+        try (FileChannel ch = FileChannel.open(Paths.get(fname), StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < BINARY_HEADER_SIZE) {
+                throw new RuntimeException("Malformed file for FloatMatrix.fromBinaryFile. File is too short.");
+            }
+            ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, BINARY_HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            byte[] magic = new byte[BINARY_MAGIC.length];
+            header.get(magic);
+            int rows = header.getInt();
+            int cols = header.getInt();
+            if (!Arrays.equals(magic, BINARY_MAGIC) || rows < 0 || cols < 0) {
+                throw new RuntimeException("Malformed file for FloatMatrix.fromBinaryFile. Not a binary matrix file.");
+            }
+            long count = (long) rows * cols;
+            if (count > Integer.MAX_VALUE - 8 || size != BINARY_HEADER_SIZE + 4 * count) {
+                throw new RuntimeException("Malformed file for FloatMatrix.fromBinaryFile. "
+                        + "File size does not match " + rows + "x" + cols + " entries.");
+            }
+
+            float[] vals = new float[(int) count];
+            int pos = 0;
+            long offset = BINARY_HEADER_SIZE;
+            while (pos < vals.length) {
+                int n = Math.min(vals.length - pos, MAX_MAPPING / 4);
+                ch.map(FileChannel.MapMode.READ_ONLY, offset, 4L * n)
+                        .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vals, pos, n);
+                pos += n;
+                offset += 4L * n;
+            }
+            return new FloatMatrix(rows, cols, vals);
+        }
+    }
+
+    /**
+     * A streaming parser for the text format read by fromFile.
+     * Bytes are read through a fixed size buffer, and each value is parsed
+     * straight into a growable float array, so no String or Float is created per value.
+     *
+     * Lines and values are interpreted as Scanner.nextLine() and String.split(",")
+     * would: empty values at the end of a line are ignored, a row of the wrong length
+     * is reported before any value of that row which cannot be parsed,
+     * and every value parses to exactly the float Float.valueOf() would produce.
+     */
+    private static class TextParser {
+        private static final String MALFORMED =
+                "Malformed file for FloatMatrix.fromFile. Are all rows the same length?";
+        private static final int BUFFER_SIZE = 1 << 16;
+        /* Values with at most this many decimal places may take the fast path of _parseToken. */
+        private static final float[] POW10 = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+        private final InputStream in;
+        private final byte[] buf = new byte[BUFFER_SIZE];
+        private byte[] tok = new byte[64];  //raw bytes of the current value
+        private int tokLen = 0;
+        private float[] vals = new float[1024];
+        private int nVals = 0;
+        private int nCols = 0;
+        private int rowCount = 0;           //number of values in the current line
+        private int pendingEmpty = 0;       //empty values which may turn out to end the line
+        private boolean lineHasBytes = false;
+        private RuntimeException rowError = null;
+
+        TextParser(InputStream in) {
+            this.in = in;
+        }
+
+        FloatMatrix parse() throws IOException {
+            boolean afterCR = false;
+            int n;
+            while ((n = in.read(buf)) >= 0) {
+                for (int p = 0; p < n; ++p) {
+                    byte b = buf[p];
+                    if (b == '\n') {
+                        if (!afterCR) {
+                            _endLine();
+                        }
+                    } else if (b == '\r') {
+                        _endLine();
+                    } else if (b == ',') {
+                        _endToken();
+                        lineHasBytes = true;
+                    } else {
+                        if (tokLen == tok.length) {
+                            tok = Arrays.copyOf(tok, 2 * tok.length);
+                        }
+                        tok[tokLen++] = b;
+                        lineHasBytes = true;
+                    }
+                    afterCR = (b == '\r');
+                }
+            }
+            if (lineHasBytes) {
+                _endLine();
+            }
+
+            if (nVals == 0) {
+                return new FloatMatrix(new float[0], nCols);
+            }
+            return new FloatMatrix(nVals / nCols, nCols, Arrays.copyOf(vals, nVals));
+        }
+
+        private void _endToken() {
+            if (tokLen == 0) {
+                pendingEmpty++;
+                return;
+            }
+            //empty values followed by a non-empty one do not end the line, so must be parsed
+            for (; pendingEmpty > 0; --pendingEmpty) {
+                _recordError(new NumberFormatException("empty String"));
+                _addValue(0.0f);
+            }
+            _addValue(_parseToken());
+            tokLen = 0;
+        }
+
+        private void _endLine() {
+            if (!lineHasBytes) {
+                //an empty line splits into a single empty value
+                _recordError(new NumberFormatException("empty String"));
+                _addValue(0.0f);
+            } else {
+                _endToken();
+            }
+            pendingEmpty = 0;
 
-        ArrayList<Float> matVals = new ArrayList<Float>();
-        int nCols = 0;
-        while (rd.hasNextLine()) {
-            String line = rd.nextLine();
-            String[] vals = line.split(",");
             if (nCols == 0) {
-                nCols = vals.length;
-            } else if (nCols != vals.length) {
-                throw new RuntimeException("Malformed file for FloatMatrix.fromFile. Are all rows the same length?");
+                nCols = rowCount;
+            } else if (nCols != rowCount) {
+                throw new RuntimeException(MALFORMED);
+            }
+            if (rowError != null) {
+                throw rowError;
             }
+            rowCount = 0;
+            lineHasBytes = false;
+        }
 
-            for (int i = 0; i < vals.length; ++i) {
-                matVals.add(Float.valueOf(vals[i].strip()));
+        private void _addValue(float val) {
+            if (nVals == vals.length) {
+                vals = Arrays.copyOf(vals, 2 * vals.length);
             }
+            vals[nVals++] = val;
+            rowCount++;
         }
 
-        float[] floatVals = new float[matVals.size()];
-        for (int i = 0; i < matVals.size(); ++i) {
-            floatVals[i] = matVals.get(i);
+        private void _recordError(RuntimeException e) {
+            if (rowError == null) {
+                rowError = e;
+            }
         }
 
-        return new FloatMatrix(floatVals, nCols);
-    }
+        /**
+         * Parse the current value. Plain decimals with fewer than 2^24 as their digits
+         * and at most 10 decimal places are converted exactly by a single float division.
+         * Anything else is handed to Float.parseFloat.
+         * If the value cannot be parsed, the error is recorded and 0 is returned.
+         */
+        private float _parseToken() {
+            int start = 0;
+            int end = tokLen;
+            while (start < end && _isWhitespace(tok[start])) {
+                ++start;
+            }
+            while (end > start && _isWhitespace(tok[end - 1])) {
+                --end;
+            }
 
-}
+            int p = start;
+            boolean neg = false;
+            if (p < end && (tok[p] == '-' || tok[p] == '+')) {
+                neg = tok[p] == '-';
+                ++p;
+            }
+            int mantissa = 0;
+            int digits = 0;
+            int scale = 0;
+            boolean dot = false;
+            boolean fast = true;
+            for (; p < end; ++p) {
+                byte c = tok[p];
+                if (c >= '0' && c <= '9') {
+                    mantissa = mantissa * 10 + (c - '0');
+                    ++digits;
+                    if (dot) {
+                        ++scale;
+                    }
+                    if (mantissa >= (1 << 24) || scale >= POW10.length) {
+                        fast = false;
+                        break;
+                    }
+                } else if (c == '.' && !dot) {
+                    dot = true;
+                } else {
+                    fast = false;
+                    break;
+                }
+            }
+            if (fast && digits > 0) {
+                float val = (float) mantissa / POW10[scale];
+                return neg ? -val : val;
+            }
 
+            try {
+                return Float.parseFloat(new String(tok, 0, tokLen, StandardCharsets.UTF_8).strip());
+            } catch (NumberFormatException e) {
+                _recordError(e);
+                return 0.0f;
+            }
+        }
+
+        private static boolean _isWhitespace(byte c) {
+            return c == ' ' || (c >= 0x09 && c <= 0x0D) || (c >= 0x1C && c <= 0x1F);
+        }
+    }
 
+}
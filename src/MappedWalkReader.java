@@ -0,0 +1,511 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The MappedWalkReader class gives random access to the coordinates of a walk saved to a file,
+ * without reading the file into the heap. The file is memory-mapped in segments of at most 1 GiB,
+ * so walks far larger than the heap can be replayed, sub-sampled or rendered.
+ *
+ * Binary .walk files, written by WalkWriter, are recognized by their magic number.
+ * Any other file is read as text, as written to .dat or .txt files: a sequence of integers
+ * separated by any other characters, taken in pairs (x, y).
+ *
+ * Opening a file scans it once to build a checkpoint index, which holds the coordinate
+ * (for .walk files) or the file offset (for text files) of every checkpointInterval'th coordinate,
+ * in 8 bytes of heap per checkpointInterval coordinates.
+ * Accessing coordinate i of a .walk file decodes at most checkpointInterval steps from the checkpoint
+ * before it, four to a byte: about 0.4 us at the default interval, whatever i or the size of the walk.
+ *
+ * Text has to be scanned character by character, about 40 ns per coordinate, so for text files
+ * the index has a second level: the offset of every TEXT_SUB_INTERVAL'th coordinate from its checkpoint,
+ * in 2 bytes. Accessing coordinate i of a text file then skips at most TEXT_SUB_INTERVAL - 1 coordinates,
+ * about 1 us, where skipping from the checkpoint alone would take about 20 us at the default interval.
+ * The index of a text file takes about 0.13 bytes of heap per coordinate, 130 MB for a walk of
+ * a billion coordinates, which is small beside the 10 GB or more of the file itself.
+ * Within a checkpoint, coordinates more than 65535 bytes past it, which only a file padded with other
+ * characters has, are reached from the checkpoint instead, at the cost of skipping from there.
+ * A MappedWalkReader keeps the position of its text parser, so it must not be used
+ * by several threads at once. Once closed, it throws IllegalStateException on any access to the walk.
+ */
+public class MappedWalkReader implements Closeable {
+
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1024;
+    public static final int DEFAULT_TEXT_CHECKPOINT_INTERVAL = 1024;
+    /* The number of coordinates between the entries of the second level of a text file's index. */
+    public static final int TEXT_SUB_INTERVAL = 16;
+
+    /* The largest region of a file mapped at once. */
+    private static final int MAX_MAPPING = 1 << 30;
+    private static final String MALFORMED = "Malformed file for MappedWalkReader. ";
+    /* The largest offset from its checkpoint the second level of a text file's index can hold. */
+    private static final int MAX_SUB_OFFSET = Character.MAX_VALUE - 1;
+    /* Marks an entry of the second level of the index whose offset is too large for it. */
+    private static final char NO_SUB_OFFSET = Character.MAX_VALUE;
+    /* The total step in x and y of the four direction codes of each byte of a .walk file. */
+    private static final int[] BYTE_DX = new int[256];
+    private static final int[] BYTE_DY = new int[256];
+
+    static {
+        for (int b = 0; b < 256; ++b) {
+            for (int k = 0; k < 4; ++k) {
+                int code = (b >>> (2 * k)) & 3;
+                BYTE_DX[b] += WalkWriter.CODE_DX[code];
+                BYTE_DY[b] += WalkWriter.CODE_DY[code];
+            }
+        }
+    }
+
+    private final MappedByteBuffer[] segments;
+    private final long fileSize;
+    private final boolean binary;
+    private final int checkpointInterval;
+    private long size;
+    /* For a .walk file, the packed coordinate at each checkpoint; for a text file, the offset of its x. */
+    private long[] checkpoints;
+    /* For a text file with checkpoints further apart than TEXT_SUB_INTERVAL, the offset of every
+     * TEXT_SUB_INTERVAL'th coordinate from its checkpoint, or NO_SUB_OFFSET; otherwise null. */
+    private char[] subOffsets;
+
+    //The state of the text parser: the file offset of the next byte.
+    private long textPos;
+    //The segment last read, and the file offsets it starts and ends at.
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private long segmentEnd;
+    private boolean closed;
+
+    /**
+     * Open a saved walk for random access, with the default checkpoint interval:
+     * DEFAULT_CHECKPOINT_INTERVAL for .walk files and DEFAULT_TEXT_CHECKPOINT_INTERVAL for text files.
+     * @param fname: the name of the .walk, .dat or .txt file to read
+     * @throws IOException if the file could not be opened, mapped or read
+     * @throws RuntimeException if the file is malformed.
+     */
+    public MappedWalkReader(String fname) throws IOException, RuntimeException {
+        this(fname, 0);
+    }
+
+    /**
+     * Open a saved walk for random access.
+     * A smaller checkpoint interval makes access faster and the index larger.
+     * @param fname: the name of the .walk, .dat or .txt file to read
+     * @param checkpointInterval: the number of coordinates between checkpoints, a positive multiple of 4,
+     *                            or 0 for the default of the file's format
+     * @throws IOException if the file could not be opened, mapped or read
+     * @throws RuntimeException if the file is malformed.
+     * @throws IllegalArgumentException if checkpointInterval is not 0 or a positive multiple of 4.
+     */
+    public MappedWalkReader(String fname, int checkpointInterval)
+            throws IOException, RuntimeException, IllegalArgumentException {
+        if (checkpointInterval < 0 || checkpointInterval % 4 != 0) {
+            throw new IllegalArgumentException("The checkpoint interval must be 0 or a positive multiple of 4.");
+        }
+        try (FileChannel ch = FileChannel.open(Paths.get(fname), StandardOpenOption.READ)) {
+            fileSize = ch.size();
+            int numSegments = (int) ((fileSize + MAX_MAPPING - 1) / MAX_MAPPING);
+            segments = new MappedByteBuffer[numSegments];
+            for (int s = 0; s < numSegments; ++s) {
+                long offset = (long) s * MAX_MAPPING;
+                segments[s] = ch.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(MAX_MAPPING, fileSize - offset));
+            }
+        }
+
+        binary = _hasMagic();
+        if (checkpointInterval == 0) {
+            checkpointInterval = binary ? DEFAULT_CHECKPOINT_INTERVAL : DEFAULT_TEXT_CHECKPOINT_INTERVAL;
+        }
+        this.checkpointInterval = checkpointInterval;
+        if (binary) {
+            _indexBinary();
+        } else {
+            _indexText();
+        }
+    }
+
+    /**
+     * Get whether the file read is a binary .walk file, rather than text.
+     * @return true if and only if the file is a .walk file.
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Get the number of coordinates of the walk.
+     * @return the number of coordinates.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Get the number of steps of the walk, one less than its number of coordinates,
+     * or 0 for a walk with no coordinates.
+     * @return the number of steps.
+     */
+    public long getStepCount() {
+        return Math.max(size - 1, 0);
+    }
+
+    /**
+     * Get coordinate i of the walk, packed as by WalkPath.pack().
+     * @param i: the index of the coordinate
+     * @return the packed coordinate.
+     * @throws IndexOutOfBoundsException if i is not an index of the walk.
+     * @throws IllegalStateException if this reader is closed.
+     */
+    public long getPacked(long i) throws IndexOutOfBoundsException, IllegalStateException {
+        _checkOpen();
+        _checkIndex(i);
+        int k = (int) (i / checkpointInterval);
+        long from = (long) k * checkpointInterval;
+        if (binary) {
+            long packed = checkpoints[k];
+            return _advanceBinary(from, WalkPath.unpackX(packed), WalkPath.unpackY(packed), i - from);
+        }
+        textPos = checkpoints[k];
+        long sub = i - i % TEXT_SUB_INTERVAL;
+        if (subOffsets != null && sub > from && subOffsets[(int) (sub / TEXT_SUB_INTERVAL)] != NO_SUB_OFFSET) {
+            textPos += subOffsets[(int) (sub / TEXT_SUB_INTERVAL)];
+            from = sub;
+        }
+        _skipInts(2 * (i - from));
+        int x = _nextInt();
+        return WalkPath.pack(x, _nextInt());
+    }
+
+    /**
+     * Get the x coordinate of coordinate i of the walk.
+     * @param i: the index of the coordinate
+     * @return the x coordinate.
+     * @throws IndexOutOfBoundsException if i is not an index of the walk.
+     * @throws IllegalStateException if this reader is closed.
+     */
+    public int getX(long i) throws IndexOutOfBoundsException, IllegalStateException {
+        return WalkPath.unpackX(getPacked(i));
+    }
+
+    /**
+     * Get the y coordinate of coordinate i of the walk.
+     * @param i: the index of the coordinate
+     * @return the y coordinate.
+     * @throws IndexOutOfBoundsException if i is not an index of the walk.
+     * @throws IllegalStateException if this reader is closed.
+     */
+    public int getY(long i) throws IndexOutOfBoundsException, IllegalStateException {
+        return WalkPath.unpackY(getPacked(i));
+    }
+
+    /**
+     * Get coordinate i of the walk.
+     * @param i: the index of the coordinate
+     * @return the coordinate.
+     * @throws IndexOutOfBoundsException if i is not an index of the walk.
+     * @throws IllegalStateException if this reader is closed.
+     */
+    public Coordinate get(long i) throws IndexOutOfBoundsException, IllegalStateException {
+        long packed = getPacked(i);
+        return new Coordinate(WalkPath.unpackX(packed), WalkPath.unpackY(packed));
+    }
+
+    /**
+     * Push the coordinates from..to-1 of the walk into a sink, in order.
+     * Only the part of the file holding them is read.
+     * @param from: the index of the first coordinate
+     * @param to: one past the index of the last coordinate
+     * @param sink: the sink to receive the coordinates
+     * @throws IOException if the sink could not write a coordinate
+     * @throws IndexOutOfBoundsException if from..to-1 is not a range of indices of the walk.
+     * @throws IllegalStateException if this reader is closed.
+     */
+    public void readRange(long from, long to, WalkSink sink)
+            throws IOException, IndexOutOfBoundsException, IllegalStateException {
+        readRange(from, to, 1, sink);
+    }
+
+    /**
+     * Push every stride'th coordinate from..to-1 of the walk into a sink, in order:
+     * coordinates from, from + stride, from + 2 * stride, ...
+     * Strides of at least the checkpoint interval, or for text files TEXT_SUB_INTERVAL,
+     * skip the coordinates between samples.
+     * @param from: the index of the first coordinate
+     * @param to: one past the largest index which may be sampled
+     * @param stride: the distance between the indices of the samples
+     * @param sink: the sink to receive the coordinates
+     * @throws IOException if the sink could not write a coordinate
+     * @throws IndexOutOfBoundsException if from..to-1 is not a range of indices of the walk.
+     * @throws IllegalArgumentException if stride is not positive.
+     * @throws IllegalStateException if this reader is closed.
+     */
+    public void readRange(long from, long to, long stride, WalkSink sink)
+            throws IOException, IndexOutOfBoundsException, IllegalArgumentException, IllegalStateException {
+        _checkOpen();
+        if (stride <= 0) {
+            throw new IllegalArgumentException("The stride must be positive.");
+        }
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") of a walk of " + size
+                    + " coordinates.");
+        }
+        if (from == to) {
+            return;
+        }
+        if (stride >= checkpointInterval || (subOffsets != null && stride >= TEXT_SUB_INTERVAL)) {
+            for (long i = from; i < to; i += stride) {
+                long packed = getPacked(i);
+                sink.accept(WalkPath.unpackX(packed), WalkPath.unpackY(packed));
+            }
+            return;
+        }
+
+        long packed = getPacked(from);
+        int x = WalkPath.unpackX(packed);
+        int y = WalkPath.unpackY(packed);
+        sink.accept(x, y);
+        long next = from + stride;
+        if (binary) {
+            //Decode the steps after from one at a time, emitting every stride'th coordinate.
+            for (long step = from; step + 1 < to; ++step) {
+                int code = (_byteAt(WalkWriter.BINARY_HEADER_SIZE + (step >>> 2)) >>> (2 * (int) (step & 3))) & 3;
+                x += WalkWriter.CODE_DX[code];
+                y += WalkWriter.CODE_DY[code];
+                if (step + 1 == next) {
+                    sink.accept(x, y);
+                    next += stride;
+                }
+            }
+        } else {
+            //getPacked(from) left the parser just after coordinate from.
+            for (; next < to; next += stride) {
+                _skipInts(2 * (stride - 1));
+                x = _nextInt();
+                y = _nextInt();
+                sink.accept(x, y);
+            }
+        }
+    }
+
+    /**
+     * Release this reader. The mapped segments are unmapped once they are garbage collected.
+     * Closing a closed reader has no effect.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        checkpoints = null;
+        subOffsets = null;
+        Arrays.fill(segments, null);
+        segment = null;
+        segmentEnd = 0;
+    }
+
+    /**
+     * Private helper method to check whether the file starts with the .walk magic number.
+     */
+    private boolean _hasMagic() {
+        if (fileSize < WalkWriter.BINARY_HEADER_SIZE) {
+            return false;
+        }
+        for (int k = 0; k < WalkWriter.BINARY_MAGIC.length; ++k) {
+            if (_byteAt(k) != (WalkWriter.BINARY_MAGIC[k] & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Private helper method for the constructor.
+     * Read the header of a .walk file, checking it against the size of the file,
+     * and build its checkpoint index, decoding four steps per byte.
+     */
+    private void _indexBinary() throws RuntimeException {
+        ByteBuffer header = segments[0].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int x = header.getInt(4);
+        int y = header.getInt(8);
+        long numSteps = header.getLong(12);
+        if (numSteps < -1 || fileSize != WalkWriter.BINARY_HEADER_SIZE + BinaryWalkReader.codeBytes(numSteps)) {
+            throw new RuntimeException(MALFORMED + "File size does not match its number of steps.");
+        }
+        size = numSteps + 1;
+        long[] index = new long[(int) ((size + checkpointInterval - 1) / checkpointInterval)];
+        long offset = WalkWriter.BINARY_HEADER_SIZE;
+        int bytesPerCheckpoint = checkpointInterval / 4;
+        for (int k = 0; k < index.length; ++k) {
+            if (k > 0) {
+                for (int b = 0; b < bytesPerCheckpoint; ++b) {
+                    int bits = _byteAt(offset++);
+                    x += BYTE_DX[bits];
+                    y += BYTE_DY[bits];
+                }
+            }
+            index[k] = WalkPath.pack(x, y);
+        }
+        checkpoints = index;
+    }
+
+    /**
+     * Private helper method to decode n steps of a .walk file from step from at (x, y).
+     */
+    private long _advanceBinary(long from, int x, int y, long n) {
+        //from is a multiple of 4, so its steps start at a byte boundary.
+        long offset = WalkWriter.BINARY_HEADER_SIZE + from / 4;
+        for (; n >= 4; n -= 4) {
+            int bits = _byteAt(offset++);
+            x += BYTE_DX[bits];
+            y += BYTE_DY[bits];
+        }
+        if (n > 0) {
+            int bits = _byteAt(offset);
+            for (int k = 0; k < n; ++k) {
+                int code = (bits >>> (2 * k)) & 3;
+                x += WalkWriter.CODE_DX[code];
+                y += WalkWriter.CODE_DY[code];
+            }
+        }
+        return WalkPath.pack(x, y);
+    }
+
+    /**
+     * Private helper method for the constructor.
+     * Count the coordinates of a text file and build its checkpoint index,
+     * with its second level if the checkpoints are further apart than TEXT_SUB_INTERVAL.
+     */
+    private void _indexText() throws RuntimeException {
+        boolean twoLevels = checkpointInterval > TEXT_SUB_INTERVAL;
+        long[] offsets = new long[16];
+        char[] subs = new char[twoLevels ? 16 : 0];
+        int numCheckpoints = 0;
+        int numSubs = 0;
+        long ints = 0;
+        textPos = 0;
+        while (_skipToInt()) {
+            if (ints % (2L * checkpointInterval) == 0) {
+                if (numCheckpoints == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+                }
+                offsets[numCheckpoints++] = textPos;
+            }
+            if (twoLevels && ints % (2L * TEXT_SUB_INTERVAL) == 0) {
+                if (numSubs == subs.length) {
+                    subs = Arrays.copyOf(subs, 2 * subs.length);
+                }
+                long offset = textPos - offsets[numCheckpoints - 1];
+                subs[numSubs++] = offset <= MAX_SUB_OFFSET ? (char) offset : NO_SUB_OFFSET;
+            }
+            _nextInt();
+            ++ints;
+        }
+        if (ints % 2 != 0) {
+            throw new RuntimeException(MALFORMED + "The file holds an odd number of integers.");
+        }
+        size = ints / 2;
+        checkpoints = Arrays.copyOf(offsets, numCheckpoints);
+        subOffsets = twoLevels ? Arrays.copyOf(subs, numSubs) : null;
+    }
+
+    /**
+     * Private helper method to move the text parser to the start of the next integer.
+     * @return false if there is no next integer.
+     */
+    private boolean _skipToInt() {
+        while (textPos < fileSize) {
+            int c = _byteAt(textPos);
+            if ((c >= '0' && c <= '9') || c == '-') {
+                return true;
+            }
+            ++textPos;
+        }
+        return false;
+    }
+
+    /**
+     * Private helper method to move the text parser past the next n integers, without parsing them.
+     * The constructor has already checked that they are well formed.
+     */
+    private void _skipInts(long n) {
+        for (; n > 0; --n) {
+            _skipToInt();
+            //Past the sign or first digit, then the remaining digits.
+            ++textPos;
+            while (textPos < fileSize) {
+                int c = _byteAt(textPos);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                ++textPos;
+            }
+        }
+    }
+
+    /**
+     * Private helper method to parse the next integer of a text file.
+     * @throws RuntimeException if the integer is malformed or out of the range of int.
+     */
+    private int _nextInt() throws RuntimeException {
+        if (!_skipToInt()) {
+            throw new RuntimeException(MALFORMED + "File is truncated.");
+        }
+        long tokenStart = textPos;
+        boolean negative = false;
+        if (_byteAt(textPos) == '-') {
+            negative = true;
+            ++textPos;
+        }
+        long value = 0;
+        int digits = 0;
+        while (textPos < fileSize) {
+            int c = _byteAt(textPos);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = 10 * value + (c - '0');
+            if (value > 1L + Integer.MAX_VALUE) {
+                throw new RuntimeException(MALFORMED + "Integer out of range at offset " + tokenStart + ".");
+            }
+            ++digits;
+            ++textPos;
+        }
+        if (digits == 0) {
+            throw new RuntimeException(MALFORMED + "Expected an integer at offset " + tokenStart + ".");
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new RuntimeException(MALFORMED + "Integer out of range at offset " + tokenStart + ".");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Private helper method to read the byte at an offset of the file, as an unsigned value.
+     */
+    private int _byteAt(long offset) {
+        if (offset < segmentStart || offset >= segmentEnd) {
+            int s = (int) (offset / MAX_MAPPING);
+            segment = segments[s];
+            segmentStart = (long) s * MAX_MAPPING;
+            segmentEnd = segmentStart + segment.capacity();
+        }
+        return segment.get((int) (offset - segmentStart)) & 0xff;
+    }
+
+    private void _checkOpen() throws IllegalStateException {
+        if (closed) {
+            throw new IllegalStateException("The MappedWalkReader is closed.");
+        }
+    }
+
+    private void _checkIndex(long i) throws IndexOutOfBoundsException {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " of a walk of " + size + " coordinates.");
+        }
+    }
+
+}
@@ -1,67 +1,134 @@
 import java.util.ArrayList;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+import java.util.random.RandomGenerator.SplittableGenerator;
 
 
 /**
  * The MarkovChain class encodes a Makrov chain with a hidden current state
  * and some transition matrix describing the probabilties of transitioning to the next state.
  * States may have String labels to identify what each state represents.
+ *
+ * The transition matrix, labels and sampling tables are held by an immutable TransitionModel,
+ * which many chains may share; a MarkovChain itself only holds its current state,
+ * sampling strategy and random number generator.
  */
 public class MarkovChain {
 
-    private FloatMatrix transitionMat;
-    private Random rand;
+    /**
+     * The algorithms a MarkovChain can use to sample its next state.
+     */
+    public enum SamplingStrategy {
+        /**
+         * Search the cumulative distribution of the current state's row.
+         * Costs O(log states) per transition, and reproduces exactly the walks
+         * of a given seed produced by earlier versions of MarkovChain.
+         */
+        CDF,
+        /**
+         * Walker's alias method, using tables precomputed for every row.
+         * Costs one random draw and three table reads per transition.
+         */
+        ALIAS
+    }
+
+    private final TransitionModel model;
+    private RandomGenerator rand;
     private int curState;
-    private int numStates;
-    private String[] stateLabels;
+    private SamplingStrategy strategy;
 
 
     /**
-     * Create a MarkovChain from a transition matrix and a random number generator seed.
-     * @param matrix: the transition matrix
+     * Create a MarkovChain on a shared transition model, using a random number generator.
+     * The chain starts in state 0 and samples with SamplingStrategy.CDF.
+     * The generator is used only by this chain, and need not be thread-safe.
+     * @param model: the transition model
+     * @param generator: the random number generator
+     * @throws IllegalArgumentException if model or generator is null.
+     */
+    public MarkovChain(TransitionModel model, RandomGenerator generator) throws IllegalArgumentException {
+        if (model == null) {
+            throw new IllegalArgumentException("A MarkovChain needs a transition model.");
+        }
+        if (generator == null) {
+            throw new IllegalArgumentException("A MarkovChain needs a random number generator.");
+        }
+        this.model = model;
+        this.rand = generator;
+        curState = 0;
+        strategy = SamplingStrategy.CDF;
+    }
+
+    /**
+     * Create a MarkovChain on a shared transition model, with a random number generator seed.
+     * The chain uses a java.util.Random with this seed.
+     * @param model: the transition model
      * @param seed: the random number generator seed
+     * @throws IllegalArgumentException if model is null.
      */
-    public MarkovChain(FloatMatrix matrix, long seed) {
-        assert (isValidTransitionMatrix(matrix));
+    public MarkovChain(TransitionModel model, long seed) throws IllegalArgumentException {
+        this(model, new Random(seed));
+    }
 
-        this.transitionMat = new FloatMatrix(matrix);
-        curState = 0;
-        numStates = this.transitionMat.rows();
-        stateLabels = null;
+    /**
+     * Create a MarkovChain from a transition matrix and a random number generator.
+     * The transition matrix may be a dense FloatMatrix, which is copied,
+     * or an immutable SparseFloatMatrix, which is shared.
+     * The generator is used only by this chain, and need not be thread-safe.
+     * @param matrix: the transition matrix
+     * @param generator: the random number generator
+     * @throws IllegalArgumentException if matrix is not a valid transition matrix or generator is null.
+     */
+    public MarkovChain(Matrix matrix, RandomGenerator generator) throws IllegalArgumentException {
+        this(new TransitionModel(matrix), generator);
+    }
 
-        rand = new Random(seed);
+    /**
+     * Create a MarkovChain from a transition matrix and a random number generator seed.
+     * The chain uses a java.util.Random with this seed.
+     * @param matrix: the transition matrix
+     * @param seed: the random number generator seed
+     * @throws IllegalArgumentException if matrix is not a valid transition matrix.
+     */
+    public MarkovChain(Matrix matrix, long seed) throws IllegalArgumentException {
+        this(matrix, new Random(seed));
     }
 
     /**
      * Create a MarkovChain from a transition matrix.
      * @param matrix: the transition matrix
+     * @throws IllegalArgumentException if matrix is not a valid transition matrix.
      */
-    public MarkovChain(FloatMatrix matrix) {
+    public MarkovChain(Matrix matrix) throws IllegalArgumentException {
         this(matrix, 0);
     }
 
     /**
-     * Create a MarkovChain from a transition matrix, a random number generator seed,
+     * Create a MarkovChain from a transition matrix, a random number generator,
      * and state labels. The length of the states array should equal the number of
      * columns in T.
      * @param T: the transition matrix
      * @param states: the labels for each state of the Markov chain
-     * @param seed: the random number generator seed
+     * @param generator: the random number generator
+     * @throws IllegalArgumentException if T is not a valid transition matrix or generator is null.
      */
-    public MarkovChain(FloatMatrix T, String[] states, long seed) {
-        this(T, seed);
+    public MarkovChain(Matrix T, String[] states, RandomGenerator generator) throws IllegalArgumentException {
+        this(new TransitionModel(T, states), generator);
+    }
 
-        stateLabels = new String[numStates];
-        for (int i = 0; i < numStates; ++i) {
-            stateLabels[i] = Integer.toString(i);
-        }
-        int max = numStates;
-        if (states.length < numStates) {
-            max = states.length;
-        }
-        for (int i = 0; i < max; ++i) {
-            stateLabels[i] = states[i];
-        }
+    /**
+     * Create a MarkovChain from a transition matrix, a random number generator seed,
+     * and state labels. The length of the states array should equal the number of
+     * columns in T. The chain uses a java.util.Random with this seed.
+     * @param T: the transition matrix
+     * @param states: the labels for each state of the Markov chain
+     * @param seed: the random number generator seed
+     * @throws IllegalArgumentException if T is not a valid transition matrix.
+     */
+    public MarkovChain(Matrix T, String[] states, long seed) throws IllegalArgumentException {
+        this(T, states, new Random(seed));
     }
 
     /**
@@ -70,11 +137,20 @@ public class MarkovChain {
      * columns in T.
      * @param T: the transition matrix
      * @param states: the labels for each state of the Markov chain
+     * @throws IllegalArgumentException if T is not a valid transition matrix.
      */
-    public MarkovChain(FloatMatrix T, String[] states) {
+    public MarkovChain(Matrix T, String[] states) throws IllegalArgumentException {
         this(T, states, 0);
     }
 
+    /**
+     * Get the transition model of this Markov chain, which may be shared with other chains.
+     * @return the transition model.
+     */
+    public TransitionModel getModel() {
+        return model;
+    }
+
     /**
      * For the current state of the Markov chain, get its label.
      * If no state labels were provided, return the string representation
@@ -82,11 +158,19 @@ public class MarkovChain {
      * @return the string label for the chain's current state.
      */
     public String getStateString() {
-        if (stateLabels == null) {
-            return Integer.toString(curState);
-        } else {
-            return stateLabels[curState];
-        }
+        return model.getStateLabel(curState);
+    }
+
+    /**
+     * Get the label of a state of this Markov chain.
+     * If no state labels were provided, return the string representation
+     * of the state's number.
+     * @param state: the 0-indexed state number.
+     * @return the string label for the state.
+     * @throws IndexOutOfBoundsException if state is not a state of this chain.
+     */
+    public String getStateLabel(int state) throws IndexOutOfBoundsException {
+        return model.getStateLabel(state);
     }
 
     /**
@@ -95,7 +179,7 @@ public class MarkovChain {
      * @return: the number of states in this Markov chain.
      */
     public int getNumStates() {
-        return transitionMat.rows();
+        return model.getNumStates();
     }
 
     /**
@@ -118,13 +202,108 @@ public class MarkovChain {
      * @return true if and only if setting the state was successful.
      */
     public boolean setState(int state) {
-        if (state < 0 || state >= numStates) {
+        if (state < 0 || state >= model.getNumStates()) {
             return false;
         }
         curState = state;
         return true;
     }
 
+    /**
+     * Reseed the random number generator of this Markov chain.
+     * Its following transitions are then the same as those of a chain
+     * newly created with this seed and set to the same state.
+     * A java.util.Random is reseeded in place. Any other generator of one of the JDK's algorithms,
+     * such as a SplittableRandom, is replaced by a new generator of the same algorithm created with this seed,
+     * so the chain walks as one newly created with that generator.
+     * @param seed: the random number generator seed
+     * @throws UnsupportedOperationException if the chain's generator is of no algorithm the JDK can create.
+     */
+    public void setSeed(long seed) throws UnsupportedOperationException {
+        if (rand instanceof Random) {
+            ((Random) rand).setSeed(seed);
+        } else if (rand instanceof SplittableRandom) {
+            rand = new SplittableRandom(seed);
+        } else {
+            rand = _reseeded(rand, seed);
+        }
+    }
+
+    /**
+     * Private helper method to create a generator of the same algorithm as another, with a given seed.
+     * @throws UnsupportedOperationException if the generator is of no algorithm the JDK can create.
+     */
+    private static RandomGenerator _reseeded(RandomGenerator generator, long seed) {
+        RandomGenerator reseeded = null;
+        try {
+            reseeded = RandomGeneratorFactory.of(generator.getClass().getSimpleName()).create(seed);
+        } catch (IllegalArgumentException e) {
+            //Not the name of any algorithm.
+        }
+        if (reseeded == null || reseeded.getClass() != generator.getClass()) {
+            throw new UnsupportedOperationException("A " + generator.getClass().getName()
+                    + " generator cannot be reseeded.");
+        }
+        return reseeded;
+    }
+
+    /**
+     * Create a child of this Markov chain, in the same state and with the same sampling strategy,
+     * whose transitions are independent of this chain's.
+     * The child shares this chain's transition model, so splitting is cheap
+     * and each thread of a parallel simulation can own its own chain.
+     *
+     * If this chain's generator is a SplittableGenerator, the child's generator is split from it.
+     * Otherwise, the child uses a SplittableRandom seeded from this chain's generator.
+     * Either way this chain's generator advances, so split() must not be called concurrently
+     * with any other use of this chain.
+     * @return the child chain.
+     */
+    public MarkovChain split() {
+        if (rand instanceof SplittableGenerator) {
+            return split(((SplittableGenerator) rand).split());
+        }
+        return split(new SplittableRandom(rand.nextLong()));
+    }
+
+    /**
+     * Create a child of this Markov chain, as split() does, but using the given generator.
+     * This chain is not modified, so several threads may split the same chain at once,
+     * provided none of them uses the chain itself.
+     * @param generator: the random number generator of the child chain.
+     * @return the child chain.
+     * @throws IllegalArgumentException if generator is null.
+     */
+    public MarkovChain split(RandomGenerator generator) throws IllegalArgumentException {
+        MarkovChain child = new MarkovChain(model, generator);
+        child.curState = curState;
+        child.strategy = strategy;
+        return child;
+    }
+
+    /**
+     * Get the algorithm this Markov chain uses to sample its next state.
+     * The default is SamplingStrategy.CDF.
+     * @return the sampling strategy.
+     */
+    public SamplingStrategy getSamplingStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Set the algorithm this Markov chain uses to sample its next state.
+     * Selecting SamplingStrategy.ALIAS for the first time on a transition model builds
+     * its alias tables for every row, which takes time and memory proportional to the
+     * number of non-zero transition probabilities.
+     * @param strategy: the sampling strategy to use from now on.
+     */
+    public void setSamplingStrategy(SamplingStrategy strategy) {
+        if (strategy == SamplingStrategy.ALIAS) {
+            model.prepareAlias();
+        }
+        this.strategy = strategy;
+    }
+
     /**
      * Trigger the Markov chain to transition to the next state
      * based on its transition matrix.
@@ -133,59 +312,62 @@ public class MarkovChain {
      */
     public int nextState() {
         double r = rand.nextDouble();
-        double curTotal = 0.0;
-        for (int i = 0;  i < numStates; ++i) {
-            curTotal += transitionMat.get(curState, i);
-            if (r < curTotal) {
-                curState = i;
-                return i;
-            }
+        int next;
+        if (strategy == SamplingStrategy.ALIAS) {
+            next = model.sampleAlias(curState, r);
+        } else {
+            next = model.sampleCdf(curState, r);
+        }
+        if (next >= 0) {
+            curState = next;
+            Metrics.countTransition(curState);
+            return curState;
         }
 
         //Based on the conditions of a valid transition matrix,
-        //this should never be reached because the curTotal must
-        //be equal to 1 when i = numStates-1 and r belongs to [0,1).
+        //this should never be reached because the prefix sum of the row must
+        //be equal to 1 for the last column and r belongs to [0,1).
         return 0;
     }
 
+    /**
+     * Compute the probability distribution over the states of this Markov chain
+     * after n transitions starting from startState, without simulating them.
+     * See TransitionModel.nStepDistribution().
+     * The current state of the chain is not changed.
+     * @param startState: the state to start from.
+     * @param n: the number of transitions.
+     * @return the distribution over states after n transitions.
+     * @throws IndexOutOfBoundsException if startState is not a state of this chain.
+     * @throws IllegalArgumentException if n is negative.
+     */
+    public float[] nStepDistribution(int startState, long n) {
+        return model.nStepDistribution(startState, n);
+    }
 
     /**
-     * Determines if a particular FloatMatrix is a valid transition matrix
+     * Compute the long-run distribution of this Markov chain over its states by power iteration,
+     * without simulating it. See TransitionModel.stationaryDistribution().
+     * @param tolerance: the largest acceptable residual.
+     * @param maxIters: the largest number of iterations to perform.
+     * @return the distribution found, with the number of iterations and its residual.
+     * @throws IllegalArgumentException if tolerance is negative or maxIters is not positive.
+     */
+    public TransitionModel.StationaryDistribution stationaryDistribution(double tolerance, int maxIters)
+            throws IllegalArgumentException {
+        return model.stationaryDistribution(tolerance, maxIters);
+    }
+
+    /**
+     * Determines if a particular Matrix is a valid transition matrix
      * for a MarkovChain object.
      * If the matrix is square and, for every row in the matrix, the sum of
      * entries in that row equals 1, return true. Otherwise, return false.
      * @param M: the matrix to test if it is valid
      * @return true if and only if the matrix M is a valid transition matrix.
      */
-    public static boolean isValidTransitionMatrix(FloatMatrix M) {
-        if (M == null) {
-            return false;
-        }
-        if (M.rows() < 1) {
-            return false;
-        }
-
-        int R = M.rows();
-        int C = M.columns();
-        if (R != C) {
-            return false;
-        }
-
-        //Can assume now it is an extant square matrix.
-        for (int i = 0; i < R; ++i) {
-            double sum = 0.0;
-            //compute a sum across the row
-            for (int j = 0; j < C; ++j) {
-                sum += M.get(i, j);
-            }
-
-            if (Math.abs(sum - 1.0) > FloatMatrix.EPSILON) {
-                return false;
-            }
-            sum = 0.0;
-        }
-
-        return true;
+    public static boolean isValidTransitionMatrix(Matrix M) {
+        return TransitionModel.isValidTransitionMatrix(M);
     }
 
 }
@@ -0,0 +1,61 @@
+/**
+ * The Matrix interface describes read access to a matrix of floating point numbers.
+ * It is implemented by the dense FloatMatrix and by the compressed sparse SparseFloatMatrix,
+ * so that a MarkovChain can use either as its transition matrix.
+ * Rows and columns are 0-indexed.
+ */
+public interface Matrix {
+
+    /**
+     * Return the number of rows in this Matrix.
+     * @return the number of rows.
+     */
+    int rows();
+
+    /**
+     * Return the number of columns in this Matrix.
+     * @return the number of columns.
+     */
+    int columns();
+
+    /**
+     * Get the entry in this matrix at row i and column j.
+     * @param i: the 0-indexed row number.
+     * @param j: the 0-indexed column number.
+     * @return the entry of the matrix at (i,j)
+     * @throws IndexOutOfBoundsException if row or column index is invalid.
+     */
+    float get(int i, int j) throws IndexOutOfBoundsException;
+
+    /**
+     * Copy the non-zero entries of row i into the arrays cols and vals,
+     * in order of increasing column. The column of the k'th non-zero entry
+     * is stored in cols[k] and its value in vals[k].
+     * Both arrays must have room for at least columns() entries.
+     * @param i: the 0-indexed row number.
+     * @param cols: the array to store the column of each non-zero entry in.
+     * @param vals: the array to store the value of each non-zero entry in.
+     * @return the number of non-zero entries in row i.
+     * @throws IndexOutOfBoundsException if the row index is invalid.
+     */
+    int getRow(int i, int[] cols, float[] vals) throws IndexOutOfBoundsException;
+
+    /**
+     * Compute the sum of the entries in row i, in double precision.
+     * @param i: the 0-indexed row number.
+     * @return the sum of row i.
+     * @throws IndexOutOfBoundsException if the row index is invalid.
+     */
+    double rowSum(int i) throws IndexOutOfBoundsException;
+
+    /**
+     * Left-multiply this Matrix by the row vector vec, storing the product in result.
+     * That is, result = vec * this.
+     * The vector vec must have rows() entries and result must have columns() entries.
+     * @param vec: the left-hand row vector.
+     * @param result: the array to store the product in.
+     * @throws ArithmeticException if the vector lengths do not match the matrix dimensions.
+     */
+    void leftMultiply(double[] vec, double[] result) throws ArithmeticException;
+
+}
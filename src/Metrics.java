@@ -0,0 +1,398 @@
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The Metrics class counts what a simulation run does and times its phases:
+ * the number of steps simulated, the number of transitions into each state of the Markov chains,
+ * the number of bytes of walks written, and histograms of the time spent loading matrices,
+ * walking and saving walks.
+ *
+ * Metrics are only collected if the system property walksim.metrics is true.
+ * ENABLED is a constant, so when it is false the JIT removes the instrumentation
+ * from the hot paths entirely, and every recording method below does nothing.
+ *
+ * Every method is thread-safe; counters are LongAdders, so parallel walkers do not contend.
+ * At the end of a run, report() prints a summary and commits JFR events holding the same values,
+ * which a flight recording (-XX:StartFlightRecording) then includes under the category WalkSim.
+ */
+public final class Metrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("walksim.metrics");
+
+    /**
+     * The timed phases of a run.
+     */
+    public enum Phase { MATRIX_LOAD, WALK, SAVE }
+
+    /**
+     * A histogram of non-negative values, such as latencies in nanoseconds, in power of two buckets.
+     * Bucket 0 counts the value 0 and bucket b > 0 counts the values from 2^(b-1) to 2^b - 1,
+     * so percentiles are accurate to within a factor of two.
+     */
+    public static final class Histogram {
+        public static final int BUCKETS = 64;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        /**
+         * Get the bucket counting a value.
+         * @param value: the value; negative values are counted as 0
+         * @return the bucket of value.
+         */
+        public static int bucketOf(long value) {
+            return value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value);
+        }
+
+        /**
+         * Count a value in this histogram.
+         * @param value: the value; negative values are counted as 0
+         */
+        public void record(long value) {
+            value = Math.max(value, 0);
+            counts.incrementAndGet(bucketOf(value));
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        /**
+         * Get the number of values counted in a bucket.
+         * @param bucket: the bucket
+         * @return the number of values in the bucket.
+         * @throws IndexOutOfBoundsException if bucket is not between 0 and BUCKETS-1
+         */
+        public long getBucketCount(int bucket) throws IndexOutOfBoundsException {
+            return counts.get(bucket);
+        }
+
+        /**
+         * Get the number of values counted.
+         * @return the number of values.
+         */
+        public long getCount() {
+            long n = 0;
+            for (int b = 0; b < BUCKETS; ++b) {
+                n += counts.get(b);
+            }
+            return n;
+        }
+
+        /**
+         * Get the sum of the values counted.
+         * @return the sum of the values.
+         */
+        public long getSum() {
+            return sum.sum();
+        }
+
+        /**
+         * Get the largest value counted.
+         * @return the largest value, or 0 if none was counted.
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Get the mean of the values counted.
+         * @return the mean, or 0 if no value was counted.
+         */
+        public double getMean() {
+            long n = getCount();
+            return n == 0 ? 0.0 : (double) getSum() / n;
+        }
+
+        /**
+         * Get an upper bound on a percentile of the values counted:
+         * the largest value of the bucket holding the percentile, or the largest value counted if smaller.
+         * @param percentile: the percentile, from 0 to 100
+         * @return the upper bound, or 0 if no value was counted.
+         * @throws IllegalArgumentException if percentile is not between 0 and 100.
+         */
+        public long getPercentile(double percentile) throws IllegalArgumentException {
+            if (!(percentile >= 0.0 && percentile <= 100.0)) {
+                throw new IllegalArgumentException("A percentile must be between 0 and 100: " + percentile);
+            }
+            long[] snapshot = new long[BUCKETS];
+            long n = 0;
+            for (int b = 0; b < BUCKETS; ++b) {
+                snapshot[b] = counts.get(b);
+                n += snapshot[b];
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; ++b) {
+                seen += snapshot[b];
+                if (seen >= rank) {
+                    long upper = b == 0 ? 0 : (b == BUCKETS - 1 ? Long.MAX_VALUE : (1L << b) - 1);
+                    return Math.min(upper, getMax());
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Forget every value counted.
+         */
+        public void reset() {
+            for (int b = 0; b < BUCKETS; ++b) {
+                counts.set(b, 0);
+            }
+            sum.reset();
+            max.reset();
+        }
+    }
+
+    private static final LongAdder steps = new LongAdder();
+    private static final LongAdder bytesWritten = new LongAdder();
+    /* transitions[s] counts the transitions into state s; grown as larger states are seen. */
+    private static volatile LongAdder[] transitions = new LongAdder[0];
+    private static final Histogram[] phases = new Histogram[Phase.values().length];
+
+    static {
+        for (int i = 0; i < phases.length; ++i) {
+            phases[i] = new Histogram();
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Start timing a phase.
+     * @return the start time to pass to recordPhase(), or 0 if metrics are disabled.
+     */
+    public static long startTimer() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Record the time taken by a phase, from a start time given by startTimer() until now.
+     * @param phase: the phase timed
+     * @param start: the start time of the phase
+     */
+    public static void recordPhase(Phase phase, long start) {
+        if (ENABLED) {
+            phases[phase.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Count steps simulated by a walker.
+     * @param n: the number of steps
+     */
+    public static void addSteps(long n) {
+        if (ENABLED) {
+            steps.add(n);
+        }
+    }
+
+    /**
+     * Count bytes written to walk files.
+     * @param n: the number of bytes
+     */
+    public static void addBytesWritten(long n) {
+        if (ENABLED) {
+            bytesWritten.add(n);
+        }
+    }
+
+    /**
+     * Count a transition of a Markov chain into a state.
+     * @param state: the state entered
+     */
+    public static void countTransition(int state) {
+        if (ENABLED) {
+            LongAdder[] counters = transitions;
+            if (state >= counters.length) {
+                counters = _growTransitions(state);
+            }
+            counters[state].increment();
+        }
+    }
+
+    /**
+     * Get the number of steps simulated.
+     * @return the number of steps, 0 if metrics are disabled.
+     */
+    public static long getSteps() {
+        return steps.sum();
+    }
+
+    /**
+     * Get the number of bytes written to walk files.
+     * @return the number of bytes, 0 if metrics are disabled.
+     */
+    public static long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * Get the number of transitions into each state.
+     * @return the number of transitions into state s at index s, for every state entered so far.
+     */
+    public static long[] getTransitions() {
+        LongAdder[] counters = transitions;
+        long[] counts = new long[counters.length];
+        for (int s = 0; s < counts.length; ++s) {
+            counts[s] = counters[s].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * Get the histogram of the times taken by a phase, in nanoseconds.
+     * @param phase: the phase
+     * @return the histogram of the phase.
+     */
+    public static Histogram getHistogram(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    /**
+     * Forget every count and time recorded.
+     */
+    public static void reset() {
+        steps.reset();
+        bytesWritten.reset();
+        synchronized (Metrics.class) {
+            transitions = new LongAdder[0];
+        }
+        for (Histogram h : phases) {
+            h.reset();
+        }
+    }
+
+    /**
+     * Summarize the counts and times recorded, one line per counter, state entered and phase.
+     * Times are in milliseconds; percentiles are upper bounds, see Histogram.getPercentile().
+     * @return the summary.
+     */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("steps simulated: %d%n", getSteps()));
+        sb.append(String.format("bytes written: %d%n", getBytesWritten()));
+        long[] counts = getTransitions();
+        for (int s = 0; s < counts.length; ++s) {
+            if (counts[s] > 0) {
+                sb.append(String.format("transitions into state %d: %d%n", s, counts[s]));
+            }
+        }
+        for (Phase phase : Phase.values()) {
+            Histogram h = getHistogram(phase);
+            sb.append(String.format("%s: count %d, total %.3f ms, mean %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                    phase, h.getCount(), h.getSum() / 1e6, h.getMean() / 1e6,
+                    h.getPercentile(50) / 1e6, h.getPercentile(99) / 1e6, h.getMax() / 1e6));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * At the end of a run, print the summary and commit the counts and times as JFR events.
+     * Does nothing if metrics are disabled.
+     * @param out: the stream on which to print the summary
+     */
+    public static void report(PrintStream out) {
+        if (!ENABLED) {
+            return;
+        }
+        out.print(summary());
+        try {
+            _commitEvents();
+        } catch (LinkageError e) {
+            //A runtime without the jdk.jfr module still prints the summary.
+        }
+    }
+
+    /**
+     * Private helper method to grow the transition counters to include a state.
+     * Existing counters are kept, so no concurrent count is lost.
+     */
+    private static synchronized LongAdder[] _growTransitions(int state) {
+        LongAdder[] counters = transitions;
+        if (state < counters.length) {
+            return counters;
+        }
+        LongAdder[] grown = new LongAdder[state + 1];
+        System.arraycopy(counters, 0, grown, 0, counters.length);
+        for (int s = counters.length; s < grown.length; ++s) {
+            grown[s] = new LongAdder();
+        }
+        transitions = grown;
+        return grown;
+    }
+
+    /**
+     * Private helper method to commit a JFR event for every counter, state and phase.
+     * The event classes are only loaded here, so the rest of this class does not need jdk.jfr.
+     */
+    private static void _commitEvents() {
+        new CounterEvent("steps", getSteps()).commit();
+        new CounterEvent("bytesWritten", getBytesWritten()).commit();
+        long[] counts = getTransitions();
+        for (int s = 0; s < counts.length; ++s) {
+            new CounterEvent("transitions." + s, counts[s]).commit();
+        }
+        for (Phase phase : Phase.values()) {
+            new PhaseEvent(phase, getHistogram(phase)).commit();
+        }
+    }
+
+    @Name("walksim.Counter")
+    @Label("WalkSim Counter")
+    @Category("WalkSim")
+    @StackTrace(false)
+    static final class CounterEvent extends Event {
+        @Label("Name")
+        String name;
+        @Label("Value")
+        long value;
+
+        CounterEvent(String name, long value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    @Name("walksim.Phase")
+    @Label("WalkSim Phase")
+    @Category("WalkSim")
+    @StackTrace(false)
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+        @Label("Count")
+        long count;
+        @Label("Total")
+        @Timespan
+        long totalNanos;
+        @Label("Median")
+        @Timespan
+        long p50Nanos;
+        @Label("99th Percentile")
+        @Timespan
+        long p99Nanos;
+        @Label("Maximum")
+        @Timespan
+        long maxNanos;
+
+        PhaseEvent(Phase phase, Histogram h) {
+            this.phase = phase.name();
+            this.count = h.getCount();
+            this.totalNanos = h.getSum();
+            this.p50Nanos = h.getPercentile(50);
+            this.p99Nanos = h.getPercentile(99);
+            this.maxNanos = h.getMax();
+        }
+    }
+}
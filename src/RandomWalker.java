@@ -1,5 +1,4 @@
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 
 /**
@@ -16,7 +15,9 @@ public class RandomWalker {
 
     private MarkovChain mc;
     private Coordinate curPos;
-    private ArrayList<Coordinate> path;
+    private WalkPath path;
+    private int[] stepX; //the step taken on entering each state of the Markov chain
+    private int[] stepY;
 
     /**
      * Construct a RandomWalker from a Markov chain.
@@ -27,7 +28,8 @@ public class RandomWalker {
     public RandomWalker(MarkovChain chain) {
         mc = chain;
         curPos = new Coordinate(START_X, START_Y);
-        path = new ArrayList<>();
+        path = new WalkPath();
+        buildStepTable();
     }
 
     /**
@@ -40,24 +42,95 @@ public class RandomWalker {
      *
      * Note that each call to walk resets the path of this walker to start again from
      * the default starting point and clears the history of the previous path.
+     * The returned list is a copy; see walkCompact() to avoid creating a Coordinate per step.
      *
      * @param Nsteps: the number of steps to simulate in the random walk
      * @return the path of the walk.
      */
     public ArrayList<Coordinate> walk(int Nsteps) {
+        return new ArrayList<>(walkCompact(Nsteps).asList());
+    }
+
+    /**
+     * Perform a random walk of Nsteps, as walk() does,
+     * but return the path packed in this walker's WalkPath rather than as a list of Coordinates.
+     * The returned WalkPath is reused, and so overwritten, by the next walk of this walker.
+     *
+     * @param Nsteps: the number of steps to simulate in the random walk
+     * @return the path of the walk.
+     */
+    public WalkPath walkCompact(int Nsteps) {
+        long start = Metrics.startTimer();
         int N = Nsteps;
-        Coordinate curPos = new Coordinate(START_X, START_Y);
+        int x = START_X;
+        int y = START_Y;
         path.clear(); //reset the path for this new walk.
 
         if (N > 0) {
-            path.add(new Coordinate(curPos.x, curPos.y));
+            path.add(x, y);
         }
         for (int step = 0; step < N; ++step) {
             mc.nextState();
-            curPos.accumulate(getStepDirection());
-            path.add(new Coordinate(curPos.x, curPos.y));
+            //getState() rather than the result of nextState(), which differ only
+            //for an invalid transition matrix, where the step follows the unchanged state.
+            int state = mc.getState();
+            x += stepX[state];
+            y += stepY[state];
+            path.add(x, y);
+        }
+
+        Metrics.addSteps(Math.max(N, 0));
+        Metrics.recordPhase(Metrics.Phase.WALK, start);
+        return path;
+    }
+
+    /**
+     * Perform a random walk of Nsteps, pushing each coordinate into a sink as it is generated
+     * rather than storing the path. The sink receives the same coordinates, in the same order,
+     * as walk() would return, so the memory used does not grow with the number of steps.
+     * This walker's path, as returned by getPath(), is not changed.
+     *
+     * @param Nsteps: the number of steps to simulate in the random walk
+     * @param sink: the sink to receive the coordinates of the walk
+     * @throws IOException if the sink could not write a coordinate
+     */
+    public void walk(long Nsteps, WalkSink sink) throws IOException {
+        long start = Metrics.startTimer();
+        int x = START_X;
+        int y = START_Y;
+
+        if (Nsteps > 0) {
+            sink.accept(x, y);
+        }
+        for (long step = 0; step < Nsteps; ++step) {
+            mc.nextState();
+            int state = mc.getState();
+            x += stepX[state];
+            y += stepY[state];
+            sink.accept(x, y);
         }
+        Metrics.addSteps(Math.max(Nsteps, 0));
+        Metrics.recordPhase(Metrics.Phase.WALK, start);
+    }
 
+    /**
+     * Perform a random walk of Nsteps and write it to a file as it is generated,
+     * in the format saveWalkToFile() would write it, without storing the path.
+     * @param Nsteps: the number of steps to simulate in the random walk
+     * @param fname: the name of the file in which to write the path
+     * @throws IOException if the file could not be opened, created or written
+     */
+    public void walkToFile(long Nsteps, String fname) throws IOException {
+        try (WalkWriter writer = new WalkWriter(fname)) {
+            walk(Nsteps, writer);
+        }
+    }
+
+    /**
+     * Get the path most recently walked by this walker.
+     * @return the path of the last walk, empty if this walker has not walked.
+     */
+    public WalkPath getPath() {
         return path;
     }
 
@@ -67,50 +140,39 @@ public class RandomWalker {
      * Otherwise, for N steps, there will be N+1 coordinates printed to the file,
      * one per line. Line i and line i+1 encode the i+1'th step beginning
      * at coordinate i and ending at coordinate i+1.
+     * A .dat file instead holds every coordinate on a single line, and a .walk file
+     * holds the walk in a compact binary format; see WalkWriter.
      * @param fname the name of the file in which to write the path
      * @throws IOException if the file could not be open or created writing
      */
     public void saveWalkToFile(String fname) throws IOException {
-        PrintWriter writer = new PrintWriter(fname);
-
-
-        if (fname.endsWith(".txt")) {
-            for (Coordinate coord : path) {
-                writer.println(String.format("(%d, %d)", coord.x, coord.y));
-            }
-        } else if (fname.endsWith(".dat")) {
-            StringBuilder sb = new StringBuilder();
-            for (Coordinate coord : path) {
-                if (sb.length() > 0) sb.append(" ");
-                sb.append(coord.x).append(" ").append(coord.y);
-            }
-            writer.println(sb.toString());
-        }
-        writer.close();
-
-
+        long start = Metrics.startTimer();
+        WalkWriter.write(fname, path);
+        Metrics.recordPhase(Metrics.Phase.SAVE, start);
     }
 
     /**
-     * Private helper method for walk().
-     * Given the current state of the Markov chain,
-     * compute the "step" based on the direction encoded by the Markov chain.
-     * @return a coordinate encoding the difference between the Walker's destination position
-     *         and its starting position for this step.
+     * Private helper method for the constructor.
+     * For each state of the Markov chain, compute the "step" based on the direction
+     * encoded by the state's label, so that walk() need not compare labels.
+     * States labelled other than "N", "E", or "S" step West.
      */
-    private Coordinate getStepDirection() {
-        Coordinate step = new Coordinate(0,0);
-        String state =  mc.getStateString();
-        if (state.equals("N")) {
-            step.accumulate(new Coordinate(0, STEP_SIZE));
-        } else if (state.equals("E")) {
-            step.accumulate(new Coordinate(STEP_SIZE, 0));
-        } else if (state.equals("S")) {
-            step.accumulate(new Coordinate(0, -STEP_SIZE));
-        } else {
-            step.accumulate(new Coordinate(-STEP_SIZE, 0));
+    private void buildStepTable() {
+        int n = mc.getNumStates();
+        stepX = new int[n];
+        stepY = new int[n];
+        for (int i = 0; i < n; ++i) {
+            String state = mc.getStateLabel(i);
+            if (state.equals("N")) {
+                stepY[i] = STEP_SIZE;
+            } else if (state.equals("E")) {
+                stepX[i] = STEP_SIZE;
+            } else if (state.equals("S")) {
+                stepY[i] = -STEP_SIZE;
+            } else {
+                stepX[i] = -STEP_SIZE;
+            }
         }
-        return step;
     }
 
 }
@@ -0,0 +1,286 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The SiteTable class counts visits to the sites of the integer lattice in an open-addressing hash table
+ * keyed by primitive longs, so counting a visit neither boxes the site nor allocates.
+ * A site (x, y) is keyed by WalkPath.pack(x, y).
+ *
+ * Keys and counts are longs held in two ByteBuffers, either on the heap or, for tables of millions of sites,
+ * off-heap in direct buffers, which the garbage collector neither scans nor copies.
+ * The table uses linear probing and doubles its capacity when three quarters full;
+ * a slot whose count is 0 is empty, so no key needs to be reserved.
+ * Counts are longs because a walk of billions of steps can visit its busiest sites more than 2^32 times,
+ * and an int count would wrap back to 0 and so empty its slot.
+ * A direct buffer's memory is released when the table is garbage collected.
+ *
+ * A SiteTable is not thread-safe.
+ */
+public class SiteTable {
+
+    public static final int DEFAULT_EXPECTED_SITES = 768;
+    /* The largest capacity, whose keys and counts each fill a 1 GiB buffer; a ByteBuffer holds less than 2 GiB. */
+    public static final int MAX_CAPACITY = 1 << 27;
+
+    /**
+     * Receives the sites of a table and their visit counts; see forEach().
+     */
+    public interface Visitor {
+        /**
+         * Accept a visited site.
+         * @param x: the x coordinate of the site
+         * @param y: the y coordinate of the site
+         * @param count: the number of visits to the site
+         */
+        void visit(int x, int y, long count);
+    }
+
+    private final boolean offHeap;
+    private ByteBuffer keys;
+    private ByteBuffer counts;
+    private int capacity;
+    private int mask;
+    private int shift;
+    private int size;
+    private int threshold;
+
+    /**
+     * Create an empty table on the heap, with room for DEFAULT_EXPECTED_SITES sites before it grows.
+     */
+    public SiteTable() {
+        this(DEFAULT_EXPECTED_SITES, false);
+    }
+
+    /**
+     * Create an empty table.
+     * @param expectedSites: the number of sites the table should hold before it needs to grow
+     * @param offHeap: whether to hold the table in direct buffers, off the heap
+     * @throws IllegalArgumentException if expectedSites is negative or more than the table can hold.
+     */
+    public SiteTable(int expectedSites, boolean offHeap) throws IllegalArgumentException {
+        if (expectedSites < 0 || expectedSites > MAX_CAPACITY / 4 * 3) {
+            throw new IllegalArgumentException("A SiteTable cannot hold " + expectedSites + " sites.");
+        }
+        this.offHeap = offHeap;
+        int cap = 16;
+        while (cap / 4 * 3 < expectedSites) {
+            cap *= 2;
+        }
+        _allocate(cap);
+    }
+
+    /**
+     * Determine if this table is held off the heap.
+     * @return true if and only if the table is held in direct buffers.
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Get the number of distinct sites in this table.
+     * @return the number of sites visited.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of slots of this table.
+     * @return the capacity, a power of two.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Count a visit to the site (x, y).
+     * @param x: the x coordinate of the site
+     * @param y: the y coordinate of the site
+     * @return the number of visits to the site, including this one.
+     * @throws IllegalStateException if the site is new and the table cannot grow to hold it.
+     */
+    public long increment(int x, int y) throws IllegalStateException {
+        return add(WalkPath.pack(x, y), 1);
+    }
+
+    /**
+     * Count a visit to a site.
+     * @param site: the site, as packed by WalkPath.pack()
+     * @return the number of visits to the site, including this one.
+     * @throws IllegalStateException if the site is new and the table cannot grow to hold it.
+     */
+    public long increment(long site) throws IllegalStateException {
+        return add(site, 1);
+    }
+
+    /**
+     * Count a number of visits to the site (x, y) at once.
+     * @param x: the x coordinate of the site
+     * @param y: the y coordinate of the site
+     * @param visits: the number of visits to count
+     * @return the number of visits to the site, including these.
+     * @throws IllegalArgumentException if visits is negative.
+     * @throws IllegalStateException if the site is new and the table cannot grow to hold it.
+     */
+    public long add(int x, int y, long visits) throws IllegalArgumentException, IllegalStateException {
+        return add(WalkPath.pack(x, y), visits);
+    }
+
+    /**
+     * Count a number of visits to a site at once.
+     * @param site: the site, as packed by WalkPath.pack()
+     * @param visits: the number of visits to count
+     * @return the number of visits to the site, including these.
+     * @throws IllegalArgumentException if visits is negative.
+     * @throws IllegalStateException if the site is new and the table cannot grow to hold it.
+     */
+    public long add(long site, long visits) throws IllegalArgumentException, IllegalStateException {
+        if (visits < 0) {
+            throw new IllegalArgumentException("The number of visits must not be negative.");
+        }
+        if (visits == 0) {
+            return get(site);
+        }
+        int slot = _slot(site);
+        while (true) {
+            long count = counts.getLong(slot << 3);
+            if (count == 0) {
+                if (size >= threshold) {
+                    _grow();
+                    return add(site, visits);
+                }
+                keys.putLong(slot << 3, site);
+                counts.putLong(slot << 3, visits);
+                ++size;
+                return visits;
+            }
+            if (keys.getLong(slot << 3) == site) {
+                counts.putLong(slot << 3, count + visits);
+                return count + visits;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Get the number of visits to the site (x, y).
+     * @param x: the x coordinate of the site
+     * @param y: the y coordinate of the site
+     * @return the number of visits, 0 if the site was never visited.
+     */
+    public long get(int x, int y) {
+        return get(WalkPath.pack(x, y));
+    }
+
+    /**
+     * Get the number of visits to a site.
+     * @param site: the site, as packed by WalkPath.pack()
+     * @return the number of visits, 0 if the site was never visited.
+     */
+    public long get(long site) {
+        int slot = _slot(site);
+        while (true) {
+            long count = counts.getLong(slot << 3);
+            if (count == 0 || keys.getLong(slot << 3) == site) {
+                return count;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Determine if the site (x, y) was visited.
+     * @param x: the x coordinate of the site
+     * @param y: the y coordinate of the site
+     * @return true if and only if the site is in this table.
+     */
+    public boolean contains(int x, int y) {
+        return get(x, y) > 0;
+    }
+
+    /**
+     * Give every site in this table, with its visit count, to a visitor, in no particular order.
+     * @param visitor: the visitor to give the sites to
+     */
+    public void forEach(Visitor visitor) {
+        for (int slot = 0; slot < capacity; ++slot) {
+            long count = counts.getLong(slot << 3);
+            if (count > 0) {
+                long site = keys.getLong(slot << 3);
+                visitor.visit(WalkPath.unpackX(site), WalkPath.unpackY(site), count);
+            }
+        }
+    }
+
+    /**
+     * Remove every site from this table, keeping its capacity.
+     */
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        for (int i = 0; i < counts.capacity(); i += Long.BYTES) {
+            counts.putLong(i, 0L);
+        }
+        size = 0;
+    }
+
+    /**
+     * Private helper method to allocate empty buffers of a given capacity.
+     */
+    private void _allocate(int cap) {
+        keys = _buffer(cap * Long.BYTES);
+        counts = _buffer(cap * Long.BYTES);
+        capacity = cap;
+        mask = cap - 1;
+        shift = Long.SIZE - Integer.numberOfTrailingZeros(cap);
+        threshold = cap / 4 * 3;
+    }
+
+    /**
+     * Private helper method to allocate a zeroed buffer, on or off the heap as this table is.
+     */
+    private ByteBuffer _buffer(int bytes) {
+        ByteBuffer bb = offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+        return bb.order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Private helper method to double the capacity of this table, reinserting every site.
+     * @throws IllegalStateException if the table is already at MAX_CAPACITY.
+     */
+    private void _grow() {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("A SiteTable cannot hold more than " + threshold + " sites.");
+        }
+        ByteBuffer oldKeys = keys;
+        ByteBuffer oldCounts = counts;
+        int oldCapacity = capacity;
+        _allocate(capacity * 2);
+        for (int i = 0; i < oldCapacity; ++i) {
+            long count = oldCounts.getLong(i << 3);
+            if (count > 0) {
+                long site = oldKeys.getLong(i << 3);
+                int slot = _slot(site);
+                while (counts.getLong(slot << 3) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys.putLong(slot << 3, site);
+                counts.putLong(slot << 3, count);
+            }
+        }
+    }
+
+    /**
+     * Private helper method giving the home slot of a site: the top bits of a 64 bit mix of it,
+     * so sites along a row or column spread over the whole table.
+     */
+    private int _slot(long site) {
+        long z = site * 0x9E3779B97F4A7C15L;
+        z ^= z >>> 29;
+        z *= 0xBF58476D1CE4E5B9L;
+        return (int) (z >>> shift);
+    }
+
+}
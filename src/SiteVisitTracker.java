@@ -0,0 +1,212 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+/**
+ * The SiteVisitTracker class counts the visits a walk makes to each site as the walk is generated,
+ * in a SiteTable, so walks of hundreds of millions of steps can be tracked without storing their path
+ * or creating an object per step. Walk into it like any other WalkSink:
+ *
+ *    SiteVisitTracker tracker = new SiteVisitTracker(expectedSites, true);
+ *    walker.walk(Nsteps, tracker);
+ *
+ * Besides the visit count of every site, it records the first return time, the step at which
+ * the walk first comes back to its starting site, and the first self-intersection time,
+ * the step at which the walk first comes back to any site it has visited.
+ * Steps are numbered from 0, the first coordinate of the walk.
+ *
+ * A SiteVisitTracker is not thread-safe.
+ */
+public class SiteVisitTracker implements WalkSink {
+
+    private final SiteTable table;
+    private long points;
+    private long start;
+    private long firstReturn = -1;
+    private long firstIntersection = -1;
+    private long maxVisits;
+
+    /**
+     * Create a tracker whose table is on the heap and grows as needed.
+     */
+    public SiteVisitTracker() {
+        this(SiteTable.DEFAULT_EXPECTED_SITES, false);
+    }
+
+    /**
+     * Create a tracker.
+     * @param expectedSites: the number of distinct sites to make room for before the table needs to grow
+     * @param offHeap: whether to hold the table off the heap; see SiteTable
+     * @throws IllegalArgumentException if expectedSites is negative or more than a SiteTable can hold.
+     */
+    public SiteVisitTracker(int expectedSites, boolean offHeap) throws IllegalArgumentException {
+        table = new SiteTable(expectedSites, offHeap);
+    }
+
+    /**
+     * Count a visit to the next coordinate of the walk.
+     * @param x: the x coordinate
+     * @param y: the y coordinate
+     * @throws IllegalStateException if the walk visits more sites than a SiteTable can hold.
+     */
+    @Override
+    public void accept(int x, int y) throws IllegalStateException {
+        long site = WalkPath.pack(x, y);
+        if (points == 0) {
+            start = site;
+        }
+        long visits = table.increment(site);
+        if (visits > 1) {
+            if (firstIntersection < 0) {
+                firstIntersection = points;
+            }
+            if (firstReturn < 0 && site == start) {
+                firstReturn = points;
+            }
+        }
+        maxVisits = Math.max(maxVisits, visits);
+        ++points;
+    }
+
+    /**
+     * Forget the walk tracked so far, so the next coordinate starts a new walk.
+     * The table keeps its capacity.
+     */
+    public void reset() {
+        table.clear();
+        points = 0;
+        firstReturn = -1;
+        firstIntersection = -1;
+        maxVisits = 0;
+    }
+
+    /**
+     * Get the table of visit counts.
+     * @return the table, which later visits update.
+     */
+    public SiteTable getTable() {
+        return table;
+    }
+
+    /**
+     * Get the number of steps walked, one less than the number of coordinates.
+     * @return the number of steps, 0 if there are no coordinates.
+     */
+    public long getStepCount() {
+        return Math.max(points - 1, 0);
+    }
+
+    /**
+     * Get the number of distinct sites visited.
+     * @return the number of sites.
+     */
+    public int getDistinctSites() {
+        return table.size();
+    }
+
+    /**
+     * Get the number of visits to the site (x, y).
+     * @param x: the x coordinate of the site
+     * @param y: the y coordinate of the site
+     * @return the number of visits, 0 if the site was never visited.
+     */
+    public long getVisits(int x, int y) {
+        return table.get(x, y);
+    }
+
+    /**
+     * Get the largest number of visits to any one site.
+     * @return the largest visit count, 0 if there are no coordinates.
+     */
+    public long getMaxVisits() {
+        return maxVisits;
+    }
+
+    /**
+     * Get the step at which the walk first returned to its starting site.
+     * @return the first return time, or -1 if the walk has not returned.
+     */
+    public long getFirstReturnTime() {
+        return firstReturn;
+    }
+
+    /**
+     * Get the step at which the walk first revisited any site.
+     * @return the first self-intersection time, or -1 if the walk is self-avoiding so far.
+     */
+    public long getFirstIntersectionTime() {
+        return firstIntersection;
+    }
+
+    /**
+     * Count the sites by their number of visits.
+     * @return an array whose element c is the number of sites visited exactly c times, for c up to getMaxVisits().
+     * @throws IllegalStateException if a site was visited too often for an array to count up to it.
+     */
+    public long[] getVisitHistogram() throws IllegalStateException {
+        if (maxVisits >= Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("A site was visited " + maxVisits + " times, too many for a histogram.");
+        }
+        long[] histogram = new long[(int) maxVisits + 1];
+        table.forEach((x, y, count) -> ++histogram[(int) count]);
+        return histogram;
+    }
+
+    /**
+     * The main method for tracking the sites visited by a long random walk.
+     * Walks a RandomWalker without storing its path, then prints the number of distinct sites,
+     * the first return and self-intersection times, and how many sites were visited how often.
+     * Command line arguments:
+     *    [0]: the file containing the FloatMatrix for the Markov chain
+     *    [1]: the number of steps to simulate
+     *    [2]: the seed (default 0, the walk WalkSim takes)
+     *    [3]: "heap" to keep the table on the heap (default off-heap)
+     * An off-heap table is limited by -XX:MaxDirectMemorySize, which defaults to the maximum heap size;
+     * 10^8 steps need about 540 MB.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: SiteVisitTracker matrix steps [seed] [heap]");
+            System.exit(1);
+            return;
+        }
+        try {
+            long nSteps = Long.parseLong(args[1]);
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+            boolean offHeap = args.length <= 3 || !args[3].equals("heap");
+            //A 2D walk of N steps visits roughly pi N / ln N sites.
+            double expected = nSteps > 2 ? Math.PI * nSteps / Math.log(nSteps) : 1;
+            int expectedSites = (int) Math.min(expected, SiteTable.MAX_CAPACITY / 4 * 3);
+
+            MarkovChain mc = new MarkovChain(FloatMatrix.fromFile(args[0]), WalkBatch.CARDINALS, seed);
+            SiteVisitTracker tracker = new SiteVisitTracker(expectedSites, offHeap);
+            long begin = System.nanoTime();
+            new RandomWalker(mc).walk(nSteps, tracker);
+            double seconds = (System.nanoTime() - begin) / 1e9;
+
+            System.out.printf("steps: %d (%.1f s, %.1f ns/step, table %s)%n", tracker.getStepCount(), seconds,
+                    seconds * 1e9 / Math.max(nSteps, 1), offHeap ? "off-heap" : "on heap");
+            System.out.printf("distinct sites: %d%n", tracker.getDistinctSites());
+            System.out.printf("first return time: %d%n", tracker.getFirstReturnTime());
+            System.out.printf("first self-intersection time: %d%n", tracker.getFirstIntersectionTime());
+            System.out.printf("most visits to a site: %d%n", tracker.getMaxVisits());
+            long[] histogram = tracker.getVisitHistogram();
+            for (int c = 1; c < histogram.length; ++c) {
+                if (histogram[c] > 0) {
+                    System.out.printf("sites visited %d times: %d%n", c, histogram[c]);
+                }
+            }
+            Metrics.report(System.err);
+        } catch (NumberFormatException nfe) {
+            System.out.println("The number of steps and the seed must be integers.");
+            System.exit(1);
+        } catch (FileNotFoundException fnfe) {
+            System.out.println("Could not find the specified matrix file.");
+            System.out.println(fnfe.toString());
+            System.exit(1);
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+}
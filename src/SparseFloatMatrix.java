@@ -0,0 +1,279 @@
+import java.util.Arrays;
+
+/**
+ * The SparseFloatMatrix class represents an immutable matrix of floating point numbers
+ * stored in compressed sparse row (CSR) form.
+ * Only the non-zero entries are stored: the entries of row i are at positions
+ * rowPtr[i] to rowPtr[i+1]-1 of the colIdx and values arrays, in order of increasing column.
+ * Memory and the cost of row operations are therefore proportional to the
+ * number of non-zero entries rather than rows*columns.
+ */
+public class SparseFloatMatrix implements Matrix {
+
+    private final int nRows;
+    private final int nCols;
+    private final int[] rowPtr;
+    private final int[] colIdx;
+    private final float[] values;
+
+    /**
+     * Create a SparseFloatMatrix from its compressed sparse row arrays.
+     * The arrays are copied.
+     * rowPtr must have rows+1 entries, starting at 0 and never decreasing,
+     * with rowPtr[rows] equal to the number of stored entries.
+     * Within each row, the column indices must be strictly increasing.
+     * @param rows: the number of rows.
+     * @param cols: the number of columns.
+     * @param rowPtr: the position of the first entry of each row, followed by the number of entries.
+     * @param colIdx: the column of each entry.
+     * @param values: the value of each entry.
+     * @throws IllegalArgumentException if the arrays do not describe a valid matrix.
+     */
+    public SparseFloatMatrix(int rows, int cols, int[] rowPtr, int[] colIdx, float[] values)
+            throws IllegalArgumentException {
+        if (rows < 0 || cols < 0 || rowPtr == null || colIdx == null || values == null) {
+            throw new IllegalArgumentException("Invalid SparseFloatMatrix dimensions.");
+        }
+        if (rowPtr.length != rows + 1 || rowPtr[0] != 0
+                || rowPtr[rows] != colIdx.length || colIdx.length != values.length) {
+            throw new IllegalArgumentException("Row pointers do not match the number of entries.");
+        }
+        for (int i = 0; i < rows; ++i) {
+            if (rowPtr[i] > rowPtr[i+1]) {
+                throw new IllegalArgumentException("Row pointers must not decrease.");
+            }
+            for (int k = rowPtr[i]; k < rowPtr[i+1]; ++k) {
+                if (colIdx[k] < 0 || colIdx[k] >= cols || (k > rowPtr[i] && colIdx[k] <= colIdx[k-1])) {
+                    throw new IllegalArgumentException("Column indices must be valid and increasing in row " + i);
+                }
+            }
+        }
+
+        this.nRows = rows;
+        this.nCols = cols;
+        this.rowPtr = Arrays.copyOf(rowPtr, rowPtr.length);
+        this.colIdx = Arrays.copyOf(colIdx, colIdx.length);
+        this.values = Arrays.copyOf(values, values.length);
+    }
+
+    /**
+     * Create a SparseFloatMatrix holding the non-zero entries of a dense FloatMatrix.
+     * @param dense: the matrix to compress.
+     */
+    public SparseFloatMatrix(FloatMatrix dense) {
+        int rows = dense.rows();
+        int cols = dense.columns();
+        int[] rowCols = new int[cols];
+        float[] rowVals = new float[cols];
+
+        int nnz = 0;
+        for (int i = 0; i < rows; ++i) {
+            nnz += dense.getRow(i, rowCols, rowVals);
+        }
+
+        this.nRows = rows;
+        this.nCols = cols;
+        this.rowPtr = new int[rows + 1];
+        this.colIdx = new int[nnz];
+        this.values = new float[nnz];
+        int pos = 0;
+        for (int i = 0; i < rows; ++i) {
+            int count = dense.getRow(i, rowCols, rowVals);
+            System.arraycopy(rowCols, 0, colIdx, pos, count);
+            System.arraycopy(rowVals, 0, values, pos, count);
+            pos += count;
+            rowPtr[i+1] = pos;
+        }
+    }
+
+    /**
+     * A private constructor which takes ownership of already validated arrays.
+     * @param trusted: unused; distinguishes this constructor from the validating one.
+     */
+    private SparseFloatMatrix(int rows, int cols, int[] rowPtr, int[] colIdx, float[] values, boolean trusted) {
+        this.nRows = rows;
+        this.nCols = cols;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.values = values;
+    }
+
+    @Override
+    public int rows() {
+        return nRows;
+    }
+
+    @Override
+    public int columns() {
+        return nCols;
+    }
+
+    /**
+     * Return the number of stored (non-zero) entries in this matrix.
+     * @return the number of stored entries.
+     */
+    public int nonZeros() {
+        return values.length;
+    }
+
+    /**
+     * Get the entry in this matrix at row i and column j.
+     * Entries which are not stored are 0.
+     * This searches the stored entries of row i, taking O(log(entries in row i)) time.
+     * @param i: the 0-indexed row number.
+     * @param j: the 0-indexed column number.
+     * @return the entry of the matrix at (i,j)
+     * @throws IndexOutOfBoundsException if row or column index is invalid.
+     */
+    @Override
+    public float get(int i, int j) throws IndexOutOfBoundsException {
+        _validateIndices(i, j);
+        int k = Arrays.binarySearch(colIdx, rowPtr[i], rowPtr[i+1], j);
+        return k >= 0 ? values[k] : 0.0f;
+    }
+
+    @Override
+    public int getRow(int i, int[] cols, float[] vals) throws IndexOutOfBoundsException {
+        _validateRow(i);
+        int start = rowPtr[i];
+        int count = rowPtr[i+1] - start;
+        System.arraycopy(colIdx, start, cols, 0, count);
+        System.arraycopy(values, start, vals, 0, count);
+        return count;
+    }
+
+    @Override
+    public double rowSum(int i) throws IndexOutOfBoundsException {
+        _validateRow(i);
+        double sum = 0.0;
+        for (int k = rowPtr[i]; k < rowPtr[i+1]; ++k) {
+            sum += values[k];
+        }
+        return sum;
+    }
+
+    @Override
+    public void leftMultiply(double[] vec, double[] result) throws ArithmeticException {
+        if (vec == null || result == null || vec.length != nRows || result.length != nCols) {
+            throw new ArithmeticException("Invalid vector dimensions for product.");
+        }
+        Arrays.fill(result, 0.0);
+        for (int i = 0; i < nRows; ++i) {
+            double v = vec[i];
+            if (v == 0.0) {
+                continue;
+            }
+            for (int k = rowPtr[i]; k < rowPtr[i+1]; ++k) {
+                result[colIdx[k]] += v * values[k];
+            }
+        }
+    }
+
+    /**
+     * Right-multiply this SparseFloatMatrix by the SparseFloatMatrix other.
+     * That is, this * other.
+     * The cost is proportional to the number of multiply-adds between stored entries,
+     * plus the cost of sorting the columns of each row of the product.
+     * Each entry of the product accumulates its terms in order of increasing k,
+     * as FloatMatrix.multiply does.
+     * @param other: the right-hand matrix (i.e. the multiplicand)
+     * @return the product of this SparseFloatMatrix by other.
+     * @throws ArithmeticException if the matrix product is undefined.
+     */
+    public SparseFloatMatrix multiply(SparseFloatMatrix other) throws ArithmeticException {
+        if (other == null || this.columns() != other.rows()) {
+            throw new ArithmeticException("Invalid Matrix dimensions for product.");
+        }
+
+        int P = other.columns();
+        float[] acc = new float[P];      //dense accumulator for the current row
+        int[] marker = new int[P];       //row+1 if the column was touched in the current row
+        int[] touched = new int[P];
+
+        int[] prodPtr = new int[nRows + 1];
+        int[] prodCols = new int[Math.max(16, this.nonZeros())];
+        float[] prodVals = new float[prodCols.length];
+        int pos = 0;
+
+        for (int i = 0; i < nRows; ++i) {
+            int nTouched = 0;
+            for (int ka = rowPtr[i]; ka < rowPtr[i+1]; ++ka) {
+                int k = colIdx[ka];
+                float aik = values[ka];
+                for (int kb = other.rowPtr[k]; kb < other.rowPtr[k+1]; ++kb) {
+                    int j = other.colIdx[kb];
+                    if (marker[j] != i + 1) {
+                        marker[j] = i + 1;
+                        acc[j] = 0.0f;
+                        touched[nTouched++] = j;
+                    }
+                    acc[j] += aik * other.values[kb];
+                }
+            }
+
+            Arrays.sort(touched, 0, nTouched);
+            if (pos + nTouched > prodCols.length) {
+                int cap = Math.max(pos + nTouched, 2 * prodCols.length);
+                prodCols = Arrays.copyOf(prodCols, cap);
+                prodVals = Arrays.copyOf(prodVals, cap);
+            }
+            for (int t = 0; t < nTouched; ++t) {
+                int j = touched[t];
+                if (acc[j] != 0.0f) {
+                    prodCols[pos] = j;
+                    prodVals[pos] = acc[j];
+                    ++pos;
+                }
+            }
+            prodPtr[i+1] = pos;
+        }
+
+        return new SparseFloatMatrix(nRows, P, prodPtr,
+                Arrays.copyOf(prodCols, pos), Arrays.copyOf(prodVals, pos), true);
+    }
+
+    /**
+     * Convert this matrix to a dense FloatMatrix.
+     * @return a FloatMatrix with the same entries as this matrix.
+     */
+    public FloatMatrix toDense() {
+        FloatMatrix dense = new FloatMatrix(nRows, nCols);
+        for (int i = 0; i < nRows; ++i) {
+            for (int k = rowPtr[i]; k < rowPtr[i+1]; ++k) {
+                dense.set(i, colIdx[k], values[k]);
+            }
+        }
+        return dense;
+    }
+
+    /**
+     * A simple private helper method that checks for a valid row index.
+     * @param i: the 0-indexed row number
+     * @throws IndexOutOfBoundsException if i is invalid for this matrix.
+     */
+    private void _validateRow(int i) throws IndexOutOfBoundsException {
+        if (i < 0 || i >= nRows) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /**
+     * A simple private helper method that checks for valid
+     * row and column indices.
+     * @param i: the 0-indexed row number
+     * @param j: the 0-indexed column number
+     * @throws IndexOutOfBoundsException if either i or j is invalid for this matrix.
+     */
+    private void _validateIndices(int i, int j) throws IndexOutOfBoundsException {
+        _validateRow(i);
+        if (j < 0 || j >= nCols) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SparseFloatMatrix[" + nRows + "x" + nCols + ", " + nonZeros() + " non-zeros]";
+    }
+
+}
@@ -1,14 +1,17 @@
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 public class SpiralWalker  {
     private Coordinate curPos;
-    private ArrayList<Coordinate> path;
+    private WalkPath path;
 
 
     public static final int START_X = 0;
     public static final int START_Y = 0;
     public static final int STEP_SIZE = 1; //each step along the lattice moves this many units
+    /* The step in x and y of each direction: North, East, South, West. */
+    private static final int[] DIRECTION_DX = {0, STEP_SIZE, 0, -STEP_SIZE};
+    private static final int[] DIRECTION_DY = {STEP_SIZE, 0, -STEP_SIZE, 0};
 
     private MarkovChain mc;
 
@@ -16,69 +19,98 @@ public class SpiralWalker  {
     public SpiralWalker(MarkovChain chain) {
         mc = chain;
         curPos = new Coordinate(START_X, START_Y);
-        path = new ArrayList<>();
+        path = new WalkPath();
     }
 
 
     public ArrayList<Coordinate> walk(int Nsteps) {
+        return new ArrayList<>(walkCompact(Nsteps).asList());
+    }
+
+    /**
+     * Perform the spiral walk of Nsteps, as walk() does,
+     * but return the path packed in this walker's WalkPath rather than as a list of Coordinates.
+     * @param Nsteps: the number of steps to simulate
+     * @return the path of the walk.
+     */
+    public WalkPath walkCompact(int Nsteps) {
+        path.clear();
+        try {
+            walk(Nsteps, path);
+        } catch (IOException e) {
+            //A WalkPath never throws.
+            throw new UncheckedIOException(e);
+        }
+        return path;
+    }
+
+    /**
+     * Perform the spiral walk of Nsteps, pushing each coordinate into a sink as it is generated
+     * rather than storing the path, so the memory used does not grow with the number of steps.
+     * The sink receives the coordinates walk() would return, in the same order.
+     * This walker's path, as returned by walkCompact(), is not changed.
+     * No object is allocated per step, and only the coordinates moved to are counted as steps in Metrics.
+     * @param Nsteps: the number of steps to simulate
+     * @param sink: the sink to receive the coordinates of the walk
+     * @throws IOException if the sink could not write a coordinate
+     */
+    public void walk(long Nsteps, WalkSink sink) throws IOException {
+        long start = Metrics.startTimer();
         int direction = 0; // 0: North, 1: East, 2: South, 3: West
         int stepsInCurrentDirection = 0;
         int stepsToChangeDirection = 1;
         int directionChanges = 0;
+        int x = curPos.x;
+        int y = curPos.y;
+        long moves = 0;
 
-        path.clear();
-        path.add(new Coordinate(curPos.x, curPos.y));
-
-        for (int i = 0; i < Nsteps; ++i) {
-            if (stepsInCurrentDirection < stepsToChangeDirection) {
-                // Move in the current direction
-                curPos = moveInDirection(curPos, direction);
-                path.add(new Coordinate(curPos.x, curPos.y));
-                stepsInCurrentDirection++;
-            } else {
-                // Change direction
-                direction = (direction + 1) % 4;
-                stepsInCurrentDirection = 0;
-                directionChanges++;
-
-                if (directionChanges % 2 == 0) {
-                    stepsToChangeDirection++;
+        try {
+            sink.accept(x, y);
+
+            for (long i = 0; i < Nsteps; ++i) {
+                if (stepsInCurrentDirection < stepsToChangeDirection) {
+                    // Move in the current direction
+                    x += DIRECTION_DX[direction];
+                    y += DIRECTION_DY[direction];
+                    ++moves;
+                    sink.accept(x, y);
+                    stepsInCurrentDirection++;
+                } else {
+                    // Change direction
+                    direction = (direction + 1) % 4;
+                    stepsInCurrentDirection = 0;
+                    directionChanges++;
+
+                    if (directionChanges % 2 == 0) {
+                        stepsToChangeDirection++;
+                    }
                 }
             }
+        } finally {
+            //The next walk starts where this one stopped, even if the sink failed.
+            curPos = new Coordinate(x, y);
         }
-
-        return path;
+        Metrics.addSteps(moves);
+        Metrics.recordPhase(Metrics.Phase.WALK, start);
     }
-    public void saveWalkToFile(String fname) throws IOException {
-        PrintWriter writer = new PrintWriter(fname);
 
-        if (fname.endsWith(".txt")) {
-            for (Coordinate coord : path) {
-                writer.println(String.format("(%d, %d)", coord.x, coord.y));
-            }
-        } else if (fname.endsWith(".dat")) {
-            StringBuilder sb = new StringBuilder();
-            for (Coordinate coord : path) {
-                if (sb.length() > 0) sb.append(" ");
-                sb.append(coord.x).append(" ").append(coord.y);
-            }
-            writer.println(sb.toString());
+    /**
+     * Perform the spiral walk of Nsteps and write it to a file as it is generated,
+     * in the format saveWalkToFile() would write it, without storing the path.
+     * @param Nsteps: the number of steps to simulate
+     * @param fname: the name of the file in which to write the path
+     * @throws IOException if the file could not be opened, created or written
+     */
+    public void walkToFile(long Nsteps, String fname) throws IOException {
+        try (WalkWriter writer = new WalkWriter(fname)) {
+            walk(Nsteps, writer);
         }
-        writer.close();
-
     }
-    private Coordinate moveInDirection(Coordinate position, int direction) {
-        if (direction == 0) { // North
-            return new Coordinate(position.x, position.y + 1);
-        } else if (direction == 1) { // East
-            return new Coordinate(position.x + 1, position.y);
-        } else if (direction == 2) { // South
-            return new Coordinate(position.x, position.y - 1);
-        } else if (direction == 3) { // West
-            return new Coordinate(position.x - 1, position.y);
-        } else {
-            throw new IllegalArgumentException("Invalid direction");
-        }
+
+    public void saveWalkToFile(String fname) throws IOException {
+        long start = Metrics.startTimer();
+        WalkWriter.write(fname, path);
+        Metrics.recordPhase(Metrics.Phase.SAVE, start);
     }
 
 
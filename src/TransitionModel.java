@@ -0,0 +1,491 @@
+import java.util.Arrays;
+
+/**
+ * The TransitionModel class holds everything about a Markov chain which does not change as it runs:
+ * its validated transition matrix, the labels of its states, and the tables used to sample transitions.
+ * A TransitionModel is immutable once built, so any number of MarkovChains, on any number of threads,
+ * can share a single model; each chain then only holds its current state and random number generator.
+ */
+public class TransitionModel {
+
+    private final Matrix transitionMat;
+    private final int numStates;
+    private final String[] stateLabels;
+
+    /*
+     * The sampling tables cover only the non-zero transition probabilities, in compressed
+     * sparse row form: the entries for state i are at positions rowStart[i] to rowStart[i+1]-1.
+     * nextStates holds the state each entry transitions to, and cumulative holds
+     * the prefix sums of the probabilities within each row, used by the CDF strategy.
+     */
+    private final int[] rowStart;
+    private final int[] nextStates;
+    private final double[] cumulative;
+    /* Alias tables over the same entries, built when first needed. */
+    private volatile AliasTables alias;
+
+    /**
+     * The alias tables of every row; see sampleAlias().
+     * For each non-zero entry of a row, prob holds the probability of keeping
+     * the state of that entry and idx holds the state to take otherwise.
+     */
+    private static class AliasTables {
+        final double[] prob;
+        final int[] idx;
+
+        AliasTables(double[] prob, int[] idx) {
+            this.prob = prob;
+            this.idx = idx;
+        }
+    }
+
+    /**
+     * Create a TransitionModel from a transition matrix, without state labels.
+     * The transition matrix may be a dense FloatMatrix, which is copied,
+     * or an immutable SparseFloatMatrix, which is shared.
+     * @param T: the transition matrix
+     * @throws IllegalArgumentException if T is not a valid transition matrix,
+     *         or if any of its entries is negative or not finite.
+     */
+    public TransitionModel(Matrix T) throws IllegalArgumentException {
+        this(T, null);
+    }
+
+    /**
+     * Create a TransitionModel from a transition matrix and state labels.
+     * The length of the states array should equal the number of columns in T;
+     * states without a label are labelled by their number.
+     * The transition matrix may be a dense FloatMatrix, which is copied,
+     * or an immutable SparseFloatMatrix, which is shared.
+     * @param T: the transition matrix
+     * @param states: the labels for each state, or null for no labels
+     * @throws IllegalArgumentException if T is not a valid transition matrix,
+     *         or if any of its entries is negative or not finite.
+     */
+    public TransitionModel(Matrix T, String[] states) throws IllegalArgumentException {
+        if (!isValidTransitionMatrix(T)) {
+            throw new IllegalArgumentException("Not a valid transition matrix: it must be square, "
+                    + "with every row summing to 1.");
+        }
+
+        if (T instanceof FloatMatrix) {
+            this.transitionMat = new FloatMatrix((FloatMatrix) T);
+        } else {
+            this.transitionMat = T;
+        }
+        numStates = transitionMat.rows();
+
+        if (states == null) {
+            stateLabels = null;
+        } else {
+            stateLabels = new String[numStates];
+            for (int i = 0; i < numStates; ++i) {
+                stateLabels[i] = i < states.length ? states[i] : Integer.toString(i);
+            }
+        }
+
+        //Build the CDF tables: for every row, the non-zero entries of the transition matrix
+        //along with their prefix sums, accumulated in double precision in order of increasing column.
+        int[] cols = new int[transitionMat.columns()];
+        float[] vals = new float[transitionMat.columns()];
+        rowStart = new int[numStates + 1];
+        for (int i = 0; i < numStates; ++i) {
+            rowStart[i + 1] = rowStart[i] + transitionMat.getRow(i, cols, vals);
+        }
+        nextStates = new int[rowStart[numStates]];
+        cumulative = new double[rowStart[numStates]];
+        for (int i = 0; i < numStates; ++i) {
+            int count = transitionMat.getRow(i, cols, vals);
+            double curTotal = 0.0;
+            for (int k = 0; k < count; ++k) {
+                //The row sums cannot catch these: a NaN compares false, and negatives can cancel out.
+                if (!(vals[k] >= 0.0f) || Float.isInfinite(vals[k])) {
+                    throw new IllegalArgumentException("Not a valid transition matrix: entry (" + i + ", "
+                            + cols[k] + ") is " + vals[k] + ", but probabilities must be finite and non-negative.");
+                }
+                curTotal += vals[k];
+                nextStates[rowStart[i] + k] = cols[k];
+                cumulative[rowStart[i] + k] = curTotal;
+            }
+        }
+    }
+
+    /**
+     * Get the number of states of this model.
+     * It is equal to the number of columns/rows in its transition matrix.
+     * @return the number of states.
+     */
+    public int getNumStates() {
+        return numStates;
+    }
+
+    /**
+     * Get the probability of transitioning from state i to state j.
+     * @param i: the 0-indexed state to transition from.
+     * @param j: the 0-indexed state to transition to.
+     * @return the transition probability.
+     * @throws IndexOutOfBoundsException if either state is invalid.
+     */
+    public float getProbability(int i, int j) throws IndexOutOfBoundsException {
+        return transitionMat.get(i, j);
+    }
+
+    /**
+     * Get the label of a state of this model.
+     * If no state labels were provided, return the string representation
+     * of the state's number.
+     * @param state: the 0-indexed state number.
+     * @return the string label for the state.
+     * @throws IndexOutOfBoundsException if state is not a state of this model.
+     */
+    public String getStateLabel(int state) throws IndexOutOfBoundsException {
+        if (state < 0 || state >= numStates) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (stateLabels == null) {
+            return Integer.toString(state);
+        } else {
+            return stateLabels[state];
+        }
+    }
+
+    /**
+     * Sample the state following state i, given a uniform random number r in [0,1),
+     * by searching the cumulative distribution of row i.
+     * The result is the column at which a scan accumulating the row would stop,
+     * so a given r always reproduces the transitions of earlier versions of MarkovChain.
+     * @param i: the current state.
+     * @param r: a uniform random number in [0,1).
+     * @return the next state, or -1 if r exceeds the sum of row i, which rounding may allow.
+     */
+    public int sampleCdf(int i, double r) {
+        //Find the first entry whose prefix sum exceeds r.
+        //Zero entries never change the prefix sum, so they can never be that entry.
+        int lo = rowStart[i];
+        int end = rowStart[i + 1];
+        int hi = end;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (r < cumulative[mid]) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo < end ? nextStates[lo] : -1;
+    }
+
+    /**
+     * Sample the state following state i, given a uniform random number r in [0,1),
+     * using Walker's alias method. r is scaled to [0, k), for the k non-zero entries of row i:
+     * its integer part picks an entry, and its fractional part decides between
+     * the state of that entry and its alias.
+     * The alias tables are built on first use, which takes time and memory proportional
+     * to the number of non-zero transition probabilities.
+     * @param i: the current state.
+     * @param r: a uniform random number in [0,1).
+     * @return the next state, or -1 if row i has no non-zero entries.
+     */
+    public int sampleAlias(int i, double r) {
+        AliasTables tables = getAliasTables();
+        int start = rowStart[i];
+        int count = rowStart[i + 1] - start;
+        if (count == 0) {
+            return -1;
+        }
+        double u = r * count;
+        int j = (int) u;
+        int idx = start + j;
+        return (u - j < tables.prob[idx]) ? nextStates[idx] : tables.idx[idx];
+    }
+
+    /**
+     * Make sure the alias tables used by sampleAlias() are built.
+     */
+    public void prepareAlias() {
+        getAliasTables();
+    }
+
+    /**
+     * A private helper returning the alias tables, building them the first time.
+     * @return the alias tables.
+     */
+    private AliasTables getAliasTables() {
+        AliasTables tables = alias;
+        if (tables == null) {
+            synchronized (this) {
+                tables = alias;
+                if (tables == null) {
+                    tables = _buildAliasTables();
+                    alias = tables;
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * A private helper building the alias tables of every row using Vose's algorithm.
+     * @return the alias tables.
+     */
+    private AliasTables _buildAliasTables() {
+        double[] prob = new double[nextStates.length];
+        int[] alias = new int[nextStates.length];
+        int maxCount = 0;
+        for (int i = 0; i < numStates; ++i) {
+            maxCount = Math.max(maxCount, rowStart[i + 1] - rowStart[i]);
+        }
+        double[] scaled = new double[maxCount];
+        int[] small = new int[maxCount];
+        int[] large = new int[maxCount];
+
+        for (int i = 0; i < numStates; ++i) {
+            int row = rowStart[i];
+            int n = rowStart[i + 1] - row;
+            if (n == 0) {
+                continue;
+            }
+            double sum = cumulative[row + n - 1];
+
+            int nSmall = 0;
+            int nLarge = 0;
+            for (int j = 0; j < n; ++j) {
+                double p = cumulative[row + j] - (j > 0 ? cumulative[row + j - 1] : 0.0);
+                scaled[j] = p * n / sum;
+                if (scaled[j] < 1.0) {
+                    small[nSmall++] = j;
+                } else {
+                    large[nLarge++] = j;
+                }
+            }
+
+            while (nSmall > 0 && nLarge > 0) {
+                int s = small[--nSmall];
+                int l = large[--nLarge];
+                prob[row + s] = scaled[s];
+                alias[row + s] = nextStates[row + l];
+                scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+                if (scaled[l] < 1.0) {
+                    small[nSmall++] = l;
+                } else {
+                    large[nLarge++] = l;
+                }
+            }
+            //Whatever remains has a scaled probability of 1, up to rounding.
+            while (nLarge > 0) {
+                int l = large[--nLarge];
+                prob[row + l] = 1.0;
+                alias[row + l] = nextStates[row + l];
+            }
+            while (nSmall > 0) {
+                int s = small[--nSmall];
+                prob[row + s] = 1.0;
+                alias[row + s] = nextStates[row + s];
+            }
+        }
+
+        return new AliasTables(prob, alias);
+    }
+
+    /**
+     * Compute the probability distribution over the states of this model
+     * after n transitions starting from startState.
+     * Entry j of the returned array is the probability of being in state j
+     * after n transitions; that is, it is row startState of the n'th power of
+     * the transition matrix.
+     * For a dense transition matrix the power is computed by repeated squaring.
+     * A sparse transition matrix would fill in when squared, so instead the
+     * distribution is propagated one transition at a time, in O(n * non-zeros).
+     * @param startState: the state to start from.
+     * @param n: the number of transitions.
+     * @return the distribution over states after n transitions.
+     * @throws IndexOutOfBoundsException if startState is not a state of this model.
+     * @throws IllegalArgumentException if n is negative.
+     */
+    public float[] nStepDistribution(int startState, long n) {
+        if (startState < 0 || startState >= numStates) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (n < 0) {
+            throw new IllegalArgumentException("Number of transitions must not be negative: " + n);
+        }
+
+        float[] dist = new float[numStates];
+        if (transitionMat instanceof FloatMatrix) {
+            FloatMatrix Tn = ((FloatMatrix) transitionMat).pow(n);
+            for (int j = 0; j < numStates; ++j) {
+                dist[j] = Tn.get(startState, j);
+            }
+            return dist;
+        }
+
+        double[] cur = new double[numStates];
+        double[] next = new double[numStates];
+        cur[startState] = 1.0;
+        for (long step = 0; step < n; ++step) {
+            transitionMat.leftMultiply(cur, next);
+            double[] tmp = cur;
+            cur = next;
+            next = tmp;
+        }
+        for (int j = 0; j < numStates; ++j) {
+            dist[j] = (float) cur[j];
+        }
+        return dist;
+    }
+
+    /**
+     * Compute a stationary distribution of this model by power iteration:
+     * a distribution pi over the states with pi * T = pi, for the transition matrix T.
+     * Starting from the uniform distribution, each iteration takes one vector-matrix product
+     * with T, costing O(non-zeros) time and O(states) extra memory, so this scales to large
+     * sparse chains. No matrix-matrix products are formed.
+     *
+     * The iteration is run on the lazy chain (T + I) / 2, which has the same stationary
+     * distributions as T but, unlike T, converges for periodic chains.
+     * The residual after each product is the L1 norm of pi * T - pi, with pi * T renormalized
+     * to sum to 1 since rows of floats sum to 1 only up to rounding. Iteration stops
+     * once it is at most tolerance, or after maxIters products.
+     * A chain with more than one closed class has many stationary distributions;
+     * the one found then depends on the uniform starting distribution.
+     * @param tolerance: the largest acceptable residual.
+     * @param maxIters: the largest number of iterations to perform.
+     * @return the distribution found, with the number of iterations and its residual.
+     * @throws IllegalArgumentException if tolerance is negative or maxIters is not positive.
+     */
+    public StationaryDistribution stationaryDistribution(double tolerance, int maxIters)
+            throws IllegalArgumentException {
+        if (!(tolerance >= 0.0)) {
+            throw new IllegalArgumentException("Tolerance must not be negative: " + tolerance);
+        }
+        if (maxIters < 1) {
+            throw new IllegalArgumentException("Maximum iterations must be positive: " + maxIters);
+        }
+
+        double[] pi = new double[numStates];
+        double[] next = new double[numStates];
+        Arrays.fill(pi, 1.0 / numStates);
+
+        int iters = 0;
+        double residual;
+        while (true) {
+            transitionMat.leftMultiply(pi, next);
+            ++iters;
+            //Rows of floats only sum to 1 up to rounding, so compare pi with pi * T renormalized.
+            double sum = 0.0;
+            for (int j = 0; j < numStates; ++j) {
+                sum += next[j];
+            }
+            residual = 0.0;
+            for (int j = 0; j < numStates; ++j) {
+                next[j] /= sum;
+                residual += Math.abs(next[j] - pi[j]);
+            }
+            if (residual <= tolerance || iters >= maxIters) {
+                break;
+            }
+
+            //Step the lazy chain.
+            for (int j = 0; j < numStates; ++j) {
+                pi[j] = 0.5 * (pi[j] + next[j]);
+            }
+        }
+
+        return new StationaryDistribution(pi, iters, residual, residual <= tolerance);
+    }
+
+    /**
+     * The result of stationaryDistribution().
+     */
+    public static class StationaryDistribution {
+        private final double[] distribution;
+        private final int iterations;
+        private final double residual;
+        private final boolean converged;
+
+        private StationaryDistribution(double[] distribution, int iterations, double residual, boolean converged) {
+            this.distribution = distribution;
+            this.iterations = iterations;
+            this.residual = residual;
+            this.converged = converged;
+        }
+
+        /**
+         * Get the distribution found; entry j is the long-run probability of state j.
+         * @return a copy of the distribution.
+         */
+        public double[] getDistribution() {
+            return distribution.clone();
+        }
+
+        /**
+         * Get the long-run probability of one state.
+         * @param state: the 0-indexed state number.
+         * @return the probability of the state.
+         * @throws IndexOutOfBoundsException if state is invalid.
+         */
+        public double get(int state) throws IndexOutOfBoundsException {
+            return distribution[state];
+        }
+
+        /**
+         * Get the number of iterations, that is vector-matrix products, performed.
+         * @return the number of iterations.
+         */
+        public int getIterations() {
+            return iterations;
+        }
+
+        /**
+         * Get the L1 norm of pi * T - pi for the distribution pi found,
+         * with pi * T renormalized to sum to 1.
+         * @return the residual.
+         */
+        public double getResidual() {
+            return residual;
+        }
+
+        /**
+         * Determine if the residual reached the requested tolerance within the iteration limit.
+         * @return true if and only if the iteration converged.
+         */
+        public boolean isConverged() {
+            return converged;
+        }
+    }
+
+    /**
+     * Determines if a particular Matrix is a valid transition matrix.
+     * If the matrix is square and, for every row in the matrix, the sum of
+     * entries in that row equals 1, return true. Otherwise, return false.
+     * Row sums only visit the stored entries, so this is O(non-zeros) for sparse matrices.
+     * @param M: the matrix to test if it is valid
+     * @return true if and only if the matrix M is a valid transition matrix.
+     */
+    public static boolean isValidTransitionMatrix(Matrix M) {
+        if (M == null) {
+            return false;
+        }
+        if (M.rows() < 1) {
+            return false;
+        }
+
+        int R = M.rows();
+        int C = M.columns();
+        if (R != C) {
+            return false;
+        }
+
+        //Can assume now it is an extant square matrix.
+        for (int i = 0; i < R; ++i) {
+            double sum = M.rowSum(i);
+            if (Math.abs(sum - 1.0) > FloatMatrix.EPSILON) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
@@ -0,0 +1,321 @@
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.imageio.ImageIO;
+
+/**
+ * The VisitHeatmap class counts the visits of any number of walks to each site of the lattice,
+ * for occupancy heatmaps aggregated over many walks.
+ *
+ * The lattice is divided into tiles of TILE_SIZE by TILE_SIZE sites, each an AtomicLongArray
+ * allocated the first time one of its sites is visited, so memory grows with the area the walks visit
+ * rather than with their bounding box. Tiles are found in a ConcurrentHashMap, and counts are incremented
+ * atomically, so walkers on any number of threads can count into one heatmap without locking.
+ *
+ * Walkers feed a heatmap through a Recorder, one per walker or thread, which is a WalkSink:
+ *
+ *    walker.walk(Nsteps, heatmap.newRecorder());
+ *
+ * A Recorder keeps the tile of the last site it counted, and walks step to a neighbouring site,
+ * so most steps go straight to the tile's array without looking it up.
+ *
+ * A heatmap is exported with write(), as a CSV file of the visited sites and their counts,
+ * or as a PGM or PNG grayscale image of the bounding box of the visited sites, with y increasing upwards.
+ * Counts are longs, so even the origin of thousands of walks of billions of steps cannot overflow;
+ * a tile takes 32 KiB.
+ */
+public class VisitHeatmap {
+
+    public static final int TILE_SHIFT = 6;
+    public static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+
+    /* The tiles, keyed by WalkPath.pack() of the tile coordinates (x >> TILE_SHIFT, y >> TILE_SHIFT). */
+    private final ConcurrentHashMap<Long, AtomicLongArray> tiles;
+
+    /**
+     * Counts the sites of a walk into a heatmap; see VisitHeatmap.newRecorder().
+     * A Recorder is not thread-safe, but any number of Recorders can count into one heatmap concurrently.
+     */
+    public final class Recorder implements WalkSink {
+        private long tileKey;
+        private AtomicLongArray tile;
+
+        private Recorder() {
+        }
+
+        /**
+         * Count a visit to the next coordinate of a walk.
+         * @param x: the x coordinate
+         * @param y: the y coordinate
+         */
+        @Override
+        public void accept(int x, int y) {
+            long key = WalkPath.pack(x >> TILE_SHIFT, y >> TILE_SHIFT);
+            if (tile == null || key != tileKey) {
+                tile = _tile(key);
+                tileKey = key;
+            }
+            tile.getAndIncrement(_index(x, y));
+        }
+    }
+
+    /**
+     * Create an empty heatmap.
+     */
+    public VisitHeatmap() {
+        tiles = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Create a Recorder counting walks into this heatmap.
+     * @return the new Recorder.
+     */
+    public Recorder newRecorder() {
+        return new Recorder();
+    }
+
+    /**
+     * Count a visit to the site (x, y). A Recorder counts the sites of a walk faster.
+     * @param x: the x coordinate of the site
+     * @param y: the y coordinate of the site
+     */
+    public void increment(int x, int y) {
+        _tile(WalkPath.pack(x >> TILE_SHIFT, y >> TILE_SHIFT)).getAndIncrement(_index(x, y));
+    }
+
+    /**
+     * Count a number of visits to the site (x, y) at once, for instance from another heatmap.
+     * @param x: the x coordinate of the site
+     * @param y: the y coordinate of the site
+     * @param visits: the number of visits to count
+     * @throws IllegalArgumentException if visits is negative.
+     */
+    public void add(int x, int y, long visits) throws IllegalArgumentException {
+        if (visits < 0) {
+            throw new IllegalArgumentException("The number of visits must not be negative.");
+        }
+        if (visits > 0) {
+            _tile(WalkPath.pack(x >> TILE_SHIFT, y >> TILE_SHIFT)).getAndAdd(_index(x, y), visits);
+        }
+    }
+
+    /**
+     * Get the number of visits to the site (x, y).
+     * @param x: the x coordinate of the site
+     * @param y: the y coordinate of the site
+     * @return the number of visits, 0 if the site was never visited.
+     */
+    public long get(int x, int y) {
+        AtomicLongArray tile = tiles.get(WalkPath.pack(x >> TILE_SHIFT, y >> TILE_SHIFT));
+        return tile == null ? 0 : tile.get(_index(x, y));
+    }
+
+    /**
+     * Get the number of tiles allocated, each of TILE_SIZE * TILE_SIZE counters.
+     * @return the number of tiles.
+     */
+    public int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * Get the total number of visits to every site.
+     * @return the number of visits.
+     */
+    public long getTotalVisits() {
+        long total = 0;
+        for (AtomicLongArray tile : tiles.values()) {
+            for (int i = 0; i < tile.length(); ++i) {
+                total += tile.get(i);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Write this heatmap to a file in the format given by its extension:
+     * .csv for a line "x,y,count" per visited site, after a header line, the sites grouped by tile;
+     * .pgm for a binary (P5) 8 bit PGM image; or .png for an 8 bit grayscale PNG image.
+     * An image covers the bounding box of the visited sites, one pixel per site, with the top row
+     * the largest y. Unvisited sites are black, and visited sites brighten with the logarithm
+     * of their count, the most visited being white. An image of no visited sites is 1 by 1.
+     * Counts incremented while writing may or may not be included.
+     * @param fname: the name of the file to write
+     * @throws IOException if the file could not be written
+     * @throws IllegalArgumentException if the extension is not .csv, .pgm or .png.
+     * @throws IllegalStateException if an image of the bounding box would be too large.
+     */
+    public void write(String fname) throws IOException, IllegalArgumentException, IllegalStateException {
+        if (fname.endsWith(".csv")) {
+            _writeCsv(fname);
+        } else if (fname.endsWith(".pgm")) {
+            _writePgm(fname);
+        } else if (fname.endsWith(".png")) {
+            _writePng(fname);
+        } else {
+            throw new IllegalArgumentException("A heatmap can only be written to a .csv, .pgm or .png file: "
+                    + fname);
+        }
+    }
+
+    /**
+     * Private helper method to find the tile of a key, allocating it if it does not exist.
+     */
+    private AtomicLongArray _tile(long key) {
+        AtomicLongArray tile = tiles.get(key);
+        if (tile == null) {
+            tile = tiles.computeIfAbsent(key, k -> new AtomicLongArray(TILE_SIZE * TILE_SIZE));
+        }
+        return tile;
+    }
+
+    /**
+     * Private helper method giving the index of a site within its tile, in row-major order.
+     */
+    private static int _index(int x, int y) {
+        return ((y & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK);
+    }
+
+    /**
+     * Private helper method listing the tiles ordered by their y and then x tile coordinate.
+     */
+    private List<Map.Entry<Long, AtomicLongArray>> _sortedTiles() {
+        List<Map.Entry<Long, AtomicLongArray>> sorted = new ArrayList<>(tiles.entrySet());
+        Comparator<Map.Entry<Long, AtomicLongArray>> byY = Comparator.comparingInt(e -> WalkPath.unpackY(e.getKey()));
+        sorted.sort(byY.thenComparingInt(e -> WalkPath.unpackX(e.getKey())));
+        return sorted;
+    }
+
+    /**
+     * Private helper method to write the visited sites as CSV; see write().
+     */
+    private void _writeCsv(String fname) throws IOException {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(fname, StandardCharsets.US_ASCII), 1 << 16)) {
+            out.write("x,y,count");
+            out.newLine();
+            for (Map.Entry<Long, AtomicLongArray> e : _sortedTiles()) {
+                int x0 = WalkPath.unpackX(e.getKey()) << TILE_SHIFT;
+                int y0 = WalkPath.unpackY(e.getKey()) << TILE_SHIFT;
+                AtomicLongArray tile = e.getValue();
+                for (int i = 0; i < tile.length(); ++i) {
+                    long count = tile.get(i);
+                    if (count > 0) {
+                        out.write(Integer.toString(x0 + (i & TILE_MASK)));
+                        out.write(',');
+                        out.write(Integer.toString(y0 + (i >> TILE_SHIFT)));
+                        out.write(',');
+                        out.write(Long.toString(count));
+                        out.newLine();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Private helper method to write the heatmap as a binary PGM image; see write().
+     */
+    private void _writePgm(String fname) throws IOException {
+        Image image = _toImage();
+        try (OutputStream out = new FileOutputStream(fname)) {
+            out.write(("P5\n" + image.width + " " + image.height + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(image.pixels);
+        }
+    }
+
+    /**
+     * Private helper method to write the heatmap as a PNG image; see write().
+     */
+    private void _writePng(String fname) throws IOException {
+        Image image = _toImage();
+        BufferedImage png = new BufferedImage(image.width, image.height, BufferedImage.TYPE_BYTE_GRAY);
+        png.getRaster().setDataElements(0, 0, image.width, image.height, image.pixels);
+        if (!ImageIO.write(png, "png", new File(fname))) {
+            throw new IOException("No PNG writer is available.");
+        }
+    }
+
+    /**
+     * The gray level of every pixel of an image, row by row from the top.
+     */
+    private static final class Image {
+        final int width;
+        final int height;
+        final byte[] pixels;
+
+        Image(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.pixels = new byte[width * height];
+        }
+    }
+
+    /**
+     * Private helper method to render the bounding box of the visited sites as an image; see write().
+     * @throws IllegalStateException if the image would have more pixels than an array can hold.
+     */
+    private Image _toImage() {
+        long minX = Long.MAX_VALUE;
+        long maxX = Long.MIN_VALUE;
+        long minY = Long.MAX_VALUE;
+        long maxY = Long.MIN_VALUE;
+        long max = 0;
+        List<Map.Entry<Long, AtomicLongArray>> sorted = _sortedTiles();
+        for (Map.Entry<Long, AtomicLongArray> e : sorted) {
+            long x0 = (long) WalkPath.unpackX(e.getKey()) << TILE_SHIFT;
+            long y0 = (long) WalkPath.unpackY(e.getKey()) << TILE_SHIFT;
+            AtomicLongArray tile = e.getValue();
+            for (int i = 0; i < tile.length(); ++i) {
+                long count = tile.get(i);
+                if (count > 0) {
+                    minX = Math.min(minX, x0 + (i & TILE_MASK));
+                    maxX = Math.max(maxX, x0 + (i & TILE_MASK));
+                    minY = Math.min(minY, y0 + (i >> TILE_SHIFT));
+                    maxY = Math.max(maxY, y0 + (i >> TILE_SHIFT));
+                    max = Math.max(max, count);
+                }
+            }
+        }
+        if (max == 0) {
+            return new Image(1, 1);
+        }
+        long width = maxX - minX + 1;
+        long height = maxY - minY + 1;
+        if (width * height > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("A heatmap image of " + width + " by " + height + " is too large.");
+        }
+
+        Image image = new Image((int) width, (int) height);
+        double scale = 255.0 / Math.log1p(max);
+        for (Map.Entry<Long, AtomicLongArray> e : sorted) {
+            long x0 = (long) WalkPath.unpackX(e.getKey()) << TILE_SHIFT;
+            long y0 = (long) WalkPath.unpackY(e.getKey()) << TILE_SHIFT;
+            AtomicLongArray tile = e.getValue();
+            for (int i = 0; i < tile.length(); ++i) {
+                //A count incremented since the bounds were found is capped at the maximum found.
+                long count = Math.min(tile.get(i), max);
+                if (count > 0) {
+                    long col = x0 + (i & TILE_MASK) - minX;
+                    long row = maxY - (y0 + (i >> TILE_SHIFT));
+                    if (col >= 0 && col < width && row >= 0 && row < height) {
+                        image.pixels[(int) (row * width + col)] = (byte) Math.round(Math.log1p(count) * scale);
+                    }
+                }
+            }
+        }
+        return image;
+    }
+
+}
@@ -0,0 +1,283 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A main class for running many random walks without user interaction or a GUI.
+ * Each job reads a transition matrix, walks a walker of some type for some number of steps
+ * from a seed, and streams the walk to an output file in the format given by its extension
+ * (see WalkWriter). All jobs run in one JVM, so the JIT warms up once for the whole batch,
+ * and each matrix file is read and validated only once, however many jobs use it.
+ * AWT is never loaded, and java.awt.headless is set so nothing can open a window.
+ *
+ * A job is given by five values: the matrix file, the walker type (0 or "random",
+ * 1 or "spiral", 2 or "breadcrumb", as in WalkSim), the number of steps, the seed,
+ * and the output file. A job with seed 0 writes the same walk WalkSim would.
+ *
+ * A job file holds one job per line, its values separated by whitespace.
+ * Blank lines and lines starting with '#' are ignored.
+ */
+public class WalkBatch {
+
+    public static final String[] CARDINALS = {"N", "E", "S", "W"};
+    public static final int VALUES_PER_JOB = 5;
+
+    /**
+     * A single walk to run and save.
+     */
+    public static class Job {
+        public final String matrixFile;
+        public final WalkEnsemble.WalkerType walkerType;
+        public final long nSteps;
+        public final long seed;
+        public final String outputFile;
+
+        /**
+         * Create a job.
+         * @param matrixFile: the file containing the transition matrix
+         * @param walkerType: the type of walker
+         * @param nSteps: the number of steps to walk
+         * @param seed: the random number generator seed of the walk
+         * @param outputFile: the file in which to save the walk
+         * @throws IllegalArgumentException if any value is null or nSteps is negative.
+         */
+        public Job(String matrixFile, WalkEnsemble.WalkerType walkerType, long nSteps, long seed,
+                   String outputFile) throws IllegalArgumentException {
+            if (matrixFile == null || walkerType == null || outputFile == null) {
+                throw new IllegalArgumentException("A job needs a matrix file, walker type and output file.");
+            }
+            if (nSteps < 0) {
+                throw new IllegalArgumentException("The number of steps must not be negative: " + nSteps);
+            }
+            this.matrixFile = matrixFile;
+            this.walkerType = walkerType;
+            this.nSteps = nSteps;
+            this.seed = seed;
+            this.outputFile = outputFile;
+        }
+
+        /**
+         * Parse a job from its five values, starting at values[from].
+         * @param values: the values of one or more jobs
+         * @param from: the index of the job's matrix file
+         * @return the job.
+         * @throws IllegalArgumentException if there are fewer than five values or a value is invalid.
+         */
+        public static Job parse(String[] values, int from) throws IllegalArgumentException {
+            if (values.length - from < VALUES_PER_JOB) {
+                throw new IllegalArgumentException("A job needs " + VALUES_PER_JOB
+                        + " values: matrix walkerType steps seed output");
+            }
+            return new Job(values[from], parseWalkerType(values[from + 1]),
+                    _parseLong(values[from + 2], "number of steps"), _parseLong(values[from + 3], "seed"),
+                    values[from + 4]);
+        }
+
+        @Override
+        public String toString() {
+            return matrixFile + " " + walkerType + " " + nSteps + " steps seed " + seed + " -> " + outputFile;
+        }
+    }
+
+    private final Map<String, TransitionModel> models;
+
+    /**
+     * Create a WalkBatch with an empty cache of transition models.
+     */
+    public WalkBatch() {
+        models = new HashMap<>();
+    }
+
+    /**
+     * Parse a walker type, either its number as used by WalkSim or its name, ignoring case.
+     * @param value: the walker type
+     * @return the walker type.
+     * @throws IllegalArgumentException if value is not a walker type.
+     */
+    public static WalkEnsemble.WalkerType parseWalkerType(String value) throws IllegalArgumentException {
+        WalkEnsemble.WalkerType[] types = WalkEnsemble.WalkerType.values();
+        for (WalkEnsemble.WalkerType type : types) {
+            if (type.name().equalsIgnoreCase(value) || Integer.toString(type.ordinal()).equals(value)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown walker type: " + value);
+    }
+
+    /**
+     * Parse the jobs given directly as command line arguments, five values per job.
+     * @param args: the values of the jobs
+     * @return the jobs, in order.
+     * @throws IllegalArgumentException if the number of values is not a multiple of five or a value is invalid.
+     */
+    public static List<Job> parseJobs(String[] args) throws IllegalArgumentException {
+        if (args.length % VALUES_PER_JOB != 0) {
+            throw new IllegalArgumentException("Each job needs " + VALUES_PER_JOB
+                    + " values: matrix walkerType steps seed output");
+        }
+        List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < args.length; i += VALUES_PER_JOB) {
+            jobs.add(Job.parse(args, i));
+        }
+        return jobs;
+    }
+
+    /**
+     * Read the jobs of a job file.
+     * @param fname: the name of the job file
+     * @return the jobs, in order.
+     * @throws IOException if the file could not be read
+     * @throws IllegalArgumentException if a line does not hold exactly one valid job.
+     */
+    public static List<Job> readJobFile(String fname) throws IOException, IllegalArgumentException {
+        List<Job> jobs = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(fname))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                ++lineNumber;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] values = line.split("\\s+");
+                try {
+                    if (values.length != VALUES_PER_JOB) {
+                        throw new IllegalArgumentException("Expected " + VALUES_PER_JOB
+                                + " values: matrix walkerType steps seed output");
+                    }
+                    jobs.add(Job.parse(values, 0));
+                } catch (IllegalArgumentException iae) {
+                    throw new IllegalArgumentException(fname + ":" + lineNumber + ": " + iae.getMessage());
+                }
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Get the transition model of a matrix file, reading it only the first time it is needed.
+     * @param matrixFile: the file containing the transition matrix
+     * @return the transition model, with the cardinal directions as state labels.
+     * @throws IOException if the file could not be read
+     * @throws IllegalArgumentException if the file does not hold a valid transition matrix of 4 states.
+     */
+    public TransitionModel getModel(String matrixFile) throws IOException, IllegalArgumentException {
+        TransitionModel model = models.get(matrixFile);
+        if (model == null) {
+            FloatMatrix T = FloatMatrix.fromFile(matrixFile);
+            if (T.rows() != CARDINALS.length) {
+                throw new IllegalArgumentException("Walker MarkovChain should have " + CARDINALS.length
+                        + " states, not " + T.rows() + ".");
+            }
+            model = new TransitionModel(T, CARDINALS);
+            models.put(matrixFile, model);
+        }
+        return model;
+    }
+
+    /**
+     * Run a job, streaming its walk to its output file.
+     * @param job: the job to run
+     * @throws IOException if the matrix file could not be read or the output file could not be written
+     * @throws IllegalArgumentException if the matrix file does not hold a valid transition matrix of 4 states,
+     *         or the walk is too long for its walker type.
+     */
+    public void run(Job job) throws IOException, IllegalArgumentException {
+        MarkovChain mc = new MarkovChain(getModel(job.matrixFile), job.seed);
+        if (job.walkerType == WalkEnsemble.WalkerType.SPIRAL) {
+            new SpiralWalker(mc).walkToFile(job.nSteps, job.outputFile);
+        } else if (job.walkerType == WalkEnsemble.WalkerType.BREADCRUMB) {
+            new BreadCrumbWalker(mc).walkToFile(job.nSteps, job.outputFile);
+        } else {
+            new RandomWalker(mc).walkToFile(job.nSteps, job.outputFile);
+        }
+    }
+
+    /**
+     * Run every job in order, reporting each on a PrintStream.
+     * A job which fails is reported and the following jobs still run.
+     * @param jobs: the jobs to run
+     * @param out: the stream on which to report the jobs
+     * @return the number of jobs which failed.
+     */
+    public int runAll(List<Job> jobs, PrintStream out) {
+        int failed = 0;
+        long batchStart = System.nanoTime();
+        for (int i = 0; i < jobs.size(); ++i) {
+            Job job = jobs.get(i);
+            long start = System.nanoTime();
+            try {
+                run(job);
+                out.printf("job %d: %s (%.1f ms)%n", i + 1, job, (System.nanoTime() - start) / 1e6);
+            } catch (IOException | RuntimeException e) {
+                ++failed;
+                out.printf("job %d failed: %s%n    %s%n", i + 1, job, e.getMessage());
+            }
+        }
+        out.printf("%d of %d jobs succeeded in %.1f ms%n", jobs.size() - failed, jobs.size(),
+                (System.nanoTime() - batchStart) / 1e6);
+        return failed;
+    }
+
+    /**
+     * The main method for a batch of random walks.
+     * Command line arguments, either:
+     *    -f jobFile: run the jobs of a job file
+     * or:
+     *    [0..]: the jobs to run, five values each: matrix walkerType steps seed output
+     * Exits with status 1 if the jobs could not be read or any job failed.
+     * If the system property walksim.metrics is true, a summary of the metrics of all jobs
+     * is printed to standard error at the end; see Metrics.
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        List<Job> jobs;
+        try {
+            if (args.length == 2 && args[0].equals("-f")) {
+                jobs = readJobFile(args[1]);
+            } else if (args.length > 0) {
+                jobs = parseJobs(args);
+            } else {
+                System.out.println("Usage: WalkBatch -f jobFile");
+                System.out.println("   or: WalkBatch matrix walkerType steps seed output [matrix walkerType ...]");
+                System.exit(1);
+                return;
+            }
+        } catch (IOException ioe) {
+            System.out.println("Could not read the job file: " + args[1]);
+            System.out.println(ioe.getMessage());
+            System.exit(1);
+            return;
+        } catch (IllegalArgumentException iae) {
+            System.out.println("Invalid job: " + iae.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        int failed = new WalkBatch().runAll(jobs, System.out);
+        Metrics.report(System.err);
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Private helper method to parse a long value of a job.
+     * @throws IllegalArgumentException if value is not an integer.
+     */
+    private static long _parseLong(String value, String name) throws IllegalArgumentException {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("The " + name + " is not an integer: " + value);
+        }
+    }
+
+}
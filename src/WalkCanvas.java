@@ -6,9 +6,11 @@ import java.util.ArrayList;
 
 /**
  * An awt canvas for rendering a walk path on a lattice grid.
+ * As a WalkSink, it adds each streamed coordinate as a point;
+ * the canvas should first be prepared for the extents of the walk.
  * @author Alex Brandt; abrandt@dal.ca
  */
-public class WalkCanvas extends Canvas {
+public class WalkCanvas extends Canvas implements WalkSink {
 
     private ArrayList<Coordinate> drawCoords;
     private ArrayList<Color> drawColors;
@@ -128,6 +130,16 @@ public class WalkCanvas extends Canvas {
         this.drawColors.add(_getLineSegmentColor(drawCoords.size()-1));
     }
 
+    /**
+     * Add the coordinate (x, y) of a streamed walk as the next point, as addPoint() does.
+     * @param x: the first coordinate
+     * @param y: the second coordinate
+     */
+    @Override
+    public void accept(int x, int y) {
+        addPoint(new Coordinate(x, y));
+    }
+
     public void clearPoints() {
         this.drawCoords.clear();
         this.drawColors.clear();
@@ -0,0 +1,360 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * The WalkEnsemble class runs many independent walkers on the same transition matrix,
+ * in parallel, for Monte Carlo estimates over the ensemble of their walks.
+ *
+ * Walkers are numbered 0 to walkers-1. Walker i walks with a MarkovChain whose generator is
+ * a SplittableRandom seeded by walkerSeed(masterSeed, i), starting from state 0 and the walker's
+ * default starting point, so it walks exactly the path of a single walker created with that generator.
+ * The results are therefore the same whatever the number of threads or the executor used.
+ *
+ * The walkers are split into tasks of consecutive walkers. A MarkovChain is not thread-safe,
+ * so each task creates its own MarkovChain on the ensemble's shared TransitionModel,
+ * which costs no copy of the matrix, and its own walker. The chain is reseeded with walkerSeed()
+ * for each walker the task runs, which gives it a new SplittableRandom; no two tasks share a generator,
+ * so they do not contend. MarkovChain.split() is deliberately not used here: the stream of a split
+ * generator depends on how many splits came before it, whereas seeding keeps walker i's path
+ * the same whatever the tasks or threads.
+ *
+ * When only aggregate statistics of the walks are needed, runStatistics() streams every walk
+ * into a WalkStatistics per task and merges them, so no path is stored; stream() streams every walk
+ * into a WalkSink per task, for instance a VisitHeatmap.Recorder.
+ */
+public class WalkEnsemble {
+
+    /**
+     * The kinds of walker an ensemble can run, as selected in WalkSim.
+     */
+    public enum WalkerType { RANDOM, SPIRAL, BREADCRUMB }
+
+    /**
+     * Receives the path of each walker of an ensemble as soon as it has walked.
+     * It is called concurrently from the ensemble's worker threads, and must be thread-safe.
+     */
+    public interface PathConsumer {
+        /**
+         * Accept the path of a walker. The path is reused once this method returns.
+         * @param walker: the number of the walker
+         * @param path: the path the walker walked
+         */
+        void accept(int walker, WalkPath path);
+    }
+
+    /* The number of consecutive walkers run by each task. */
+    public static final int WALKERS_PER_TASK = 64;
+
+    private final TransitionModel model;
+    private final WalkerType type;
+    private final int nSteps;
+    private final int nWalkers;
+    private final long masterSeed;
+
+    /**
+     * Create an ensemble of walkers.
+     * @param T: the transition matrix of every walker's Markov chain; a FloatMatrix is copied.
+     * @param states: the labels for each state of the Markov chain
+     * @param type: the kind of walker to run
+     * @param nSteps: the number of steps each walker walks
+     * @param nWalkers: the number of walkers
+     * @param masterSeed: the seed from which the seed of every walker is derived
+     * @throws IllegalArgumentException if the number of steps or walkers is negative,
+     *         or T is not a valid transition matrix.
+     */
+    public WalkEnsemble(Matrix T, String[] states, WalkerType type, int nSteps, int nWalkers, long masterSeed)
+            throws IllegalArgumentException {
+        if (nSteps < 0 || nWalkers < 0) {
+            throw new IllegalArgumentException("Number of steps and walkers must not be negative.");
+        }
+        this.model = new TransitionModel(T, states);
+        this.type = type;
+        this.nSteps = nSteps;
+        this.nWalkers = nWalkers;
+        this.masterSeed = masterSeed;
+    }
+
+    /**
+     * Derive the seed of walker i from the master seed of an ensemble.
+     * This is the i+1'th output of a SplitMix64 generator started at masterSeed,
+     * so the seeds of different walkers are well mixed even for consecutive master seeds.
+     * @param masterSeed: the master seed of the ensemble.
+     * @param i: the number of the walker.
+     * @return the seed for walker i.
+     */
+    public static long walkerSeed(long masterSeed, int i) {
+        long z = masterSeed + (i + 1L) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Get the number of walkers in this ensemble.
+     * @return the number of walkers.
+     */
+    public int getNumWalkers() {
+        return nWalkers;
+    }
+
+    /**
+     * Get the number of steps each walker of this ensemble walks.
+     * @return the number of steps.
+     */
+    public int getNumSteps() {
+        return nSteps;
+    }
+
+    /**
+     * Run the ensemble on a new pool of one thread per available processor.
+     * @return the endpoints of the walks.
+     * @throws InterruptedException if interrupted while waiting for the walkers.
+     */
+    public Result run() throws InterruptedException {
+        return run(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Run the ensemble on a new pool of parallelism threads, which is shut down afterwards.
+     * @param parallelism: the number of threads to use.
+     * @return the endpoints of the walks.
+     * @throws IllegalArgumentException if parallelism is not positive.
+     * @throws InterruptedException if interrupted while waiting for the walkers.
+     */
+    public Result run(int parallelism) throws IllegalArgumentException, InterruptedException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive.");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            return run(executor, null);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Run the ensemble on the given executor, which is left running.
+     * If consumer is not null, it is given the path of every walker as it completes.
+     * @param executor: the executor to run the walkers' tasks on.
+     * @param consumer: receives the path of each walker; may be null.
+     * @return the endpoints of the walks.
+     * @throws InterruptedException if interrupted while waiting for the walkers.
+     */
+    public Result run(ExecutorService executor, PathConsumer consumer) throws InterruptedException {
+        Result result = new Result(nWalkers);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < nWalkers; start += WALKERS_PER_TASK) {
+            int first = start;
+            int last = Math.min(start + WALKERS_PER_TASK, nWalkers);
+            tasks.add(() -> {
+                _runWalkers(first, last, result, consumer);
+                return null;
+            });
+        }
+        _invokeAll(executor, tasks);
+        return result;
+    }
+
+    /**
+     * Run the ensemble on the given executor, which is left running, accumulating the statistics
+     * of every walk rather than storing paths. Each task streams its walkers into a WalkStatistics
+     * like the given one, and these are merged into it in the order of the walkers,
+     * so the result does not depend on the number of threads.
+     * @param executor: the executor to run the walkers' tasks on.
+     * @param stats: the statistics to add every walk to; a walk in progress is ended first.
+     * @return stats.
+     * @throws InterruptedException if interrupted while waiting for the walkers.
+     */
+    public WalkStatistics runStatistics(ExecutorService executor, WalkStatistics stats) throws InterruptedException {
+        List<Callable<WalkStatistics>> tasks = new ArrayList<>();
+        for (int start = 0; start < nWalkers; start += WALKERS_PER_TASK) {
+            int first = start;
+            int last = Math.min(start + WALKERS_PER_TASK, nWalkers);
+            tasks.add(() -> {
+                WalkStatistics taskStats = WalkStatistics.emptyLike(stats);
+                _streamWalkers(first, last, taskStats, taskStats::newWalk);
+                taskStats.newWalk();
+                return taskStats;
+            });
+        }
+        for (WalkStatistics taskStats : _invokeAll(executor, tasks)) {
+            stats.merge(taskStats);
+        }
+        return stats;
+    }
+
+    /**
+     * Run the ensemble on the given executor, which is left running, streaming every walk into a sink
+     * rather than storing paths. Each task gets a sink of its own from sinks, and streams its walkers
+     * into it one after another, so a sink is only used by one thread at a time.
+     * A sink is not told where one walk ends and the next begins.
+     * @param executor: the executor to run the walkers' tasks on.
+     * @param sinks: creates the sink of each task; it is called concurrently, and must be thread-safe.
+     * @throws UncheckedIOException if a sink throws an IOException.
+     * @throws InterruptedException if interrupted while waiting for the walkers.
+     */
+    public void stream(ExecutorService executor, Supplier<? extends WalkSink> sinks) throws InterruptedException {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < nWalkers; start += WALKERS_PER_TASK) {
+            int first = start;
+            int last = Math.min(start + WALKERS_PER_TASK, nWalkers);
+            tasks.add(() -> {
+                _streamWalkers(first, last, sinks.get(), null);
+                return null;
+            });
+        }
+        _invokeAll(executor, tasks);
+    }
+
+    /**
+     * A private helper which runs tasks on an executor and returns their results in order,
+     * rethrowing the exception of the first task which failed.
+     */
+    private static <T> List<T> _invokeAll(ExecutorService executor, List<Callable<T>> tasks)
+            throws InterruptedException {
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : executor.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * A private helper for run() which walks walkers first to last-1 on the calling thread.
+     */
+    private void _runWalkers(int first, int last, Result result, PathConsumer consumer) {
+        MarkovChain mc = new MarkovChain(model, new SplittableRandom(0)); //reseeded with walkerSeed() for each walker
+        RandomWalker walker = null;
+        if (type == WalkerType.RANDOM) {
+            walker = new RandomWalker(mc);
+        } else if (type == WalkerType.BREADCRUMB) {
+            walker = new BreadCrumbWalker(mc);
+        }
+
+        for (int i = first; i < last; ++i) {
+            WalkPath path;
+            if (walker != null) {
+                mc.setState(0);
+                mc.setSeed(walkerSeed(masterSeed, i));
+                path = walker.walkCompact(nSteps);
+            } else {
+                //A SpiralWalker keeps its position between walks, so each walker needs a new one.
+                path = new SpiralWalker(mc).walkCompact(nSteps);
+            }
+
+            if (path.size() > 0) {
+                result.endX[i] = path.getX(path.size() - 1);
+                result.endY[i] = path.getY(path.size() - 1);
+            } else {
+                result.endX[i] = RandomWalker.START_X;
+                result.endY[i] = RandomWalker.START_Y;
+            }
+            if (consumer != null) {
+                consumer.accept(i, path);
+            }
+        }
+    }
+
+    /**
+     * A private helper for runStatistics() and stream() which streams walkers first to last-1 into a sink
+     * on the calling thread, running newWalk, if not null, before each walker.
+     */
+    private void _streamWalkers(int first, int last, WalkSink sink, Runnable newWalk) {
+        MarkovChain mc = new MarkovChain(model, new SplittableRandom(0)); //reseeded with walkerSeed() for each walker
+        RandomWalker walker = null;
+        if (type == WalkerType.RANDOM) {
+            walker = new RandomWalker(mc);
+        } else if (type == WalkerType.BREADCRUMB) {
+            walker = new BreadCrumbWalker(mc);
+        }
+
+        try {
+            for (int i = first; i < last; ++i) {
+                if (newWalk != null) {
+                    newWalk.run();
+                }
+                if (walker != null) {
+                    mc.setState(0);
+                    mc.setSeed(walkerSeed(masterSeed, i));
+                    walker.walk(nSteps, sink);
+                } else {
+                    new SpiralWalker(mc).walk(nSteps, sink);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The endpoints of the walks of an ensemble, indexed by walker number.
+     */
+    public static class Result {
+        private final int[] endX;
+        private final int[] endY;
+
+        private Result(int nWalkers) {
+            endX = new int[nWalkers];
+            endY = new int[nWalkers];
+        }
+
+        /**
+         * Get the number of walkers in the ensemble.
+         * @return the number of walkers.
+         */
+        public int size() {
+            return endX.length;
+        }
+
+        /**
+         * Get the point at which walker i finished its walk.
+         * A walker of 0 steps finishes at its starting point.
+         * @param i: the number of the walker.
+         * @return the final coordinates of walker i.
+         * @throws IndexOutOfBoundsException if i is not a walker of the ensemble.
+         */
+        public Coordinate getEndpoint(int i) throws IndexOutOfBoundsException {
+            return new Coordinate(endX[i], endY[i]);
+        }
+
+        /**
+         * Compute the mean, over all walkers, of the squared distance
+         * from the starting point to the endpoint of their walk.
+         * @return the mean squared displacement, or 0 for an empty ensemble.
+         */
+        public double meanSquaredDisplacement() {
+            if (endX.length == 0) {
+                return 0.0;
+            }
+            double sum = 0.0;
+            for (int i = 0; i < endX.length; ++i) {
+                double dx = endX[i] - RandomWalker.START_X;
+                double dy = endY[i] - RandomWalker.START_Y;
+                sum += dx * dx + dy * dy;
+            }
+            return sum / endX.length;
+        }
+    }
+
+}
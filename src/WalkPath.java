@@ -0,0 +1,183 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The WalkPath class stores the coordinates visited by a walk on the integer lattice.
+ * Each (x, y) pair is packed into a single long of a growable array,
+ * so adding a coordinate allocates no objects and costs 8 bytes of memory.
+ * As a WalkSink, a WalkPath records every coordinate of a streamed walk.
+ */
+public class WalkPath implements WalkSink {
+
+    public static final int DEFAULT_CAPACITY = 16;
+    /* The largest array size the JVM reliably allows. */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private long[] coords;
+    private int size;
+
+    /**
+     * Create an empty WalkPath.
+     */
+    public WalkPath() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty WalkPath with room for capacity coordinates before it must grow.
+     * @param capacity: the initial capacity.
+     */
+    public WalkPath(int capacity) {
+        coords = new long[Math.max(capacity, 1)];
+        size = 0;
+    }
+
+    /**
+     * Pack a pair of coordinates into a single long, x in the high 32 bits and y in the low 32 bits.
+     * @param x: the first coordinate
+     * @param y: the second coordinate
+     * @return the packed coordinates.
+     */
+    public static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get the first coordinate of a pair packed by pack().
+     * @param packed: the packed coordinates.
+     * @return the x coordinate.
+     */
+    public static int unpackX(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    /**
+     * Get the second coordinate of a pair packed by pack().
+     * @param packed: the packed coordinates.
+     * @return the y coordinate.
+     */
+    public static int unpackY(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * Append the coordinate (x, y) to the end of this path.
+     * @param x: the first coordinate
+     * @param y: the second coordinate
+     */
+    public void add(int x, int y) {
+        if (size == coords.length) {
+            _grow();
+        }
+        coords[size++] = pack(x, y);
+    }
+
+    /**
+     * Append the coordinate (x, y) to the end of this path, as add() does.
+     * @param x: the first coordinate
+     * @param y: the second coordinate
+     */
+    @Override
+    public void accept(int x, int y) {
+        add(x, y);
+    }
+
+    /**
+     * Grow the backing array by half of its size, up to the largest possible array.
+     * @throws IllegalStateException if the path cannot hold any more coordinates.
+     */
+    private void _grow() {
+        if (coords.length == MAX_CAPACITY) {
+            throw new IllegalStateException("WalkPath cannot hold more than " + MAX_CAPACITY + " coordinates.");
+        }
+        int capacity = (int) Math.min((long) coords.length + (coords.length >> 1) + 1, MAX_CAPACITY);
+        coords = Arrays.copyOf(coords, capacity);
+    }
+
+    /**
+     * Remove all coordinates from this path, keeping its capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Get the number of coordinates in this path.
+     * @return the number of coordinates.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the first coordinate of the i'th point of this path.
+     * @param i: the 0-indexed point number.
+     * @return the x coordinate of point i.
+     * @throws IndexOutOfBoundsException if i is invalid.
+     */
+    public int getX(int i) throws IndexOutOfBoundsException {
+        return unpackX(getPacked(i));
+    }
+
+    /**
+     * Get the second coordinate of the i'th point of this path.
+     * @param i: the 0-indexed point number.
+     * @return the y coordinate of point i.
+     * @throws IndexOutOfBoundsException if i is invalid.
+     */
+    public int getY(int i) throws IndexOutOfBoundsException {
+        return unpackY(getPacked(i));
+    }
+
+    /**
+     * Get the i'th point of this path, packed as by pack().
+     * @param i: the 0-indexed point number.
+     * @return the packed coordinates of point i.
+     * @throws IndexOutOfBoundsException if i is invalid.
+     */
+    public long getPacked(int i) throws IndexOutOfBoundsException {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return coords[i];
+    }
+
+    /**
+     * Get the i'th point of this path as a new Coordinate.
+     * @param i: the 0-indexed point number.
+     * @return the coordinates of point i.
+     * @throws IndexOutOfBoundsException if i is invalid.
+     */
+    public Coordinate get(int i) throws IndexOutOfBoundsException {
+        long packed = getPacked(i);
+        return new Coordinate(unpackX(packed), unpackY(packed));
+    }
+
+    /**
+     * Get a read-only List view of this path.
+     * The view allocates a new Coordinate each time an element is accessed,
+     * and reflects later changes to this path.
+     * @return a list of the coordinates of this path.
+     */
+    public List<Coordinate> asList() {
+        return new CoordinateList();
+    }
+
+    /**
+     * The read-only List view returned by asList().
+     */
+    private class CoordinateList extends AbstractList<Coordinate> implements RandomAccess {
+        @Override
+        public Coordinate get(int i) {
+            return WalkPath.this.get(i);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+}
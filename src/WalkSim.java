@@ -2,6 +2,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Scanner;
 
 /**
@@ -17,8 +18,16 @@ public class WalkSim {
      *    [0]: the file containing the FloatMatrix for the Markov chain
      *    [1]: the output file to store the path produced
      *    [2]: the number of steps to simulate
+     * If the first argument is --batch, the remaining arguments are passed to WalkBatch.main(),
+     * which runs without prompting or opening a window.
+     * If the system property walksim.metrics is true, a summary of the run's metrics
+     * is printed to standard error once the walk is saved; see Metrics.
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            WalkBatch.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         Scanner kb = new Scanner(System.in);
         int nSteps;
         int walkerType;
@@ -126,6 +135,7 @@ public class WalkSim {
                 walker.saveWalkToFile(outputFile);
 
             }
+            Metrics.report(System.err);
             WalkFrame walkFrame = new WalkFrame();
             walkFrame.animatePath(theWalk, stepDuration);
 
@@ -139,6 +149,11 @@ public class WalkSim {
             System.out.println(ioe.getMessage());
             System.exit(1);
 
+        } catch (IllegalArgumentException iae) {
+            System.out.println("Invalid transition matrix in file: " + exampleFile);
+            System.out.println(iae.getMessage());
+            System.exit(1);
+
         }
 
     }
@@ -0,0 +1,21 @@
+import java.io.IOException;
+
+/**
+ * A WalkSink receives the coordinates of a walk one at a time, as the walker generates them,
+ * so that a walk can be written, measured or drawn without storing its whole path.
+ * Walkers call accept() once for the starting point and once for the end of every step.
+ *
+ * WalkWriter, WalkPath and WalkCanvas are sinks; a lambda may also be used.
+ */
+@FunctionalInterface
+public interface WalkSink {
+
+    /**
+     * Receive the next coordinate of a walk.
+     * @param x: the first coordinate
+     * @param y: the second coordinate
+     * @throws IOException if the sink writes to a file and the file could not be written
+     */
+    void accept(int x, int y) throws IOException;
+
+}
@@ -0,0 +1,336 @@
+/**
+ * The WalkStatistics class accumulates aggregate statistics of walks as their coordinates are generated,
+ * in constant time per coordinate, so a walk can be summarized without storing its path.
+ * Walk into it like any other WalkSink:
+ *
+ *    WalkStatistics stats = new WalkStatistics();
+ *    walker.walk(Nsteps, stats);
+ *
+ * It accumulates over any number of walks: call newWalk() between walks.
+ * Each walk's displacement is measured from its first coordinate, and a walk with no coordinates is not counted.
+ * The statistics of walks run in parallel, each into its own WalkStatistics, are combined with merge().
+ *
+ * Optionally, it also records the mean squared displacement at regular times (every msdInterval steps),
+ * averaged over the walks which reached that time, and counts the distinct sites each walk visits.
+ * Sites are counted in a SiteTable on the heap, which needs memory proportional to the number of sites
+ * a walk visits but no object per site.
+ *
+ * A WalkStatistics is not thread-safe.
+ */
+public class WalkStatistics implements WalkSink {
+
+    private final long msdInterval;
+    private final double[] msdSum;
+    private final long[] msdWalks;
+    private final SiteTable sites;
+
+    //Over the completed walks.
+    private long walks;
+    private long steps;
+    private double sumDisplacement;
+    private double sumSquaredDisplacement;
+    private long sumDistinctSites;
+
+    //Over every coordinate, of every walk.
+    private int minX = Integer.MAX_VALUE;
+    private int maxX = Integer.MIN_VALUE;
+    private int minY = Integer.MAX_VALUE;
+    private int maxY = Integer.MIN_VALUE;
+
+    //The current walk.
+    private long points;
+    private int startX;
+    private int startY;
+    private int lastX;
+    private int lastY;
+    private long nextMsdPoint;
+
+    /**
+     * Create an empty WalkStatistics which does not record the mean squared displacement over time
+     * or count distinct sites.
+     */
+    public WalkStatistics() {
+        this(0, 1, false);
+    }
+
+    /**
+     * Create an empty WalkStatistics.
+     * @param msdPoints: the number of times at which to record the mean squared displacement, 0 for none
+     * @param msdInterval: the number of steps between those times, the first being step 0
+     * @param countSites: whether to count the distinct sites each walk visits
+     * @throws IllegalArgumentException if msdPoints is negative or msdInterval is not positive.
+     */
+    public WalkStatistics(int msdPoints, long msdInterval, boolean countSites) throws IllegalArgumentException {
+        if (msdPoints < 0 || msdInterval < 1) {
+            throw new IllegalArgumentException("The number of MSD points must not be negative"
+                    + " and the MSD interval must be positive.");
+        }
+        this.msdInterval = msdInterval;
+        this.msdSum = new double[msdPoints];
+        this.msdWalks = new long[msdPoints];
+        this.sites = countSites ? new SiteTable() : null;
+    }
+
+    /**
+     * Create an empty WalkStatistics recording and counting what another does,
+     * for instance to accumulate walks on another thread before merging them.
+     * @param other: the WalkStatistics whose configuration to copy
+     * @return the empty WalkStatistics.
+     */
+    public static WalkStatistics emptyLike(WalkStatistics other) {
+        return new WalkStatistics(other.msdSum.length, other.msdInterval, other.sites != null);
+    }
+
+    /**
+     * Add the next coordinate of the current walk.
+     * @param x: the x coordinate
+     * @param y: the y coordinate
+     */
+    @Override
+    public void accept(int x, int y) {
+        if (points == 0) {
+            startX = x;
+            startY = y;
+            nextMsdPoint = 0;
+        }
+        if (points == nextMsdPoint) {
+            long k = points / msdInterval;
+            if (k < msdSum.length) {
+                double dx = (double) x - startX;
+                double dy = (double) y - startY;
+                msdSum[(int) k] += dx * dx + dy * dy;
+                ++msdWalks[(int) k];
+                nextMsdPoint += msdInterval;
+            }
+        }
+        if (sites != null) {
+            sites.increment(x, y);
+        }
+        minX = Math.min(minX, x);
+        maxX = Math.max(maxX, x);
+        minY = Math.min(minY, y);
+        maxY = Math.max(maxY, y);
+        lastX = x;
+        lastY = y;
+        ++points;
+    }
+
+    /**
+     * End the current walk, so the next coordinate accepted starts a new walk.
+     * Has no effect if the current walk has no coordinates.
+     */
+    public void newWalk() {
+        if (points == 0) {
+            return;
+        }
+        double dx = getDisplacementX();
+        double dy = getDisplacementY();
+        ++walks;
+        steps += points - 1;
+        sumSquaredDisplacement += dx * dx + dy * dy;
+        sumDisplacement += Math.sqrt(dx * dx + dy * dy);
+        if (sites != null) {
+            sumDistinctSites += sites.size();
+            sites.clear();
+        }
+        points = 0;
+    }
+
+    /**
+     * Add the statistics of the walks of another WalkStatistics to this one's.
+     * The other's current walk is added as a completed walk, and the current walk of this one
+     * is ended first; the other is not changed.
+     * @param other: the WalkStatistics to merge into this one
+     * @throws IllegalArgumentException if the two do not record and count the same things.
+     */
+    public void merge(WalkStatistics other) throws IllegalArgumentException {
+        if (other.msdSum.length != msdSum.length || other.msdInterval != msdInterval
+                || (other.sites == null) != (sites == null)) {
+            throw new IllegalArgumentException("Only WalkStatistics recording the same MSD points"
+                    + " and counting the same sites can be merged.");
+        }
+        newWalk();
+        walks += other.getWalkCount();
+        steps += other.getStepCount();
+        sumDisplacement += other.sumDisplacement;
+        sumSquaredDisplacement += other.sumSquaredDisplacement;
+        sumDistinctSites += other.getDistinctSites();
+        if (other.points > 0) {
+            double dx = other.getDisplacementX();
+            double dy = other.getDisplacementY();
+            sumSquaredDisplacement += dx * dx + dy * dy;
+            sumDisplacement += Math.sqrt(dx * dx + dy * dy);
+        }
+        for (int k = 0; k < msdSum.length; ++k) {
+            msdSum[k] += other.msdSum[k];
+            msdWalks[k] += other.msdWalks[k];
+        }
+        minX = Math.min(minX, other.minX);
+        maxX = Math.max(maxX, other.maxX);
+        minY = Math.min(minY, other.minY);
+        maxY = Math.max(maxY, other.maxY);
+    }
+
+    /**
+     * Get the number of walks, including the current walk if it has any coordinates.
+     * @return the number of walks.
+     */
+    public long getWalkCount() {
+        return walks + (points > 0 ? 1 : 0);
+    }
+
+    /**
+     * Get the total number of steps of every walk, one less than the number of coordinates of each.
+     * @return the number of steps.
+     */
+    public long getStepCount() {
+        return steps + Math.max(points - 1, 0);
+    }
+
+    /**
+     * Get the x displacement of the current walk, from its first coordinate to its last.
+     * @return the x displacement, 0 if the current walk has no coordinates.
+     */
+    public long getDisplacementX() {
+        return points > 0 ? (long) lastX - startX : 0;
+    }
+
+    /**
+     * Get the y displacement of the current walk, from its first coordinate to its last.
+     * @return the y displacement, 0 if the current walk has no coordinates.
+     */
+    public long getDisplacementY() {
+        return points > 0 ? (long) lastY - startY : 0;
+    }
+
+    /**
+     * Get the mean, over all walks, of the distance from the first coordinate to the last.
+     * @return the mean end-to-end distance, 0 if there are no walks.
+     */
+    public double getMeanDisplacement() {
+        double dx = getDisplacementX();
+        double dy = getDisplacementY();
+        long n = getWalkCount();
+        return n == 0 ? 0.0 : (sumDisplacement + Math.sqrt(dx * dx + dy * dy)) / n;
+    }
+
+    /**
+     * Get the mean, over all walks, of the squared distance from the first coordinate to the last.
+     * @return the mean squared end-to-end distance, 0 if there are no walks.
+     */
+    public double getMeanSquaredDisplacement() {
+        double dx = getDisplacementX();
+        double dy = getDisplacementY();
+        long n = getWalkCount();
+        return n == 0 ? 0.0 : (sumSquaredDisplacement + dx * dx + dy * dy) / n;
+    }
+
+    /**
+     * Get the number of times at which the mean squared displacement is recorded.
+     * @return the number of MSD points.
+     */
+    public int getMsdPoints() {
+        return msdSum.length;
+    }
+
+    /**
+     * Get the number of steps between the times at which the mean squared displacement is recorded.
+     * @return the MSD interval.
+     */
+    public long getMsdInterval() {
+        return msdInterval;
+    }
+
+    /**
+     * Get the mean squared displacement after k*getMsdInterval() steps,
+     * over the walks of at least that many steps.
+     * @param k: the MSD point
+     * @return the mean squared displacement, 0 if no walk had that many steps.
+     * @throws IndexOutOfBoundsException if k is not between 0 and getMsdPoints()-1.
+     */
+    public double getMeanSquaredDisplacement(int k) throws IndexOutOfBoundsException {
+        return msdWalks[k] == 0 ? 0.0 : msdSum[k] / msdWalks[k];
+    }
+
+    /**
+     * Get the number of walks of at least k*getMsdInterval() steps.
+     * @param k: the MSD point
+     * @return the number of walks reaching MSD point k.
+     * @throws IndexOutOfBoundsException if k is not between 0 and getMsdPoints()-1.
+     */
+    public long getMsdWalkCount(int k) throws IndexOutOfBoundsException {
+        return msdWalks[k];
+    }
+
+    /**
+     * Determine if this WalkStatistics counts the distinct sites each walk visits.
+     * @return true if and only if sites are counted.
+     */
+    public boolean isCountingSites() {
+        return sites != null;
+    }
+
+    /**
+     * Get the number of distinct sites visited, summed over all walks:
+     * for a single walk, the number of distinct coordinates it visits.
+     * @return the number of distinct sites, 0 if sites are not counted.
+     */
+    public long getDistinctSites() {
+        return sites == null ? 0 : sumDistinctSites + sites.size();
+    }
+
+    /**
+     * Get the mean, over all walks, of the number of distinct sites each visits.
+     * @return the mean number of distinct sites, 0 if there are no walks or sites are not counted.
+     */
+    public double getMeanDistinctSites() {
+        long n = getWalkCount();
+        return n == 0 ? 0.0 : (double) getDistinctSites() / n;
+    }
+
+    /**
+     * Get the smallest x coordinate of any walk.
+     * @return the smallest x coordinate, or Integer.MAX_VALUE if there are no coordinates.
+     */
+    public int getMinX() {
+        return minX;
+    }
+
+    /**
+     * Get the largest x coordinate of any walk.
+     * @return the largest x coordinate, or Integer.MIN_VALUE if there are no coordinates.
+     */
+    public int getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Get the smallest y coordinate of any walk.
+     * @return the smallest y coordinate, or Integer.MAX_VALUE if there are no coordinates.
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * Get the largest y coordinate of any walk.
+     * @return the largest y coordinate, or Integer.MIN_VALUE if there are no coordinates.
+     */
+    public int getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Get the extent of the walks: the largest absolute value of any x or y coordinate,
+     * which WalkCanvas uses to size a path.
+     * @return the extent, 0 if there are no coordinates.
+     */
+    public long getExtent() {
+        if (minX > maxX) {
+            return 0;
+        }
+        return Math.max(Math.max(Math.abs((long) minX), Math.abs((long) maxX)),
+                Math.max(Math.abs((long) minY), Math.abs((long) maxY)));
+    }
+
+}
@@ -0,0 +1,379 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The WalkWriter class writes the coordinates of a walk to a file, in the formats
+ * used by the walkers' saveWalkToFile methods:
+ *    .txt files hold one coordinate "(x, y)" per line;
+ *    .dat files hold a single line of space-separated integers "x0 y0 x1 y1 ...";
+ *    .walk files hold the walk in binary, as described below;
+ *    files of any other extension are created empty.
+ * Lines end with System.lineSeparator(), as PrintWriter.println ends them.
+ *
+ * A .walk file holds a 20 byte header: the 4 byte magic number "WALK",
+ * the starting x and y as int32, and the number of steps as int64, or -1 for a walk
+ * with no coordinates at all; all little-endian, as in FloatMatrix's binary files.
+ * Each step follows as a 2 bit direction code, 0 North, 1 East, 2 South, 3 West,
+ * four to a byte with the first step in the lowest bits, so only walks of unit lattice steps
+ * can be written and a walk of N steps takes 20 + ceil(N/4) bytes. See BinaryWalkReader.
+ *
+ * Coordinates are formatted directly as ASCII digits into a reusable byte buffer,
+ * which is written to a FileChannel whenever it fills, so writing a walk
+ * allocates nothing per coordinate and holds at most one buffer of it in memory.
+ * As a WalkSink, a WalkWriter lets a walker stream a walk of any length straight to a file.
+ */
+public class WalkWriter implements WalkSink, Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+
+    /**
+     * The file formats a WalkWriter can write, chosen by the file's extension.
+     */
+    public enum Format {
+        /** One coordinate "(x, y)" per line, for .txt files. */
+        TEXT,
+        /** All coordinates on a single line of space-separated integers, for .dat files. */
+        DATA,
+        /** A header and 2 bit direction codes, for .walk files. */
+        BINARY,
+        /** Nothing, for files of any other extension. */
+        NONE
+    }
+
+    /* The first bytes of a .walk file: "WALK" in ASCII. */
+    static final byte[] BINARY_MAGIC = {'W', 'A', 'L', 'K'};
+    /* The magic number, the starting x and y as int32 and the number of steps as int64. */
+    static final int BINARY_HEADER_SIZE = 20;
+    /* The step in x and y of each 2 bit direction code of a .walk file. */
+    static final int[] CODE_DX = {0, 1, 0, -1};
+    static final int[] CODE_DY = {1, 0, -1, 0};
+    /* The direction code of each step (dx, dy) in [-1, 1]^2, at index 3 * (dx + 1) + (dy + 1), or -1. */
+    private static final int[] DIRECTION_CODES = {-1, 3, -1, 2, -1, 0, -1, 1, -1};
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+    /* The most bytes written for one coordinate: "(-2147483648, -2147483648)" and a line separator. */
+    private static final int MAX_RECORD = 26 + LINE_SEPARATOR.length;
+    private static final byte[] MIN_INT = Integer.toString(Integer.MIN_VALUE).getBytes();
+    /* The two ASCII digits of every number 00..99, at index 2 * number. */
+    private static final byte[] DIGIT_PAIRS = new byte[200];
+
+    static {
+        for (int i = 0; i < 100; ++i) {
+            DIGIT_PAIRS[2 * i] = (byte) ('0' + i / 10);
+            DIGIT_PAIRS[2 * i + 1] = (byte) ('0' + i % 10);
+        }
+    }
+
+    private final FileChannel channel;
+    private final Format format;
+    private final byte[] buf;
+    private final ByteBuffer bb;
+    private int pos;
+    private long count;
+    private boolean closed;
+    //The state of a BINARY writer: the start and previous coordinates,
+    //and the direction codes not yet written as a whole byte.
+    private int startX;
+    private int startY;
+    private int lastX;
+    private int lastY;
+    private int codes;
+    private int numCodes;
+
+    /**
+     * Create a WalkWriter which writes to a file in the format given by its extension,
+     * creating the file or truncating it if it exists.
+     * @param fname: the name of the file to write
+     * @throws IOException if the file could not be opened or created for writing
+     */
+    public WalkWriter(String fname) throws IOException {
+        this(fname, formatOf(fname), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a WalkWriter which writes to a file in a given format,
+     * creating the file or truncating it if it exists.
+     * @param fname: the name of the file to write
+     * @param format: the format to write
+     * @param bufferSize: the number of bytes to hold before writing them to the file
+     * @throws IOException if the file could not be opened or created for writing
+     * @throws IllegalArgumentException if format is null or bufferSize is too small to hold a coordinate
+     */
+    public WalkWriter(String fname, Format format, int bufferSize) throws IOException, IllegalArgumentException {
+        if (format == null) {
+            throw new IllegalArgumentException("A WalkWriter needs a format.");
+        }
+        if (bufferSize < MAX_RECORD) {
+            throw new IllegalArgumentException("Buffer size must be at least " + MAX_RECORD + " bytes.");
+        }
+        this.channel = FileChannel.open(Paths.get(fname), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.format = format;
+        this.buf = new byte[bufferSize];
+        this.bb = ByteBuffer.wrap(buf);
+        this.pos = 0;
+        this.count = 0;
+        this.closed = false;
+        if (format == Format.BINARY) {
+            //Leave room for the header, which is written on close.
+            this.pos = BINARY_HEADER_SIZE;
+        }
+    }
+
+    /**
+     * Get the format to write to a file, given by its extension.
+     * @param fname: the name of the file
+     * @return Format.TEXT for a .txt file, Format.DATA for a .dat file,
+     *         Format.BINARY for a .walk file, or Format.NONE otherwise.
+     */
+    public static Format formatOf(String fname) {
+        if (fname.endsWith(".txt")) {
+            return Format.TEXT;
+        } else if (fname.endsWith(".dat")) {
+            return Format.DATA;
+        } else if (fname.endsWith(".walk")) {
+            return Format.BINARY;
+        }
+        return Format.NONE;
+    }
+
+    /**
+     * Write a walk's path to a file, in the format given by its extension.
+     * @param fname: the name of the file to write
+     * @param path: the path to write
+     * @throws IOException if the file could not be opened, created or written
+     */
+    public static void write(String fname, WalkPath path) throws IOException {
+        try (WalkWriter writer = new WalkWriter(fname)) {
+            writer.write(path);
+        }
+    }
+
+    /**
+     * Get the format this writer writes.
+     * @return the format.
+     */
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Get the number of coordinates written so far.
+     * @return the number of coordinates.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Write the next coordinate of the walk.
+     * @param x: the first coordinate
+     * @param y: the second coordinate
+     * @throws IOException if the file could not be written
+     * @throws IllegalStateException if this writer is closed
+     * @throws IllegalArgumentException if the format is BINARY and (x, y) is not one unit step
+     *         from the previous coordinate.
+     */
+    public void write(int x, int y) throws IOException, IllegalStateException, IllegalArgumentException {
+        _ensureOpen();
+        if (pos > buf.length - MAX_RECORD) {
+            _flushBuffer();
+        }
+        byte[] b = buf;
+        int p = pos;
+        if (format == Format.TEXT) {
+            b[p++] = '(';
+            p = _putInt(b, p, x);
+            b[p++] = ',';
+            b[p++] = ' ';
+            p = _putInt(b, p, y);
+            b[p++] = ')';
+            p = _putLineSeparator(b, p);
+        } else if (format == Format.DATA) {
+            if (count > 0) {
+                b[p++] = ' ';
+            }
+            p = _putInt(b, p, x);
+            b[p++] = ' ';
+            p = _putInt(b, p, y);
+        } else if (format == Format.BINARY) {
+            if (count == 0) {
+                startX = x;
+                startY = y;
+            } else {
+                codes |= _directionCode(x - lastX, y - lastY) << (2 * numCodes);
+                if (++numCodes == 4) {
+                    b[p++] = (byte) codes;
+                    codes = 0;
+                    numCodes = 0;
+                }
+            }
+            lastX = x;
+            lastY = y;
+        }
+        pos = p;
+        ++count;
+    }
+
+    /**
+     * Write the next coordinate of the walk, as write() does.
+     * @param x: the first coordinate
+     * @param y: the second coordinate
+     * @throws IOException if the file could not be written
+     * @throws IllegalStateException if this writer is closed
+     */
+    @Override
+    public void accept(int x, int y) throws IOException, IllegalStateException {
+        write(x, y);
+    }
+
+    /**
+     * Write every coordinate of a path, in order.
+     * @param path: the path to write
+     * @throws IOException if the file could not be written
+     * @throws IllegalStateException if this writer is closed
+     */
+    public void write(WalkPath path) throws IOException, IllegalStateException {
+        for (int i = 0; i < path.size(); ++i) {
+            write(path.getX(i), path.getY(i));
+        }
+    }
+
+    /**
+     * Write any buffered bytes to the file.
+     * @throws IOException if the file could not be written
+     * @throws IllegalStateException if this writer is closed
+     */
+    public void flush() throws IOException, IllegalStateException {
+        _ensureOpen();
+        _flushBuffer();
+    }
+
+    /**
+     * Finish the file and close it. A .dat file's line is ended here,
+     * so it holds a line separator even if no coordinate was written,
+     * and the header of a .walk file is written here once the number of steps is known.
+     * Closing a closed writer has no effect.
+     * @throws IOException if the file could not be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (format == Format.DATA) {
+                pos = _putLineSeparator(buf, pos);
+            } else if (format == Format.BINARY && numCodes > 0) {
+                buf[pos++] = (byte) codes;
+            }
+            _flushBuffer();
+            if (format == Format.BINARY) {
+                ByteBuffer header = ByteBuffer.allocate(BINARY_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.put(BINARY_MAGIC).putInt(startX).putInt(startY).putLong(count - 1).flip();
+                long offset = 0;
+                while (header.hasRemaining()) {
+                    offset += channel.write(header, offset);
+                }
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Private helper method to write the buffered bytes to the channel and empty the buffer.
+     */
+    private void _flushBuffer() throws IOException {
+        bb.clear().limit(pos);
+        while (bb.hasRemaining()) {
+            channel.write(bb);
+        }
+        Metrics.addBytesWritten(pos);
+        pos = 0;
+    }
+
+    /**
+     * Private helper method to write the decimal digits of v into b at position p,
+     * two digits per division, as Integer.toString does.
+     * @return the position after the last digit.
+     */
+    private static int _putInt(byte[] b, int p, int v) {
+        if (v < 0) {
+            if (v == Integer.MIN_VALUE) {
+                System.arraycopy(MIN_INT, 0, b, p, MIN_INT.length);
+                return p + MIN_INT.length;
+            }
+            b[p++] = '-';
+            v = -v;
+        }
+        int end = p + _numDigits(v);
+        int i = end;
+        while (v >= 100) {
+            int q = v / 100;
+            int r = (v - q * 100) << 1;
+            v = q;
+            b[--i] = DIGIT_PAIRS[r + 1];
+            b[--i] = DIGIT_PAIRS[r];
+        }
+        if (v >= 10) {
+            b[--i] = DIGIT_PAIRS[(v << 1) + 1];
+            b[--i] = DIGIT_PAIRS[v << 1];
+        } else {
+            b[--i] = (byte) ('0' + v);
+        }
+        return end;
+    }
+
+    private static int _putLineSeparator(byte[] b, int p) {
+        for (byte c : LINE_SEPARATOR) {
+            b[p++] = c;
+        }
+        return p;
+    }
+
+    /**
+     * Private helper method to get the direction code of a unit step.
+     * @throws IllegalArgumentException if (dx, dy) is not a unit step.
+     */
+    private static int _directionCode(int dx, int dy) throws IllegalArgumentException {
+        if (dx >= -1 && dx <= 1 && dy >= -1 && dy <= 1) {
+            int code = DIRECTION_CODES[3 * (dx + 1) + (dy + 1)];
+            if (code >= 0) {
+                return code;
+            }
+        }
+        throw new IllegalArgumentException("A .walk file can only hold unit lattice steps, not ("
+                + dx + ", " + dy + ").");
+    }
+
+    /**
+     * Private helper method to count the decimal digits of a non-negative int.
+     * Coordinates of walks are mostly small, so the comparisons start from the smallest.
+     */
+    private static int _numDigits(int v) {
+        if (v < 10) return 1;
+        if (v < 100) return 2;
+        if (v < 1000) return 3;
+        if (v < 10000) return 4;
+        if (v < 100000) return 5;
+        if (v < 1000000) return 6;
+        if (v < 10000000) return 7;
+        if (v < 100000000) return 8;
+        if (v < 1000000000) return 9;
+        return 10;
+    }
+
+    private void _ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The WalkWriter is closed.");
+        }
+    }
+
+}
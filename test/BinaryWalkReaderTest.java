@@ -0,0 +1,173 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the .walk format written by WalkWriter and read by BinaryWalkReader.
+ *
+ * 1. round trip
+ * 1a. a random walk is read back exactly, for lengths around multiples of 4 steps.
+ * 1b. the file holds the header and one byte per 4 steps.
+ * 1c. a walk from a non-zero start, and a walk of a single coordinate.
+ * 1d. an empty walk is read back empty.
+ * 1e. walkers stream to .walk files through walkToFile() and saveWalkToFile().
+ *
+ * 2. reading lazily
+ * 2a. next(), getX(), getY() and getIndex() step through the coordinates.
+ *
+ * 3. exceptional cases
+ * 3a. writing a step that is not a unit lattice step throws IllegalArgumentException.
+ * 3b. files with a bad magic number, or truncated, throw RuntimeException.
+ */
+public class BinaryWalkReaderTest {
+
+    static final float[] testMat1 = {0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.25f, 0.25f, 0.25f, 0.25f};
+
+    static WalkPath roundTrip(WalkPath path) throws IOException {
+        File fp = File.createTempFile("BinaryWalkReaderTest", ".walk");
+        try {
+            WalkWriter.write(fp.getPath(), path);
+            assertEquals(WalkWriter.BINARY_HEADER_SIZE + BinaryWalkReader.codeBytes(path.size() - 1), fp.length());
+            return BinaryWalkReader.read(fp.getPath());
+        } finally {
+            fp.delete();
+        }
+    }
+
+    @Test
+    void roundTrip_testRandomWalks() throws IOException {
+        for (int steps = 1; steps <= 9; ++steps) {
+            RandomWalker walker = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), steps));
+            WalkPath path = walker.walkCompact(steps);
+            assertEquals(path.asList(), roundTrip(path).asList());
+        }
+        RandomWalker walker = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 11));
+        WalkPath path = walker.walkCompact(100003);
+        assertEquals(path.asList(), roundTrip(path).asList());
+    }
+
+    @Test
+    void roundTrip_testFileSize() throws IOException {
+        File fp = File.createTempFile("BinaryWalkReaderTest", ".walk");
+        try {
+            RandomWalker walker = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 5));
+            walker.walkToFile(1000, fp.getPath());
+            assertEquals(20 + 250, fp.length());
+
+            byte[] bytes = Files.readAllBytes(fp.toPath());
+            assertArrayEquals(new byte[]{'W', 'A', 'L', 'K'}, Arrays.copyOf(bytes, 4));
+        } finally {
+            fp.delete();
+        }
+    }
+
+    @Test
+    void roundTrip_testStartAndSingleCoordinate() throws IOException {
+        WalkPath path = new WalkPath();
+        path.add(-7, Integer.MAX_VALUE);
+        assertEquals(path.asList(), roundTrip(path).asList());
+
+        path.add(-8, Integer.MAX_VALUE);
+        path.add(-8, Integer.MAX_VALUE - 1);
+        path.add(-7, Integer.MAX_VALUE - 1);
+        path.add(-7, Integer.MAX_VALUE);
+        assertEquals(path.asList(), roundTrip(path).asList());
+    }
+
+    @Test
+    void roundTrip_testEmpty() throws IOException {
+        WalkPath read = roundTrip(new WalkPath());
+        assertEquals(0, read.size());
+    }
+
+    @Test
+    void roundTrip_testWalkers() throws IOException {
+        File fp = File.createTempFile("BinaryWalkReaderTest", ".walk");
+        try {
+            SpiralWalker spiral = new SpiralWalker(new MarkovChain(new FloatMatrix(testMat1, 4)));
+            WalkPath expected = new WalkPath();
+            new SpiralWalker(new MarkovChain(new FloatMatrix(testMat1, 4))).walk(30L, expected);
+            spiral.walkToFile(30, fp.getPath());
+            assertEquals(expected.asList(), BinaryWalkReader.read(fp.getPath()).asList());
+
+            BreadCrumbWalker breadCrumb = new BreadCrumbWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 9));
+            breadCrumb.walk(25);
+            breadCrumb.saveWalkToFile(fp.getPath());
+            assertEquals(breadCrumb.getPath().asList(), BinaryWalkReader.read(fp.getPath()).asList());
+        } finally {
+            fp.delete();
+        }
+    }
+
+    @Test
+    void next_testLazyReading() throws IOException {
+        File fp = File.createTempFile("BinaryWalkReaderTest", ".walk");
+        try {
+            WalkPath path = new WalkPath();
+            path.add(3, 4);
+            path.add(3, 5);
+            path.add(4, 5);
+            WalkWriter.write(fp.getPath(), path);
+
+            try (BinaryWalkReader reader = new BinaryWalkReader(fp.getPath())) {
+                assertEquals(3, reader.getStartX());
+                assertEquals(4, reader.getStartY());
+                assertEquals(2, reader.getStepCount());
+                assertEquals(3, reader.size());
+                assertEquals(-1, reader.getIndex());
+                for (int i = 0; i < path.size(); ++i) {
+                    assertTrue(reader.next());
+                    assertEquals(i, reader.getIndex());
+                    assertEquals(path.getX(i), reader.getX());
+                    assertEquals(path.getY(i), reader.getY());
+                }
+                assertFalse(reader.next());
+            }
+        } finally {
+            fp.delete();
+        }
+    }
+
+    @Test
+    void write_testNonUnitStep() throws IOException {
+        File fp = File.createTempFile("BinaryWalkReaderTest", ".walk");
+        try (WalkWriter writer = new WalkWriter(fp.getPath())) {
+            writer.write(0, 0);
+            assertThrows(IllegalArgumentException.class, () -> writer.write(1, 1));
+            assertThrows(IllegalArgumentException.class, () -> writer.write(0, 0));
+            assertThrows(IllegalArgumentException.class, () -> writer.write(2, 0));
+            writer.write(1, 0);
+        } finally {
+            fp.delete();
+        }
+    }
+
+    @Test
+    void read_testMalformed() throws IOException {
+        File fp = File.createTempFile("BinaryWalkReaderTest", ".walk");
+        try {
+            Files.write(fp.toPath(), "not a walk file at all".getBytes());
+            assertThrows(RuntimeException.class, () -> BinaryWalkReader.read(fp.getPath()));
+
+            Files.write(fp.toPath(), new byte[]{'W', 'A', 'L', 'K'});
+            assertThrows(RuntimeException.class, () -> BinaryWalkReader.read(fp.getPath()));
+
+            RandomWalker walker = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 5));
+            walker.walkToFile(100, fp.getPath());
+            byte[] bytes = Files.readAllBytes(fp.toPath());
+            Files.write(fp.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+            assertThrows(RuntimeException.class, () -> BinaryWalkReader.read(fp.getPath()));
+        } finally {
+            fp.delete();
+        }
+    }
+
+}
@@ -78,6 +78,17 @@ class BreadCrumbWalkerTest {
         }
     }
 
+    @Test
+    void walkSink_testMatchesWalk() throws IOException {
+        BreadCrumbWalker walker = new BreadCrumbWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 3));
+        ArrayList<Coordinate> expected = walker.walk(50);
+
+        BreadCrumbWalker streamed = new BreadCrumbWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 3));
+        WalkPath received = new WalkPath();
+        streamed.walk(50L, received);
 
+        assertEquals(expected, received.asList());
+        assertThrows(IllegalArgumentException.class, () -> streamed.walk(Integer.MAX_VALUE + 1L, received));
+    }
 
 }
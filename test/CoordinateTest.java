@@ -20,6 +20,9 @@ import static org.junit.jupiter.api.Assertions.*;
  * 4a. accumulate two positive coordinates
  * 4b. accumulate a zero coordinate
  * 4c. accumulate a negative coordinate
+ * 5. equals() and hashCode()
+ * 5a. equal components are equal with equal hash codes
+ * 5b. different components, or a different type, are not equal
  */
 class CoordinateTest {
 
@@ -169,4 +172,21 @@ class CoordinateTest {
         assertEquals(acc.x, before.x);
         assertEquals(acc.y, before.y);
     }
-}
\ No newline at end of file
+
+    @org.junit.jupiter.api.Test
+    void equals_case1() {
+        Coordinate a = new Coordinate(testX3, testY3);
+        Coordinate b = new Coordinate(testX3, testY3);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+    }
+
+    @org.junit.jupiter.api.Test
+    void equals_case2() {
+        Coordinate a = new Coordinate(testX1, testY1);
+        assertNotEquals(a, new Coordinate(testY1, testX1));
+        assertNotEquals(a, new Coordinate(testX1, testY2));
+        assertNotEquals(a, null);
+        assertNotEquals(a, "(1, 2)");
+    }
+}
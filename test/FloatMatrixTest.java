@@ -1,5 +1,10 @@
 import java.awt.datatransfer.FlavorEvent;
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -43,11 +48,39 @@ import static org.junit.jupiter.api.Assertions.*;
  * 6c. test multiplication with identity matrix leaves product unchanged.
  * 6d. test multiplication with self to produce the square of a matrix
  * 6e. test multiplication with null other matrix
+ * 6f. test a product spanning several tiles matches a naive triple loop exactly
  *
- * 7. fromFile()
- * 7a. test common case of a 2x2 matrix
- * 7b. test exception thrown for malformed file
- * 7c. test exception thrown for file not found
+ * 7. multiplyParallel()
+ * 7a. test the parallel product equals multiply() exactly for several thread counts, including the common pool's
+ * 7b. test exception is thrown on invalid dimensions
+ * 7c. test exception is thrown for a non-positive parallelism
+ *
+ * 8. pow()
+ * 8a. test the 0th power is the identity matrix
+ * 8b. test the 1st power leaves the matrix unchanged
+ * 8c. test a power with several bits set against repeated multiply()
+ * 8d. test exception is thrown for a non-square matrix
+ * 8e. test exception is thrown for a negative power
+ *
+ * 9. fromFile()
+ * 9a. test common case of a 2x2 matrix
+ * 9b. test exception thrown for malformed file
+ * 9c. test exception thrown for file not found
+ * 9d. test values in many formats parse exactly as Float.valueOf does
+ * 9e. test Windows line endings and trailing commas are accepted
+ * 9f. test rows of different lengths are reported as malformed
+ * 9g. test a binary matrix file is recognized by its magic number
+ *
+ * 10. toBinaryFile() and fromBinaryFile()
+ * 10a. test a matrix is unchanged by writing and reading it
+ * 10b. test exception thrown for a text file
+ * 10c. test exception thrown for a truncated file
+ *
+ * 11. SIMD kernels (only run when FloatMatrix.isSimdEnabled())
+ * 11a. test the SIMD product kernel matches the scalar kernel exactly, including partial vectors
+ * 11b. test the SIMD sum matches a sequential double sum up to rounding
+ * 11c. test the SIMD fill sets exactly the requested range
+ * 11d. test rowSum() of rows whose length is not a multiple of the vector length
  */
 class FloatMatrixTest {
 
@@ -349,6 +382,137 @@ class FloatMatrixTest {
         }
     }
 
+    FloatMatrix randomMatrix(int rows, int cols, long seed) {
+        java.util.Random rand = new java.util.Random(seed);
+        FloatMatrix M = new FloatMatrix(rows, cols);
+        for (int i = 0; i < rows; ++i) {
+            for (int j = 0; j < cols; ++j) {
+                M.set(i, j, rand.nextFloat());
+            }
+        }
+        return M;
+    }
+
+    @org.junit.jupiter.api.Test
+    void multiply_multipleTiles() {
+        //dimensions chosen so that no dimension is a multiple of the tile size
+        int M = 70, N = 131, P = 90;
+        FloatMatrix A = randomMatrix(M, N, 42);
+        FloatMatrix B = randomMatrix(N, P, 43);
+
+        FloatMatrix prod = A.multiply(B);
+        assertEquals(M, prod.rows());
+        assertEquals(P, prod.columns());
+        for (int i = 0; i < M; ++i) {
+            for (int j = 0; j < P; ++j) {
+                float expected = 0.0f;
+                for (int k = 0; k < N; ++k) {
+                    expected += A.get(i, k) * B.get(k, j);
+                }
+                assertEquals(expected, prod.get(i, j));
+            }
+        }
+    }
+    @org.junit.jupiter.api.Test
+    void multiplyParallel_matchesMultiply() {
+        FloatMatrix A = randomMatrix(600, 300, 7);
+        FloatMatrix B = randomMatrix(300, 700, 8);
+        FloatMatrix expected = A.multiply(B);
+
+        int[] threadCounts = {1, 2, 3, ForkJoinPool.getCommonPoolParallelism()};
+        for (int threads : threadCounts) {
+            FloatMatrix prod = A.multiplyParallel(B, threads);
+            for (int i = 0; i < expected.rows(); ++i) {
+                for (int j = 0; j < expected.columns(); ++j) {
+                    assertEquals(expected.get(i, j), prod.get(i, j));
+                }
+            }
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void multiplyParallel_badDimensions() {
+        FloatMatrix M1 = new FloatMatrix(testMat1, 2);
+        FloatMatrix M2 = new FloatMatrix(testMat2, 2);
+        try {
+            FloatMatrix result = M1.multiplyParallel(M2);
+            fail("Expected ArithmeticException but got result: " + result);
+        } catch (ArithmeticException e) {
+            // This exception is expected
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void multiplyParallel_badParallelism() {
+        FloatMatrix M = new FloatMatrix(testMat1, 2);
+        assertThrows(IllegalArgumentException.class, () -> M.multiplyParallel(M, 0));
+    }
+
+    @org.junit.jupiter.api.Test
+    void pow_zero() {
+        FloatMatrix M = new FloatMatrix(testMat1, 2);
+        FloatMatrix I = new FloatMatrix(I_2, 2);
+        FloatMatrix result = M.pow(0);
+        for (int i = 0; i < 2; ++i) {
+            for (int j = 0; j < 2; ++j) {
+                assertEqualsFloat(I.get(i, j), result.get(i, j));
+            }
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void pow_one() {
+        FloatMatrix M = new FloatMatrix(testMat1, 2);
+        FloatMatrix result = M.pow(1);
+        for (int i = 0; i < 2; ++i) {
+            for (int j = 0; j < 2; ++j) {
+                assertEqualsFloat(M.get(i, j), result.get(i, j));
+            }
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void pow_repeatedMultiply() {
+        FloatMatrix M = randomMatrix(5, 5, 3);
+        for (int i = 0; i < 5; ++i) {
+            for (int j = 0; j < 5; ++j) {
+                M.set(i, j, M.get(i, j) / 5); //keep the entries of the powers small
+            }
+        }
+        FloatMatrix expected = M;
+        for (int n = 1; n < 11; ++n) {
+            expected = expected.multiply(M);
+        }
+
+        FloatMatrix result = M.pow(11);
+        for (int i = 0; i < 5; ++i) {
+            for (int j = 0; j < 5; ++j) {
+                assertEqualsFloat(expected.get(i, j), result.get(i, j));
+            }
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void pow_notSquare() {
+        FloatMatrix M = new FloatMatrix(testMat2, 3);
+        try {
+            FloatMatrix result = M.pow(2);
+            fail("Expected ArithmeticException but got result: " + result);
+        } catch (ArithmeticException e) {
+            // This exception is expected
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void pow_negative() {
+        FloatMatrix M = new FloatMatrix(testMat1, 2);
+        try {
+            FloatMatrix result = M.pow(-1);
+            fail("Expected IllegalArgumentException but got result: " + result);
+        } catch (IllegalArgumentException e) {
+            // This exception is expected
+        }
+    }
 
     @org.junit.jupiter.api.Test
     void fromFile_goodFile() {
@@ -382,4 +546,168 @@ class FloatMatrixTest {
             //Exception expected.
         }
     }
-}
\ No newline at end of file
+
+    File writeTempFile(String contents) throws IOException {
+        File fp = File.createTempFile("FloatMatrixTest", ".txt");
+        fp.deleteOnExit();
+        Files.writeString(fp.toPath(), contents);
+        return fp;
+    }
+
+    @org.junit.jupiter.api.Test
+    void fromFile_exactValues() throws IOException {
+        java.util.Random rand = new java.util.Random(5);
+        String[] formats = {"%.1f", "%.4f", "%.8f", "%.12f", "%e", "%.3e"};
+        int rows = 200, cols = 12;
+        String[] tokens = new String[rows * cols];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rows; ++i) {
+            for (int j = 0; j < cols; ++j) {
+                double v = (rand.nextDouble() - 0.5) * Math.pow(10, rand.nextInt(9) - 4);
+                String tok = (j % 7 == 0) ? Float.toString((float) v)
+                        : String.format(formats[(i + j) % formats.length], v);
+                tokens[i * cols + j] = tok;
+                sb.append(j > 0 ? ", " : "").append(tok);
+            }
+            sb.append("\n");
+        }
+
+        FloatMatrix M = FloatMatrix.fromFile(writeTempFile(sb.toString()).getPath());
+        assertEquals(rows, M.rows());
+        assertEquals(cols, M.columns());
+        for (int i = 0; i < rows; ++i) {
+            for (int j = 0; j < cols; ++j) {
+                assertEquals(Float.valueOf(tokens[i * cols + j]), M.get(i, j), tokens[i * cols + j]);
+            }
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void fromFile_lineEndings() throws IOException {
+        FloatMatrix M = FloatMatrix.fromFile(writeTempFile("1.0, 2.0,\r\n3.0, 4.0\r\n").getPath());
+        assertEquals(2, M.rows());
+        assertEquals(2, M.columns());
+        assertEquals(2.0f, M.get(0, 1));
+        assertEquals(3.0f, M.get(1, 0));
+    }
+
+    @org.junit.jupiter.api.Test
+    void fromFile_raggedRows() throws IOException {
+        String path = writeTempFile("1.0, 2.0\n3.0, foo, 5.0\n").getPath();
+        RuntimeException e = assertThrows(RuntimeException.class, () -> FloatMatrix.fromFile(path));
+        assertEquals("Malformed file for FloatMatrix.fromFile. Are all rows the same length?", e.getMessage());
+    }
+
+    @org.junit.jupiter.api.Test
+    void fromFile_binary() throws IOException {
+        File fp = File.createTempFile("FloatMatrixTest", ".bin");
+        fp.deleteOnExit();
+        new FloatMatrix(testMat2, 3).toBinaryFile(fp.getPath());
+
+        FloatMatrix M = FloatMatrix.fromFile(fp.getPath());
+        assertEquals(2, M.rows());
+        assertEquals(3, M.columns());
+        assertEquals(6.0f, M.get(1, 2));
+    }
+
+    @org.junit.jupiter.api.Test
+    void binaryFile_roundTrip() throws IOException {
+        FloatMatrix M = randomMatrix(37, 91, 11);
+        M.set(0, 0, -0.0f);
+        M.set(1, 1, Float.NaN);
+        File fp = File.createTempFile("FloatMatrixTest", ".bin");
+        fp.deleteOnExit();
+        M.toBinaryFile(fp.getPath());
+        assertEquals(12 + 4 * 37 * 91, fp.length());
+
+        FloatMatrix read = FloatMatrix.fromBinaryFile(fp.getPath());
+        assertEquals(M.rows(), read.rows());
+        assertEquals(M.columns(), read.columns());
+        for (int i = 0; i < M.rows(); ++i) {
+            for (int j = 0; j < M.columns(); ++j) {
+                assertEquals(Float.floatToRawIntBits(M.get(i, j)), Float.floatToRawIntBits(read.get(i, j)));
+            }
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void binaryFile_textFile() {
+        assertThrows(RuntimeException.class, () -> FloatMatrix.fromBinaryFile("test/inputs/good.txt"));
+    }
+
+    @org.junit.jupiter.api.Test
+    void binaryFile_truncated() throws IOException {
+        File fp = File.createTempFile("FloatMatrixTest", ".bin");
+        fp.deleteOnExit();
+        new FloatMatrix(testMat2, 3).toBinaryFile(fp.getPath());
+        byte[] bytes = Files.readAllBytes(fp.toPath());
+        Files.write(fp.toPath(), Arrays.copyOf(bytes, bytes.length - 4));
+
+        assertThrows(RuntimeException.class, () -> FloatMatrix.fromBinaryFile(fp.getPath()));
+    }
+
+    @org.junit.jupiter.api.Test
+    void simd_multiplyMatchesScalar() {
+        org.junit.jupiter.api.Assumptions.assumeTrue(FloatMatrix.isSimdEnabled());
+        int M = 37, N = 71, P = 77;
+        float[] a = new float[M * N];
+        float[] b = new float[N * P];
+        java.util.Random rand = new java.util.Random(11);
+        for (int i = 0; i < a.length; ++i) {
+            a[i] = rand.nextFloat() - 0.5f;
+        }
+        for (int i = 0; i < b.length; ++i) {
+            b[i] = rand.nextFloat() - 0.5f;
+        }
+        float[] scalar = new float[M * P];
+        float[] simd = new float[M * P];
+        FloatMatrix._multiplyBlockedScalar(a, b, scalar, N, P, 0, M, 3, P);
+        FloatMatrix._multiplyBlockedSimd(a, b, simd, N, P, 0, M, 3, P);
+        for (int i = 0; i < scalar.length; ++i) {
+            assertEquals(Float.floatToRawIntBits(scalar[i]), Float.floatToRawIntBits(simd[i]), "Entry " + i);
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void simd_sum() {
+        org.junit.jupiter.api.Assumptions.assumeTrue(FloatMatrix.isSimdEnabled());
+        float[] a = new float[1003];
+        java.util.Random rand = new java.util.Random(12);
+        for (int i = 0; i < a.length; ++i) {
+            a[i] = rand.nextFloat();
+        }
+        for (int from : new int[]{0, 1, 5}) {
+            for (int to : new int[]{from, from + 3, 1000, 1003}) {
+                double expected = 0.0;
+                for (int j = from; j < to; ++j) {
+                    expected += a[j];
+                }
+                assertEquals(expected, FloatMatrix._sumSimd(a, from, to), 1e-9);
+            }
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void simd_fill() {
+        org.junit.jupiter.api.Assumptions.assumeTrue(FloatMatrix.isSimdEnabled());
+        float[] a = new float[101];
+        FloatMatrix._fillSimd(a, 3, 98, 2.5f);
+        for (int i = 0; i < a.length; ++i) {
+            assertEquals(i >= 3 && i < 98 ? 2.5f : 0.0f, a[i], "Entry " + i);
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void rowSum_oddLength() {
+        int N = 67;
+        FloatMatrix M = new FloatMatrix(3, N);
+        for (int j = 0; j < N; ++j) {
+            M.set(1, j, 0.25f);
+            M.set(2, j, j);
+        }
+        assertEquals(0.0, M.rowSum(0));
+        assertEquals(0.25 * N, M.rowSum(1));
+        assertEquals(N * (N - 1) / 2.0, M.rowSum(2));
+    }
+
+}
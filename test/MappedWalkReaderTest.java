@@ -0,0 +1,222 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the MappedWalkReader class.
+ *
+ * 1. random access
+ * 1a. every coordinate of .walk, .dat and .txt files matches the path saved,
+ *     for small and default checkpoint intervals.
+ * 1b. the saved test cases, gold1.txt and output.dat, can be read.
+ * 1c. empty walks have no coordinates.
+ * 1d. coordinates of a text file too far past their checkpoint for the second level of the index are read.
+ *
+ * 2. readRange()
+ * 2a. ranges within and across checkpoints match the path saved.
+ * 2b. strides smaller and larger than the checkpoint interval sub-sample the path.
+ *
+ * 3. exceptional cases
+ * 3a. invalid indices and ranges throw IndexOutOfBoundsException.
+ * 3b. invalid checkpoint intervals and strides throw IllegalArgumentException.
+ * 3c. malformed files throw RuntimeException.
+ * 3d. a closed reader throws IllegalStateException.
+ */
+public class MappedWalkReaderTest {
+
+    static final float[] testMat1 = {0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.25f, 0.25f, 0.25f, 0.25f};
+    static final String[] SUFFIXES = {".walk", ".dat", ".txt"};
+
+    static WalkPath randomPath(int steps, long seed) {
+        RandomWalker walker = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), seed));
+        return walker.walkCompact(steps);
+    }
+
+    static File save(WalkPath path, String suffix) throws IOException {
+        File fp = File.createTempFile("MappedWalkReaderTest", suffix);
+        fp.deleteOnExit();
+        WalkWriter.write(fp.getPath(), path);
+        return fp;
+    }
+
+    @Test
+    void getPacked_testMatchesPath() throws IOException {
+        WalkPath path = randomPath(5001, 1);
+        for (String suffix : SUFFIXES) {
+            File fp = save(path, suffix);
+            for (int interval : new int[]{4, 8, 20, 1024, 0}) {
+                try (MappedWalkReader reader = new MappedWalkReader(fp.getPath(), interval)) {
+                    assertEquals(suffix.equals(".walk"), reader.isBinary());
+                    assertEquals(path.size(), reader.size());
+                    assertEquals(5001, reader.getStepCount());
+                    for (int i = 0; i < path.size(); ++i) {
+                        assertEquals(path.getPacked(i), reader.getPacked(i), suffix + " coordinate " + i);
+                    }
+                    //Out of order access.
+                    for (int i = path.size() - 1; i >= 0; i -= 97) {
+                        assertEquals(path.get(i), reader.get(i));
+                        assertEquals(path.getX(i), reader.getX(i));
+                        assertEquals(path.getY(i), reader.getY(i));
+                    }
+                }
+            }
+            fp.delete();
+        }
+    }
+
+    @Test
+    void getPacked_testTestCases() throws IOException {
+        MarkovChain mc = new MarkovChain(FloatMatrix.fromFile("test_cases/example1.txt"),
+                new String[]{"N", "E", "S", "W"});
+        WalkPath path = new RandomWalker(mc).walkCompact(200);
+
+        for (String fname : new String[]{"test_cases/gold1.txt", "test_cases/output.dat"}) {
+            try (MappedWalkReader reader = new MappedWalkReader(fname)) {
+                assertEquals(path.size(), reader.size());
+                for (int i = 0; i < path.size(); ++i) {
+                    assertEquals(path.getPacked(i), reader.getPacked(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    void size_testEmpty() throws IOException {
+        for (String suffix : SUFFIXES) {
+            File fp = save(new WalkPath(), suffix);
+            try (MappedWalkReader reader = new MappedWalkReader(fp.getPath())) {
+                assertEquals(0, reader.size());
+                assertEquals(0, reader.getStepCount());
+                assertThrows(IndexOutOfBoundsException.class, () -> reader.getPacked(0));
+            }
+            fp.delete();
+        }
+    }
+
+    @Test
+    void getPacked_testPaddedText() throws IOException {
+        File fp = File.createTempFile("MappedWalkReaderTest", ".txt");
+        fp.deleteOnExit();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            text.append(i).append(' ').append(-i).append('\n');
+            if (i == 40) {
+                text.append(" ".repeat(70000));
+            }
+        }
+        Files.writeString(fp.toPath(), text);
+
+        try (MappedWalkReader reader = new MappedWalkReader(fp.getPath())) {
+            assertEquals(100, reader.size());
+            for (int i = 99; i >= 0; --i) {
+                assertEquals(WalkPath.pack(i, -i), reader.getPacked(i), "coordinate " + i);
+            }
+            WalkPath read = new WalkPath();
+            reader.readRange(3, 100, 16, read);
+            assertEquals(7, read.size());
+            for (int k = 0; k < read.size(); ++k) {
+                assertEquals(WalkPath.pack(3 + 16 * k, -3 - 16 * k), read.getPacked(k));
+            }
+        }
+        fp.delete();
+    }
+
+    @Test
+    void readRange_testRanges() throws IOException {
+        WalkPath path = randomPath(300, 2);
+        for (String suffix : SUFFIXES) {
+            File fp = save(path, suffix);
+            try (MappedWalkReader reader = new MappedWalkReader(fp.getPath(), 16)) {
+                int[][] ranges = {{0, 301}, {0, 0}, {5, 6}, {15, 17}, {16, 48}, {33, 290}, {300, 301}};
+                for (int[] range : ranges) {
+                    WalkPath read = new WalkPath();
+                    reader.readRange(range[0], range[1], read);
+                    assertEquals(path.asList().subList(range[0], range[1]), read.asList(), suffix);
+                }
+            }
+            fp.delete();
+        }
+    }
+
+    @Test
+    void readRange_testStrides() throws IOException {
+        WalkPath path = randomPath(1000, 3);
+        for (String suffix : SUFFIXES) {
+            File fp = save(path, suffix);
+            try (MappedWalkReader reader = new MappedWalkReader(fp.getPath(), 16)) {
+                for (int stride : new int[]{1, 3, 16, 17, 250}) {
+                    WalkPath expected = new WalkPath();
+                    for (int i = 7; i < 990; i += stride) {
+                        expected.add(path.getX(i), path.getY(i));
+                    }
+                    WalkPath read = new WalkPath();
+                    reader.readRange(7, 990, stride, read);
+                    assertEquals(expected.asList(), read.asList(), suffix + " stride " + stride);
+                }
+            }
+            fp.delete();
+        }
+    }
+
+    @Test
+    void getPacked_testBadIndices() throws IOException {
+        File fp = save(randomPath(10, 4), ".walk");
+        try (MappedWalkReader reader = new MappedWalkReader(fp.getPath())) {
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.getPacked(-1));
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.getPacked(11));
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.readRange(0, 12, new WalkPath()));
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.readRange(5, 4, new WalkPath()));
+            assertThrows(IllegalArgumentException.class, () -> reader.readRange(0, 5, 0, new WalkPath()));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new MappedWalkReader(fp.getPath(), 6));
+        assertThrows(IllegalArgumentException.class, () -> new MappedWalkReader(fp.getPath(), -4));
+        fp.delete();
+    }
+
+    @Test
+    void close_testClosed() throws IOException {
+        for (String suffix : SUFFIXES) {
+            File fp = save(randomPath(10, 6), suffix);
+            MappedWalkReader reader = new MappedWalkReader(fp.getPath());
+            reader.close();
+            reader.close();
+            assertEquals(11, reader.size());
+            assertThrows(IllegalStateException.class, () -> reader.getPacked(0));
+            assertThrows(IllegalStateException.class, () -> reader.get(5));
+            assertThrows(IllegalStateException.class, () -> reader.readRange(0, 5, new WalkPath()));
+            fp.delete();
+        }
+    }
+
+    @Test
+    void constructor_testMalformed() throws IOException {
+        File fp = File.createTempFile("MappedWalkReaderTest", ".dat");
+        try {
+            Files.write(fp.toPath(), "1 2 3".getBytes());
+            assertThrows(RuntimeException.class, () -> new MappedWalkReader(fp.getPath()));
+
+            Files.write(fp.toPath(), "1 2 - 3".getBytes());
+            assertThrows(RuntimeException.class, () -> new MappedWalkReader(fp.getPath()));
+
+            Files.write(fp.toPath(), "1 2 3 99999999999".getBytes());
+            assertThrows(RuntimeException.class, () -> new MappedWalkReader(fp.getPath()));
+
+            WalkWriter.write(fp.getPath() + ".walk", randomPath(10, 5));
+            File walk = new File(fp.getPath() + ".walk");
+            byte[] bytes = Files.readAllBytes(walk.toPath());
+            Files.write(walk.toPath(), java.util.Arrays.copyOf(bytes, bytes.length + 1));
+            assertThrows(RuntimeException.class, () -> new MappedWalkReader(walk.getPath()));
+            walk.delete();
+        } finally {
+            fp.delete();
+        }
+    }
+
+}
@@ -15,6 +15,7 @@ import static org.junit.jupiter.api.Assertions.*;
  *
  * 3. nextState()
  * 3a. with a forced probability, ensure transition occurs from one state to another.
+ * 3b. for a fixed seed, the same states are reached as by a linear scan of each row.
  *
  * 4. getNumStates()
  * 4a. where there should be 2 states
@@ -25,6 +26,41 @@ import static org.junit.jupiter.api.Assertions.*;
  * 5a. a valid transition matrix should return true
  * 5b. a transition matrix with valid sums but invalid dimensions
  * 5c. a transition matrix of size 1 (edge case)
+ *
+ * 6. nStepDistribution()
+ * 6a. with a forced probability, all mass is on the forced state
+ * 6b. a periodic chain alternates between states on odd and even step counts
+ * 6c. zero steps leaves all mass on the start state
+ * 6d. an invalid start state throws an exception
+ * 6e. a sparse transition matrix gives the same distribution as a dense one
+ *
+ * 7. setSamplingStrategy()
+ * 7a. the default strategy is CDF
+ * 7b. with the alias strategy and a forced probability, ensure transition occurs
+ * 7c. with the alias strategy, zero-probability states are never reached
+ * 7d. with the alias strategy, state frequencies match the transition probabilities
+ * 7e. with the alias strategy, a matrix with a negative probability is rejected rather than sampled
+ *
+ * 8. getStateLabel()
+ * 8a. labels given to the constructor, with missing labels numbered
+ * 8b. an unlabelled chain numbers its states, and invalid states throw an exception
+ *
+ * 9. setSeed()
+ * 9a. a reseeded chain makes the same transitions as a new chain with that seed
+ * 9b. a chain with a SplittableRandom or another JDK algorithm is reseeded as a new chain with that generator
+ * 9c. a chain with a generator of no JDK algorithm cannot be reseeded
+ *
+ * 10. split()
+ * 10a. a child split with a generator behaves as a new chain with that generator
+ * 10b. a child keeps the parent's state and strategy, and does not advance the parent
+ * 10c. children of a splittable generator follow different streams
+ *
+ * 11. stationaryDistribution()
+ * 11a. a two-state chain converges to its known stationary distribution
+ * 11b. a periodic chain converges rather than oscillating
+ * 11c. a sparse chain gives the same distribution as the dense one
+ * 11d. too few iterations reports no convergence
+ * 11e. invalid tolerance or iteration limits throw an exception
  */
 class MarkovChainTest {
 
@@ -33,6 +69,7 @@ class MarkovChainTest {
     static final float[] testMat3 = {0.0f, 1.0f, 0.0f, 0.5f, 0.5f, 0.0f};
     static final float[] testMat4 = {1.0f};
     static final float[] testMat5 = {0.0f, 1.0f, 0.0f, 0.33f, 0.34f, 0.33f, 0.5f, 0.5f, 0.0f};
+    static final float[] testMat6 = {0.0f, 1.0f, 1.0f, 0.0f}; //Always switch state
 
     @org.junit.jupiter.api.Test
     void getState_validrange() {
@@ -92,6 +129,26 @@ class MarkovChainTest {
         assertEquals(mc.getState(), 0); //should always return to state 0.
     }
 
+    @org.junit.jupiter.api.Test
+    void nextState_matchesLinearScan() {
+        FloatMatrix T = new FloatMatrix(testMat5, 3);
+        MarkovChain mc = new MarkovChain(T, 1234);
+        java.util.Random rand = new java.util.Random(1234);
+        int expected = 0;
+        for (int step = 0; step < 10000; ++step) {
+            double r = rand.nextDouble();
+            double curTotal = 0.0;
+            for (int i = 0; i < 3; ++i) {
+                curTotal += T.get(expected, i);
+                if (r < curTotal) {
+                    expected = i;
+                    break;
+                }
+            }
+            assertEquals(expected, mc.nextState());
+        }
+    }
+
     @org.junit.jupiter.api.Test
     void getNumStates_2() {
         MarkovChain mc = new MarkovChain(new FloatMatrix(testMat2, 2));
@@ -140,6 +197,256 @@ class MarkovChainTest {
         assertTrue(valid);
     }
 
+    @org.junit.jupiter.api.Test
+    void nStepDistribution_forced() {
+        MarkovChain mc = new MarkovChain(new FloatMatrix(testMat1, 2));
+        float[] dist = mc.nStepDistribution(1, 1000000);
+        assertEquals(2, dist.length);
+        assertEquals(1.0f, dist[0], FloatMatrix.EPSILON);
+        assertEquals(0.0f, dist[1], FloatMatrix.EPSILON);
+    }
+
+    @org.junit.jupiter.api.Test
+    void nStepDistribution_periodic() {
+        MarkovChain mc = new MarkovChain(new FloatMatrix(testMat6, 2));
+        float[] even = mc.nStepDistribution(0, 4000000);
+        assertEquals(1.0f, even[0], FloatMatrix.EPSILON);
+        float[] odd = mc.nStepDistribution(0, 4000001);
+        assertEquals(1.0f, odd[1], FloatMatrix.EPSILON);
+    }
+
+    @org.junit.jupiter.api.Test
+    void nStepDistribution_zeroSteps() {
+        MarkovChain mc = new MarkovChain(new FloatMatrix(testMat5, 3));
+        float[] dist = mc.nStepDistribution(2, 0);
+        assertEquals(0.0f, dist[0]);
+        assertEquals(0.0f, dist[1]);
+        assertEquals(1.0f, dist[2]);
+    }
+
+    @org.junit.jupiter.api.Test
+    void nStepDistribution_sparse() {
+        FloatMatrix T = new FloatMatrix(testMat5, 3);
+        float[] dense = new MarkovChain(T).nStepDistribution(1, 25);
+        float[] sparse = new MarkovChain(new SparseFloatMatrix(T)).nStepDistribution(1, 25);
+        for (int j = 0; j < 3; ++j) {
+            assertEquals(dense[j], sparse[j], FloatMatrix.EPSILON);
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void nStepDistribution_badState() {
+        MarkovChain mc = new MarkovChain(new FloatMatrix(testMat5, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> mc.nStepDistribution(3, 1));
+    }
+
+    @org.junit.jupiter.api.Test
+    void samplingStrategy_default() {
+        MarkovChain mc = new MarkovChain(new FloatMatrix(testMat1, 2));
+        assertEquals(MarkovChain.SamplingStrategy.CDF, mc.getSamplingStrategy());
+    }
+
+    @org.junit.jupiter.api.Test
+    void samplingStrategy_aliasForced() {
+        MarkovChain mc = new MarkovChain(new FloatMatrix(testMat1, 2));
+        mc.setSamplingStrategy(MarkovChain.SamplingStrategy.ALIAS);
+        mc.setState(1);
+        mc.nextState();
+        assertEquals(0, mc.getState());
+    }
+
+    @org.junit.jupiter.api.Test
+    void samplingStrategy_aliasZeroProbability() {
+        MarkovChain mc = new MarkovChain(new FloatMatrix(testMat5, 3), 17);
+        mc.setSamplingStrategy(MarkovChain.SamplingStrategy.ALIAS);
+        for (int i = 0; i < 10000; ++i) {
+            mc.setState(0);
+            assertEquals(1, mc.nextState(), "State 0 should always transition to state 1");
+            mc.setState(2);
+            assertNotEquals(2, mc.nextState(), "State 2 should never transition to itself");
+        }
+    }
 
+    @org.junit.jupiter.api.Test
+    void samplingStrategy_aliasFrequencies() {
+        MarkovChain mc = new MarkovChain(new FloatMatrix(testMat5, 3), 17);
+        mc.setSamplingStrategy(MarkovChain.SamplingStrategy.ALIAS);
+        int N = 100000;
+        int[] counts = new int[3];
+        for (int i = 0; i < N; ++i) {
+            mc.setState(1);
+            counts[mc.nextState()]++;
+        }
+        assertEquals(0.33, (double) counts[0] / N, 0.01);
+        assertEquals(0.34, (double) counts[1] / N, 0.01);
+        assertEquals(0.33, (double) counts[2] / N, 0.01);
+    }
+
+    @org.junit.jupiter.api.Test
+    void samplingStrategy_aliasNegativeProbability() {
+        //Every row sums to 1, so only the entry check stops the alias tables being built from it.
+        float[] negativeMat = {0.5f, -0.2f, 0.7f, 0.0f, 1.0f, 0.0f, 0.5f, 0.5f, 0.0f};
+        assertThrows(IllegalArgumentException.class, () -> {
+            MarkovChain mc = new MarkovChain(new FloatMatrix(negativeMat, 3), 17);
+            mc.setSamplingStrategy(MarkovChain.SamplingStrategy.ALIAS);
+            mc.setState(0);
+            mc.nextState();
+        });
+    }
+
+    @org.junit.jupiter.api.Test
+    void getStateLabel_labelled() {
+        MarkovChain mc = new MarkovChain(new FloatMatrix(testMat5, 3), new String[]{"N", "E"});
+        assertEquals("N", mc.getStateLabel(0));
+        assertEquals("E", mc.getStateLabel(1));
+        assertEquals("2", mc.getStateLabel(2));
+    }
+
+    @org.junit.jupiter.api.Test
+    void getStateLabel_unlabelled() {
+        MarkovChain mc = new MarkovChain(new FloatMatrix(testMat2, 2));
+        assertEquals("1", mc.getStateLabel(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> mc.getStateLabel(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> mc.getStateLabel(-1));
+    }
+
+    @org.junit.jupiter.api.Test
+    void setSeed_matchesNewChain() {
+        MarkovChain reseeded = new MarkovChain(new FloatMatrix(testMat5, 3), 1);
+        for (int i = 0; i < 10; ++i) {
+            reseeded.nextState();
+        }
+        reseeded.setState(0);
+        reseeded.setSeed(77);
+        MarkovChain fresh = new MarkovChain(new FloatMatrix(testMat5, 3), 77);
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(fresh.nextState(), reseeded.nextState());
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void setSeed_otherGenerators() {
+        MarkovChain splittable = new MarkovChain(new FloatMatrix(testMat5, 3), new java.util.SplittableRandom(1));
+        splittable.nextState();
+        splittable.setState(0);
+        splittable.setSeed(77);
+        MarkovChain freshSplittable = new MarkovChain(new FloatMatrix(testMat5, 3), new java.util.SplittableRandom(77));
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(freshSplittable.nextState(), splittable.nextState());
+        }
+
+        java.util.random.RandomGeneratorFactory<?> factory = java.util.random.RandomGeneratorFactory.of("L64X128MixRandom");
+        MarkovChain mixed = new MarkovChain(new FloatMatrix(testMat5, 3), factory.create(1));
+        mixed.nextState();
+        mixed.setState(0);
+        mixed.setSeed(77);
+        MarkovChain freshMixed = new MarkovChain(new FloatMatrix(testMat5, 3), factory.create(77));
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(freshMixed.nextState(), mixed.nextState());
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void setSeed_unsupported() {
+        java.util.random.RandomGenerator constant = () -> 0L;
+        MarkovChain mc = new MarkovChain(new FloatMatrix(testMat2, 2), constant);
+        assertThrows(UnsupportedOperationException.class, () -> mc.setSeed(1));
+    }
+
+    @org.junit.jupiter.api.Test
+    void split_matchesNewChain() {
+        MarkovChain parent = new MarkovChain(new FloatMatrix(testMat5, 3), new String[]{"N", "E", "S"}, 3);
+        MarkovChain child = parent.split(new java.util.Random(21));
+        MarkovChain fresh = new MarkovChain(new FloatMatrix(testMat5, 3), new String[]{"N", "E", "S"}, 21);
+        assertEquals("S", child.getStateLabel(2));
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(fresh.nextState(), child.nextState());
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void split_keepsStateAndStrategy() {
+        MarkovChain parent = new MarkovChain(new FloatMatrix(testMat5, 3), 8);
+        MarkovChain twin = new MarkovChain(new FloatMatrix(testMat5, 3), 8);
+        parent.setSamplingStrategy(MarkovChain.SamplingStrategy.ALIAS);
+        twin.setSamplingStrategy(MarkovChain.SamplingStrategy.ALIAS);
+        parent.setState(2);
+        twin.setState(2);
+
+        MarkovChain child = parent.split(new java.util.SplittableRandom(4));
+        assertEquals(2, child.getState());
+        assertEquals(MarkovChain.SamplingStrategy.ALIAS, child.getSamplingStrategy());
+        for (int i = 0; i < 100; ++i) {
+            child.nextState();
+            assertEquals(twin.nextState(), parent.nextState(), "The child should not affect the parent");
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void split_independentStreams() {
+        MarkovChain parent = new MarkovChain(new FloatMatrix(testMat2, 2), new java.util.SplittableRandom(5));
+        MarkovChain a = parent.split();
+        MarkovChain b = parent.split();
+        int same = 0;
+        int N = 1000;
+        for (int i = 0; i < N; ++i) {
+            if (a.nextState() == b.nextState()) {
+                ++same;
+            }
+        }
+        assertNotEquals(N, same, "Two children should not make identical transitions");
+        assertEquals(0.5, (double) same / N, 0.1);
+    }
+
+    @org.junit.jupiter.api.Test
+    void stationaryDistribution_twoStates() {
+        //pi = (5/6, 1/6) solves pi * T = pi.
+        MarkovChain mc = new MarkovChain(new FloatMatrix(new float[]{0.9f, 0.1f, 0.5f, 0.5f}, 2));
+        TransitionModel.StationaryDistribution pi = mc.stationaryDistribution(1e-12, 10000);
+        assertTrue(pi.isConverged());
+        assertTrue(pi.getResidual() <= 1e-12);
+        assertTrue(pi.getIterations() > 1);
+        assertEquals(5.0 / 6.0, pi.get(0), 1e-6);
+        assertEquals(1.0 / 6.0, pi.get(1), 1e-6);
+    }
+
+    @org.junit.jupiter.api.Test
+    void stationaryDistribution_periodic() {
+        MarkovChain mc = new MarkovChain(new FloatMatrix(testMat6, 2));
+        TransitionModel.StationaryDistribution pi = mc.stationaryDistribution(1e-10, 1000);
+        assertTrue(pi.isConverged());
+        assertArrayEquals(new double[]{0.5, 0.5}, pi.getDistribution(), 1e-9);
+    }
+
+    @org.junit.jupiter.api.Test
+    void stationaryDistribution_sparse() {
+        FloatMatrix T = new FloatMatrix(testMat5, 3);
+        double[] dense = new MarkovChain(T).stationaryDistribution(1e-10, 10000).getDistribution();
+        double[] sparse = new MarkovChain(new SparseFloatMatrix(T)).stationaryDistribution(1e-10, 10000)
+                .getDistribution();
+        assertArrayEquals(dense, sparse, 1e-9);
+        double sum = 0.0;
+        for (double p : dense) {
+            sum += p;
+        }
+        assertEquals(1.0, sum, 1e-9);
+    }
+
+    @org.junit.jupiter.api.Test
+    void stationaryDistribution_notConverged() {
+        MarkovChain mc = new MarkovChain(new FloatMatrix(new float[]{0.9f, 0.1f, 0.5f, 0.5f}, 2));
+        TransitionModel.StationaryDistribution pi = mc.stationaryDistribution(0.0, 2);
+        assertFalse(pi.isConverged());
+        assertEquals(2, pi.getIterations());
+        assertTrue(pi.getResidual() > 0.0);
+    }
+
+    @org.junit.jupiter.api.Test
+    void stationaryDistribution_invalid() {
+        MarkovChain mc = new MarkovChain(new FloatMatrix(testMat2, 2));
+        assertThrows(IllegalArgumentException.class, () -> mc.stationaryDistribution(-1.0, 10));
+        assertThrows(IllegalArgumentException.class, () -> mc.stationaryDistribution(Double.NaN, 10));
+        assertThrows(IllegalArgumentException.class, () -> mc.stationaryDistribution(1e-6, 0));
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,153 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for the Metrics class.
+ *
+ * 1. Histogram
+ * 1a. values are counted in power of two buckets.
+ * 1b. count, sum, max and mean of the values counted.
+ * 1c. percentiles are upper bounds within a factor of two; invalid percentiles throw IllegalArgumentException.
+ * 1d. reset forgets every value.
+ *
+ * 2. recording (run with and without -Dwalksim.metrics=true)
+ * 2a. disabled: walks, transitions and saves record nothing and report prints nothing.
+ * 2b. enabled: steps, transitions per state, bytes written and phases are recorded and reported.
+ * 2c. enabled: a spiral walk counts the steps that move, not the turns.
+ */
+public class MetricsTest {
+
+    static final float[] testMat1 = {0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.25f, 0.25f, 0.25f, 0.25f};
+
+    @Test
+    void bucketOf_testPowersOfTwo() {
+        assertEquals(0, Metrics.Histogram.bucketOf(0));
+        assertEquals(0, Metrics.Histogram.bucketOf(-5));
+        assertEquals(1, Metrics.Histogram.bucketOf(1));
+        assertEquals(2, Metrics.Histogram.bucketOf(2));
+        assertEquals(2, Metrics.Histogram.bucketOf(3));
+        assertEquals(3, Metrics.Histogram.bucketOf(4));
+        assertEquals(10, Metrics.Histogram.bucketOf(1023));
+        assertEquals(11, Metrics.Histogram.bucketOf(1024));
+        assertEquals(63, Metrics.Histogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    void record_testStatistics() {
+        Metrics.Histogram h = new Metrics.Histogram();
+        assertEquals(0, h.getCount());
+        assertEquals(0.0, h.getMean());
+        assertEquals(0, h.getPercentile(50));
+
+        for (long v : new long[]{1, 2, 3, 100, 1000}) {
+            h.record(v);
+        }
+        assertEquals(5, h.getCount());
+        assertEquals(1106, h.getSum());
+        assertEquals(1000, h.getMax());
+        assertEquals(1106 / 5.0, h.getMean(), 1e-9);
+        assertEquals(1, h.getBucketCount(1));
+        assertEquals(2, h.getBucketCount(2));
+        assertEquals(1, h.getBucketCount(7));
+        assertEquals(1, h.getBucketCount(10));
+    }
+
+    @Test
+    void getPercentile_testBounds() {
+        Metrics.Histogram h = new Metrics.Histogram();
+        for (int v = 1; v <= 100; ++v) {
+            h.record(v);
+        }
+        long p50 = h.getPercentile(50);
+        assertTrue(p50 >= 50 && p50 < 100, "p50 " + p50);
+        assertEquals(100, h.getPercentile(100));
+        assertEquals(1, h.getPercentile(0));
+        assertThrows(IllegalArgumentException.class, () -> h.getPercentile(-1));
+        assertThrows(IllegalArgumentException.class, () -> h.getPercentile(101));
+        assertThrows(IllegalArgumentException.class, () -> h.getPercentile(Double.NaN));
+    }
+
+    @Test
+    void reset_testForgets() {
+        Metrics.Histogram h = new Metrics.Histogram();
+        h.record(12345);
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getSum());
+        assertEquals(0, h.getMax());
+    }
+
+    @Test
+    void report_testDisabled() throws IOException {
+        assumeFalse(Metrics.ENABLED);
+        File fp = File.createTempFile("MetricsTest", ".txt");
+        try {
+            RandomWalker walker = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 1));
+            walker.walkCompact(100);
+            walker.saveWalkToFile(fp.getPath());
+            assertEquals(0, Metrics.getSteps());
+            assertEquals(0, Metrics.getBytesWritten());
+            assertEquals(0, Metrics.getTransitions().length);
+            assertEquals(0, Metrics.getHistogram(Metrics.Phase.WALK).getCount());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Metrics.report(new PrintStream(out));
+            assertEquals(0, out.size());
+        } finally {
+            fp.delete();
+        }
+    }
+
+    @Test
+    void report_testEnabled() throws IOException {
+        assumeTrue(Metrics.ENABLED);
+        File fp = File.createTempFile("MetricsTest", ".dat");
+        try {
+            Metrics.reset();
+            RandomWalker walker = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 1));
+            walker.walkCompact(1000);
+            walker.saveWalkToFile(fp.getPath());
+            assertEquals(1000, Metrics.getSteps());
+            assertEquals(fp.length(), Metrics.getBytesWritten());
+            long transitions = 0;
+            for (long n : Metrics.getTransitions()) {
+                transitions += n;
+            }
+            assertEquals(1000, transitions);
+            assertEquals(1, Metrics.getHistogram(Metrics.Phase.WALK).getCount());
+            assertEquals(1, Metrics.getHistogram(Metrics.Phase.SAVE).getCount());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Metrics.report(new PrintStream(out));
+            assertTrue(out.toString().contains("steps simulated: 1000"));
+        } finally {
+            Metrics.reset();
+            fp.delete();
+        }
+    }
+
+    @Test
+    void addSteps_testSpiralEnabled() throws IOException {
+        assumeTrue(Metrics.ENABLED);
+        try {
+            Metrics.reset();
+            WalkPath spiral = new WalkPath();
+            new SpiralWalker(new MarkovChain(new FloatMatrix(testMat1, 4))).walk(10L, spiral);
+            assertEquals(spiral.size() - 1, Metrics.getSteps());
+        } finally {
+            Metrics.reset();
+        }
+    }
+
+}
@@ -3,6 +3,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Random;
 
@@ -17,10 +18,16 @@ import static org.junit.jupiter.api.Assertions.*;
  * 1a. common case: ensure walk path is the correct length for number of steps.
  * 1b. edge case: walk 0 steps.
  * 1c: error case: walk negative steps.
+ * 1d. walkCompact() takes unit steps and matches walk() for the same seed.
+ * 1e. each state label steps in its direction, and unknown labels step West.
  *
  * 2. saveWalkToFile()
  * 2a. common case, with a correct file path.
  * 2b. exceptional case, should throw IOException for bad file path.
+ *
+ * 3. walk() into a WalkSink
+ * 3a. the sink receives the coordinates walkCompact() returns for the same seed, and the path is unchanged.
+ * 3b. walkToFile() writes the same bytes as walk() and saveWalkToFile().
  */
 public class RandomWalkerTest {
 
@@ -66,6 +73,43 @@ public class RandomWalkerTest {
         assertEquals(path.size(),0, "Expected empty path with negative steps.");
     }
 
+    @Test
+    void walkCompact_testMatchesWalk() {
+        int Nsteps = 100;
+        RandomWalker walker = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 42));
+        WalkPath path = walker.walkCompact(Nsteps);
+
+        assertSame(path, walker.getPath());
+        assertEquals(Nsteps + 1, path.size());
+        assertEquals(RandomWalker.START_X, path.getX(0));
+        assertEquals(RandomWalker.START_Y, path.getY(0));
+        for (int i = 1; i < path.size(); ++i) {
+            int dist = Math.abs(path.getX(i) - path.getX(i-1)) + Math.abs(path.getY(i) - path.getY(i-1));
+            assertEquals(RandomWalker.STEP_SIZE, dist, "Each step should move one unit");
+        }
+
+        RandomWalker other = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 42));
+        assertEquals(path.asList(), other.walk(Nsteps));
+    }
+
+    @Test
+    void walk_testStepDirections() {
+        //Cycle through the states in order: 0 -> 1 -> 2 -> 3 -> 4 -> 0.
+        FloatMatrix T = new FloatMatrix(5);
+        for (int i = 0; i < 5; ++i) {
+            T.set(i, (i + 1) % 5, 1.0f);
+        }
+        MarkovChain mc = new MarkovChain(T, new String[]{"W", "N", "E", "S", "X"});
+        RandomWalker walker = new RandomWalker(mc);
+        ArrayList<Coordinate> path = walker.walk(5);
+
+        assertEquals(new Coordinate(0, 1), path.get(1));
+        assertEquals(new Coordinate(1, 1), path.get(2));
+        assertEquals(new Coordinate(1, 0), path.get(3));
+        assertEquals(new Coordinate(0, 0), path.get(4));
+        assertEquals(new Coordinate(-1, 0), path.get(5));
+    }
+
 
     @Test
     void saveWalkToFile_Common() {
@@ -98,4 +142,42 @@ public class RandomWalkerTest {
         }
     }
 
+    @Test
+    void walkSink_testMatchesWalkCompact() throws IOException {
+        int Nsteps = 1000;
+        RandomWalker walker = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 7));
+        WalkPath expected = walker.walkCompact(Nsteps);
+
+        RandomWalker streamed = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 7));
+        WalkPath received = new WalkPath();
+        streamed.walk(Nsteps, received);
+
+        assertEquals(expected.asList(), received.asList());
+        assertEquals(0, streamed.getPath().size(), "Streaming should not store the path");
+
+        WalkPath none = new WalkPath();
+        streamed.walk(0, none);
+        streamed.walk(-1, none);
+        assertEquals(0, none.size());
+    }
+
+    @Test
+    void walkSink_testWalkToFile() throws IOException {
+        File expected = File.createTempFile("RandomWalkerTest_saved", ".txt");
+        File actual = File.createTempFile("RandomWalkerTest_streamed", ".txt");
+        try {
+            RandomWalker walker = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 7));
+            walker.walk(500);
+            walker.saveWalkToFile(expected.getPath());
+
+            RandomWalker streamed = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 7));
+            streamed.walkToFile(500, actual.getPath());
+
+            assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath()));
+        } finally {
+            expected.delete();
+            actual.delete();
+        }
+    }
+
 }
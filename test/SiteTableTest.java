@@ -0,0 +1,137 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SiteTable class.
+ *
+ * 1. increment() and get()
+ * 1a. visit counts match a HashMap, on and off the heap, through many resizes.
+ * 1b. extreme coordinates and the origin are distinct sites.
+ * 1c. counts past the int range neither wrap nor empty their slot, on and off the heap, through a resize.
+ *
+ * 2. forEach() and clear()
+ * 2a. forEach visits every site once with its count.
+ * 2b. clear empties the table, keeping its capacity.
+ *
+ * 3. error cases
+ * 3a. invalid expected sizes throw IllegalArgumentException.
+ * 3b. a negative number of visits throws IllegalArgumentException.
+ */
+public class SiteTableTest {
+
+    @Test
+    void increment_testMatchesHashMap() {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            SiteTable table = new SiteTable(0, offHeap);
+            assertEquals(offHeap, table.isOffHeap());
+            Map<Long, Integer> expected = new HashMap<>();
+            Random rand = new Random(1);
+            for (int i = 0; i < 100000; ++i) {
+                int x = rand.nextInt(300) - 150;
+                int y = rand.nextInt(300) - 150;
+                int count = expected.merge(WalkPath.pack(x, y), 1, Integer::sum);
+                assertEquals(count, table.increment(x, y));
+            }
+            assertEquals(expected.size(), table.size());
+            assertTrue(table.size() <= table.capacity() / 4 * 3);
+            for (Map.Entry<Long, Integer> e : expected.entrySet()) {
+                assertEquals((long) e.getValue(), table.get(e.getKey()));
+            }
+            assertEquals(0, table.get(1000, 1000));
+            assertFalse(table.contains(1000, 1000));
+        }
+    }
+
+    @Test
+    void increment_testExtremes() {
+        SiteTable table = new SiteTable();
+        int[] values = {Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE};
+        for (int x : values) {
+            for (int y : values) {
+                assertEquals(1, table.increment(x, y));
+            }
+        }
+        assertEquals(2, table.increment(0, 0));
+        assertEquals(25, table.size());
+        assertEquals(1, table.get(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(2, table.get(0, 0));
+    }
+
+    @Test
+    void increment_testPastIntRange() {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            SiteTable table = new SiteTable(0, offHeap);
+            long visits = 1L << 32;
+            assertEquals(visits - 1, table.add(3, -4, visits - 1));
+            assertEquals(visits, table.increment(3, -4));
+            assertEquals(visits + 1, table.increment(3, -4));
+            assertEquals(Integer.MAX_VALUE + 1L, table.add(0, 0, Integer.MAX_VALUE + 1L));
+            for (int i = 1; i <= 100; ++i) {
+                table.increment(i, i);
+            }
+            assertEquals(102, table.size());
+            assertEquals(visits + 1, table.get(3, -4));
+            assertEquals(Integer.MAX_VALUE + 1L, table.get(0, 0));
+            assertEquals(visits + 1, table.add(3, -4, 0));
+            long[] seen = new long[1];
+            table.forEach((x, y, count) -> {
+                if (x == 3) {
+                    seen[0] = count;
+                }
+            });
+            assertEquals(visits + 1, seen[0]);
+        }
+    }
+
+    @Test
+    void forEach_testEverySite() {
+        SiteTable table = new SiteTable(4, true);
+        for (int i = 0; i < 50; ++i) {
+            for (int j = 0; j <= i % 3; ++j) {
+                table.increment(i, -i);
+            }
+        }
+        int[] seen = new int[50];
+        table.forEach((x, y, count) -> {
+            assertEquals(-x, y);
+            assertEquals(x % 3 + 1, count);
+            ++seen[x];
+        });
+        for (int s : seen) {
+            assertEquals(1, s);
+        }
+    }
+
+    @Test
+    void clear_testEmpties() {
+        SiteTable table = new SiteTable();
+        for (int i = 0; i < 5000; ++i) {
+            table.increment(i, i);
+        }
+        int capacity = table.capacity();
+        table.clear();
+        assertEquals(0, table.size());
+        assertEquals(capacity, table.capacity());
+        assertEquals(0, table.get(7, 7));
+        assertEquals(1, table.increment(7, 7));
+    }
+
+    @Test
+    void constructor_testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new SiteTable(-1, false));
+        assertThrows(IllegalArgumentException.class, () -> new SiteTable(Integer.MAX_VALUE, false));
+    }
+
+    @Test
+    void add_testNegative() {
+        SiteTable table = new SiteTable();
+        assertThrows(IllegalArgumentException.class, () -> table.add(1, 1, -1));
+        assertEquals(0, table.size());
+    }
+
+}
@@ -0,0 +1,114 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SiteVisitTracker class.
+ *
+ * 1. accept()
+ * 1a. visit counts, distinct sites and the visit histogram match the path of a random walk.
+ * 1b. first return and first self-intersection times of a known walk.
+ * 1c. a self-avoiding walk never returns or intersects.
+ *
+ * 2. reset()
+ * 2a. reset forgets the walk, so the next coordinate starts a new one.
+ */
+public class SiteVisitTrackerTest {
+
+    static final float[] testMat1 = {0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.25f, 0.25f, 0.25f, 0.25f};
+
+    @Test
+    void accept_testMatchesPath() throws IOException {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            SiteVisitTracker tracker = new SiteVisitTracker(16, offHeap);
+            new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 2)).walk(20000, tracker);
+            WalkPath path = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 2)).walkCompact(20000);
+
+            Map<Long, Integer> visits = new HashMap<>();
+            long firstReturn = -1;
+            long firstIntersection = -1;
+            for (int i = 0; i < path.size(); ++i) {
+                int count = visits.merge(path.getPacked(i), 1, Integer::sum);
+                if (count > 1 && firstIntersection < 0) {
+                    firstIntersection = i;
+                }
+                if (count > 1 && firstReturn < 0 && path.getPacked(i) == path.getPacked(0)) {
+                    firstReturn = i;
+                }
+            }
+
+            assertEquals(20000, tracker.getStepCount());
+            assertEquals(visits.size(), tracker.getDistinctSites());
+            assertEquals(firstReturn, tracker.getFirstReturnTime());
+            assertEquals(firstIntersection, tracker.getFirstIntersectionTime());
+            int maxVisits = 0;
+            for (Map.Entry<Long, Integer> e : visits.entrySet()) {
+                assertEquals((long) e.getValue(), tracker.getVisits(WalkPath.unpackX(e.getKey()),
+                        WalkPath.unpackY(e.getKey())));
+                maxVisits = Math.max(maxVisits, e.getValue());
+            }
+            assertEquals(maxVisits, tracker.getMaxVisits());
+
+            long[] histogram = tracker.getVisitHistogram();
+            assertEquals(maxVisits + 1, histogram.length);
+            long sites = 0;
+            long coordinates = 0;
+            for (int c = 0; c < histogram.length; ++c) {
+                sites += histogram[c];
+                coordinates += c * histogram[c];
+            }
+            assertEquals(visits.size(), sites);
+            assertEquals(path.size(), coordinates);
+        }
+    }
+
+    @Test
+    void accept_testKnownWalk() {
+        SiteVisitTracker tracker = new SiteVisitTracker();
+        int[][] walk = {{0, 0}, {0, 1}, {1, 1}, {0, 1}, {0, 0}, {-1, 0}};
+        for (int[] c : walk) {
+            tracker.accept(c[0], c[1]);
+        }
+        assertEquals(5, tracker.getStepCount());
+        assertEquals(4, tracker.getDistinctSites());
+        assertEquals(3, tracker.getFirstIntersectionTime());
+        assertEquals(4, tracker.getFirstReturnTime());
+        assertEquals(2, tracker.getVisits(0, 1));
+        assertEquals(0, tracker.getVisits(5, 5));
+    }
+
+    @Test
+    void accept_testSelfAvoiding() {
+        SiteVisitTracker tracker = new SiteVisitTracker();
+        for (int i = 0; i < 100; ++i) {
+            tracker.accept(i, 0);
+        }
+        assertEquals(-1, tracker.getFirstReturnTime());
+        assertEquals(-1, tracker.getFirstIntersectionTime());
+        assertEquals(1, tracker.getMaxVisits());
+    }
+
+    @Test
+    void reset_testNewWalk() {
+        SiteVisitTracker tracker = new SiteVisitTracker();
+        tracker.accept(0, 0);
+        tracker.accept(0, 1);
+        tracker.accept(0, 0);
+        tracker.reset();
+        assertEquals(0, tracker.getStepCount());
+        assertEquals(0, tracker.getDistinctSites());
+        assertEquals(-1, tracker.getFirstReturnTime());
+        tracker.accept(5, 5);
+        tracker.accept(0, 0);
+        tracker.accept(5, 5);
+        assertEquals(2, tracker.getFirstReturnTime());
+    }
+
+}
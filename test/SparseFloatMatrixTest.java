@@ -0,0 +1,169 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the SparseFloatMatrix class.
+ *
+ * 1. construction
+ * 1a. compress a dense matrix and check every entry and the number of non-zeros
+ * 1b. construct from CSR arrays
+ * 1c. exception thrown for row pointers not matching the entries
+ * 1d. exception thrown for unsorted column indices
+ *
+ * 2. get()
+ * 2a. get() with out of bounds row index
+ * 2b. get() with out of bounds column index
+ *
+ * 3. getRow() and rowSum()
+ * 3a. only the non-zero entries of a row are returned, in column order
+ * 3b. sum of each row
+ *
+ * 4. multiply()
+ * 4a. test the product matches the dense product
+ * 4b. test exception is thrown on invalid dimensions
+ *
+ * 5. leftMultiply()
+ * 5a. test the vector product matches the dense vector product
+ * 5b. test exception is thrown on invalid vector length
+ *
+ * 6. use in a MarkovChain
+ * 6a. a sparse valid transition matrix is valid
+ * 6b. with a forced probability, ensure transition occurs from one state to another
+ */
+class SparseFloatMatrixTest {
+
+    static final float[] testMat1 = {1.0f, 0.0f, 2.0f,
+                                     0.0f, 0.0f, 0.0f,
+                                     0.0f, 3.0f, 4.0f};
+    static final float[] testMat2 = {0.0f, 1.0f,
+                                     5.0f, 0.0f,
+                                     2.0f, 3.0f};
+    static final float[] ringMat = {0.0f, 1.0f, 0.0f, 0.0f,
+                                    0.0f, 0.0f, 1.0f, 0.0f,
+                                    0.0f, 0.0f, 0.0f, 1.0f,
+                                    1.0f, 0.0f, 0.0f, 0.0f};
+
+    void assertSameEntries(FloatMatrix expected, Matrix actual) {
+        assertEquals(expected.rows(), actual.rows());
+        assertEquals(expected.columns(), actual.columns());
+        for (int i = 0; i < expected.rows(); ++i) {
+            for (int j = 0; j < expected.columns(); ++j) {
+                assertEquals(expected.get(i, j), actual.get(i, j), FloatMatrix.EPSILON);
+            }
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void construct_fromDense() {
+        FloatMatrix dense = new FloatMatrix(testMat1, 3);
+        SparseFloatMatrix M = new SparseFloatMatrix(dense);
+        assertEquals(4, M.nonZeros());
+        assertSameEntries(dense, M);
+    }
+
+    @org.junit.jupiter.api.Test
+    void construct_fromArrays() {
+        SparseFloatMatrix M = new SparseFloatMatrix(3, 3,
+                new int[]{0, 2, 2, 4}, new int[]{0, 2, 1, 2}, new float[]{1.0f, 2.0f, 3.0f, 4.0f});
+        assertSameEntries(new FloatMatrix(testMat1, 3), M);
+    }
+
+    @org.junit.jupiter.api.Test
+    void construct_badRowPointers() {
+        assertThrows(IllegalArgumentException.class, () -> new SparseFloatMatrix(3, 3,
+                new int[]{0, 2, 2, 5}, new int[]{0, 2, 1, 2}, new float[]{1.0f, 2.0f, 3.0f, 4.0f}));
+    }
+
+    @org.junit.jupiter.api.Test
+    void construct_unsortedColumns() {
+        assertThrows(IllegalArgumentException.class, () -> new SparseFloatMatrix(3, 3,
+                new int[]{0, 2, 2, 4}, new int[]{2, 0, 1, 2}, new float[]{1.0f, 2.0f, 3.0f, 4.0f}));
+    }
+
+    @org.junit.jupiter.api.Test
+    void get_badRow() {
+        SparseFloatMatrix M = new SparseFloatMatrix(new FloatMatrix(testMat1, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> M.get(3, 0));
+    }
+
+    @org.junit.jupiter.api.Test
+    void get_badColumn() {
+        SparseFloatMatrix M = new SparseFloatMatrix(new FloatMatrix(testMat1, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> M.get(0, -1));
+    }
+
+    @org.junit.jupiter.api.Test
+    void getRow_nonZeros() {
+        SparseFloatMatrix M = new SparseFloatMatrix(new FloatMatrix(testMat1, 3));
+        int[] cols = new int[3];
+        float[] vals = new float[3];
+        assertEquals(2, M.getRow(0, cols, vals));
+        assertEquals(0, cols[0]);
+        assertEquals(2, cols[1]);
+        assertEquals(1.0f, vals[0]);
+        assertEquals(2.0f, vals[1]);
+        assertEquals(0, M.getRow(1, cols, vals));
+    }
+
+    @org.junit.jupiter.api.Test
+    void rowSum_rows() {
+        SparseFloatMatrix M = new SparseFloatMatrix(new FloatMatrix(testMat1, 3));
+        assertEquals(3.0, M.rowSum(0), FloatMatrix.EPSILON);
+        assertEquals(0.0, M.rowSum(1), FloatMatrix.EPSILON);
+        assertEquals(7.0, M.rowSum(2), FloatMatrix.EPSILON);
+    }
+
+    @org.junit.jupiter.api.Test
+    void multiply_matchesDense() {
+        FloatMatrix A = new FloatMatrix(testMat1, 3);
+        FloatMatrix B = new FloatMatrix(testMat2, 2);
+        SparseFloatMatrix prod = new SparseFloatMatrix(A).multiply(new SparseFloatMatrix(B));
+        assertSameEntries(A.multiply(B), prod);
+    }
+
+    @org.junit.jupiter.api.Test
+    void multiply_badDimensions() {
+        SparseFloatMatrix A = new SparseFloatMatrix(new FloatMatrix(testMat2, 2));
+        try {
+            SparseFloatMatrix prod = A.multiply(A);
+            fail("Expected ArithmeticException but got result: " + prod);
+        } catch (ArithmeticException e) {
+            // This exception is expected
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void leftMultiply_matchesDense() {
+        FloatMatrix dense = new FloatMatrix(testMat2, 2);
+        SparseFloatMatrix M = new SparseFloatMatrix(dense);
+        double[] vec = {0.5, -1.0, 2.0};
+        double[] expected = new double[2];
+        double[] result = new double[2];
+        dense.leftMultiply(vec, expected);
+        M.leftMultiply(vec, result);
+        assertArrayEquals(expected, result, FloatMatrix.EPSILON);
+        assertEquals(-1.0, result[0], FloatMatrix.EPSILON);
+    }
+
+    @org.junit.jupiter.api.Test
+    void leftMultiply_badLength() {
+        SparseFloatMatrix M = new SparseFloatMatrix(new FloatMatrix(testMat2, 2));
+        assertThrows(ArithmeticException.class, () -> M.leftMultiply(new double[2], new double[2]));
+    }
+
+    @org.junit.jupiter.api.Test
+    void markovChain_valid() {
+        SparseFloatMatrix M = new SparseFloatMatrix(new FloatMatrix(ringMat, 4));
+        assertTrue(MarkovChain.isValidTransitionMatrix(M));
+    }
+
+    @org.junit.jupiter.api.Test
+    void markovChain_forced() {
+        MarkovChain mc = new MarkovChain(new SparseFloatMatrix(new FloatMatrix(ringMat, 4)));
+        for (int step = 1; step <= 8; ++step) {
+            assertEquals(step % 4, mc.nextState());
+        }
+        mc.setSamplingStrategy(MarkovChain.SamplingStrategy.ALIAS);
+        assertEquals(1, mc.nextState());
+    }
+
+}
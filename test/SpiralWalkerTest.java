@@ -26,4 +26,25 @@ class SpiralWalkerTest {
     @Test
     void saveWalkToFile() {
     }
+
+    @Test
+    void walkSink_testMatchesWalk() throws IOException {
+        ArrayList<Coordinate> expected = new SpiralWalker(testMC1).walk(20);
+
+        WalkPath received = new WalkPath();
+        new SpiralWalker(testMC1).walk(20L, received);
+
+        assertEquals(expected, received.asList());
+    }
+
+    @Test
+    void walkSink_testContinuesFromLastPosition() throws IOException {
+        SpiralWalker walker = new SpiralWalker(testMC1);
+        WalkPath first = new WalkPath();
+        walker.walk(10L, first);
+        WalkPath second = new WalkPath();
+        walker.walk(10L, second);
+
+        assertEquals(first.get(first.size() - 1), second.get(0));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the TransitionModel class.
+ *
+ * 1. constructor
+ * 1a. an invalid transition matrix throws IllegalArgumentException.
+ * 1b. a dense matrix is copied, so later changes to it do not affect the model.
+ * 1c. labels are kept, and missing or absent labels are state numbers.
+ * 1d. negative or NaN entries throw IllegalArgumentException, even when every row sums to 1.
+ *
+ * 2. sampleCdf() and sampleAlias()
+ * 2a. the boundaries of a row's cumulative distribution pick the expected states.
+ * 2b. a forced transition is always sampled by both methods.
+ *
+ * 3. sharing
+ * 3a. chains sharing one model walk as chains with their own copies.
+ */
+public class TransitionModelTest {
+
+    static final float[] testMat1 = {0.25f, 0.0f, 0.75f,
+                                     0.0f, 1.0f, 0.0f,
+                                     0.5f, 0.5f, 0.0f};
+    static final float[] badMat = {0.5f, 0.4f,
+                                   0.5f, 0.5f};
+    static final float[] negativeMat = {0.5f, -0.2f, 0.7f,
+                                        0.0f, 1.0f, 0.0f,
+                                        0.5f, 0.5f, 0.0f};
+    static final float[] nanMat = {Float.NaN, 1.0f,
+                                   0.5f, 0.5f};
+
+    @Test
+    void constructor_testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new TransitionModel(new FloatMatrix(badMat, 2)));
+        assertThrows(IllegalArgumentException.class, () -> new TransitionModel(new FloatMatrix(2, 3)));
+        assertThrows(IllegalArgumentException.class, () -> new TransitionModel(null));
+        assertThrows(IllegalArgumentException.class, () -> new MarkovChain(new FloatMatrix(badMat, 2)));
+    }
+
+    @Test
+    void constructor_testNegativeOrNaN() {
+        assertThrows(IllegalArgumentException.class, () -> new TransitionModel(new FloatMatrix(negativeMat, 3)));
+        assertThrows(IllegalArgumentException.class, () -> new TransitionModel(new FloatMatrix(nanMat, 2)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TransitionModel(new SparseFloatMatrix(new FloatMatrix(negativeMat, 3))));
+        assertThrows(IllegalArgumentException.class, () -> new MarkovChain(new FloatMatrix(negativeMat, 3)));
+    }
+
+    @Test
+    void constructor_testCopiesDense() {
+        FloatMatrix T = new FloatMatrix(testMat1, 3);
+        TransitionModel model = new TransitionModel(T);
+        T.set(0, 0, 0.0f);
+        T.set(0, 1, 0.25f);
+
+        assertEquals(0.25f, model.getProbability(0, 0));
+        assertEquals(0.0f, model.getProbability(0, 1));
+        assertEquals(0, model.sampleCdf(0, 0.1));
+    }
+
+    @Test
+    void constructor_testLabels() {
+        TransitionModel labelled = new TransitionModel(new FloatMatrix(testMat1, 3), new String[]{"A", "B"});
+        assertEquals(3, labelled.getNumStates());
+        assertEquals("A", labelled.getStateLabel(0));
+        assertEquals("2", labelled.getStateLabel(2));
+
+        TransitionModel unlabelled = new TransitionModel(new FloatMatrix(testMat1, 3));
+        assertEquals("1", unlabelled.getStateLabel(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> unlabelled.getStateLabel(3));
+    }
+
+    @Test
+    void sampleCdf_testBoundaries() {
+        TransitionModel model = new TransitionModel(new FloatMatrix(testMat1, 3));
+        assertEquals(0, model.sampleCdf(0, 0.0));
+        assertEquals(0, model.sampleCdf(0, 0.2499));
+        assertEquals(2, model.sampleCdf(0, 0.25));
+        assertEquals(2, model.sampleCdf(0, 0.9999));
+        assertEquals(0, model.sampleCdf(2, 0.4999));
+        assertEquals(1, model.sampleCdf(2, 0.5));
+    }
+
+    @Test
+    void sample_testForced() {
+        TransitionModel model = new TransitionModel(new FloatMatrix(testMat1, 3));
+        for (double r = 0.0; r < 1.0; r += 0.01) {
+            assertEquals(1, model.sampleCdf(1, r));
+            assertEquals(1, model.sampleAlias(1, r));
+            assertNotEquals(1, model.sampleAlias(0, r), "State 0 never transitions to state 1");
+        }
+    }
+
+    @Test
+    void sharing_testMatchesCopies() {
+        FloatMatrix T = new FloatMatrix(testMat1, 3);
+        TransitionModel model = new TransitionModel(T);
+        MarkovChain shared1 = new MarkovChain(model, 1);
+        MarkovChain shared2 = new MarkovChain(model, 2);
+        MarkovChain own1 = new MarkovChain(T, 1);
+        MarkovChain own2 = new MarkovChain(T, 2);
+
+        assertSame(model, shared1.getModel());
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(own1.nextState(), shared1.nextState());
+            assertEquals(own2.nextState(), shared2.nextState());
+        }
+    }
+
+}
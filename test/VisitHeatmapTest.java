@@ -0,0 +1,226 @@
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the VisitHeatmap class.
+ *
+ * 1. counting
+ * 1a. a Recorder counts the sites of a walk, across tile boundaries and negative coordinates.
+ * 1b. tiles are only allocated where sites are visited.
+ * 1c. Recorders on several threads count concurrently without losing visits.
+ * 1d. an ensemble streamed into Recorders counts every step of every walker.
+ * 1e. counts past Integer.MAX_VALUE do not overflow, and are written and rendered;
+ *     a negative number of visits throws IllegalArgumentException.
+ *
+ * 2. write()
+ * 2a. CSV lists every visited site with its count.
+ * 2b. PGM and PNG images cover the bounding box, brightest at the most visited site.
+ * 2c. an empty heatmap writes a 1 by 1 image; other extensions throw IllegalArgumentException.
+ */
+public class VisitHeatmapTest {
+
+    static final String[] cardinals = {"N", "E", "S", "W"};
+    static final float[] testMat1 = {0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.25f, 0.25f, 0.25f, 0.25f};
+
+    @Test
+    void recorder_testMatchesPath() throws IOException {
+        VisitHeatmap heatmap = new VisitHeatmap();
+        new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 1)).walk(20000, heatmap.newRecorder());
+        WalkPath path = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4), 1)).walkCompact(20000);
+
+        Map<Long, Integer> visits = new HashMap<>();
+        for (int i = 0; i < path.size(); ++i) {
+            visits.merge(path.getPacked(i), 1, Integer::sum);
+        }
+        for (Map.Entry<Long, Integer> e : visits.entrySet()) {
+            assertEquals((long) e.getValue(), heatmap.get(WalkPath.unpackX(e.getKey()), WalkPath.unpackY(e.getKey())));
+        }
+        assertEquals(path.size(), heatmap.getTotalVisits());
+        assertEquals(0, heatmap.get(100000, 100000));
+    }
+
+    @Test
+    void increment_testSparseTiles() {
+        VisitHeatmap heatmap = new VisitHeatmap();
+        heatmap.increment(0, 0);
+        heatmap.increment(63, 63);
+        heatmap.increment(-1, 0);
+        heatmap.increment(1000000, -1000000);
+        heatmap.increment(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        assertEquals(4, heatmap.getTileCount());
+        assertEquals(1, heatmap.get(-1, 0));
+        assertEquals(1, heatmap.get(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(0, heatmap.get(-1, -1));
+    }
+
+    @Test
+    void recorder_testConcurrent() throws Exception {
+        VisitHeatmap heatmap = new VisitHeatmap();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> futures = executor.invokeAll(List.of(
+                    () -> square(heatmap), () -> square(heatmap), () -> square(heatmap), () -> square(heatmap)));
+            for (Future<Object> f : futures) {
+                f.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int x = -100; x < 100; ++x) {
+            for (int y = -100; y < 100; ++y) {
+                assertEquals(40, heatmap.get(x, y));
+            }
+        }
+    }
+
+    static Object square(VisitHeatmap heatmap) {
+        VisitHeatmap.Recorder recorder = heatmap.newRecorder();
+        for (int i = 0; i < 10; ++i) {
+            for (int x = -100; x < 100; ++x) {
+                for (int y = -100; y < 100; ++y) {
+                    recorder.accept(x, y);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void recorder_testEnsemble() throws InterruptedException {
+        WalkEnsemble ensemble = new WalkEnsemble(new FloatMatrix(testMat1, 4), cardinals,
+                WalkEnsemble.WalkerType.RANDOM, 500, 200, 3);
+        VisitHeatmap heatmap = new VisitHeatmap();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            ensemble.stream(executor, heatmap::newRecorder);
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(200 * 501, heatmap.getTotalVisits());
+        assertEquals(200, heatmap.get(0, 0) - returns(ensemble));
+    }
+
+    /* The number of times the walkers of an ensemble come back to the origin after starting there. */
+    static int returns(WalkEnsemble ensemble) throws InterruptedException {
+        int[] returns = new int[1];
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ensemble.run(executor, (i, path) -> {
+                for (int j = 1; j < path.size(); ++j) {
+                    if (path.getX(j) == 0 && path.getY(j) == 0) {
+                        ++returns[0];
+                    }
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+        return returns[0];
+    }
+
+    @Test
+    void add_testPastIntRange() throws IOException {
+        VisitHeatmap heatmap = new VisitHeatmap();
+        heatmap.add(0, 0, Integer.MAX_VALUE);
+        heatmap.newRecorder().accept(0, 0);
+        heatmap.increment(0, 0);
+        heatmap.increment(1, 0);
+        heatmap.add(1, 0, 0);
+        assertEquals(Integer.MAX_VALUE + 2L, heatmap.get(0, 0));
+        assertEquals(Integer.MAX_VALUE + 3L, heatmap.getTotalVisits());
+        assertThrows(IllegalArgumentException.class, () -> heatmap.add(0, 0, -1));
+
+        File csv = File.createTempFile("VisitHeatmapTest", ".csv");
+        File pgm = File.createTempFile("VisitHeatmapTest", ".pgm");
+        try {
+            heatmap.write(csv.getPath());
+            assertEquals(List.of("x,y,count", "0,0," + (Integer.MAX_VALUE + 2L), "1,0,1"),
+                    Files.readAllLines(csv.toPath()));
+            //The busiest site is the brightest pixel, not dropped.
+            heatmap.write(pgm.getPath());
+            byte[] bytes = Files.readAllBytes(pgm.toPath());
+            assertEquals((byte) 255, bytes[bytes.length - 2]);
+        } finally {
+            csv.delete();
+            pgm.delete();
+        }
+    }
+
+    @Test
+    void write_testCsv() throws IOException {
+        VisitHeatmap heatmap = new VisitHeatmap();
+        heatmap.increment(-1, 2);
+        heatmap.increment(-1, 2);
+        heatmap.increment(70, 0);
+        File fp = File.createTempFile("VisitHeatmapTest", ".csv");
+        try {
+            heatmap.write(fp.getPath());
+            List<String> lines = Files.readAllLines(fp.toPath());
+            assertEquals(List.of("x,y,count", "-1,2,2", "70,0,1"), lines);
+        } finally {
+            fp.delete();
+        }
+    }
+
+    @Test
+    void write_testImages() throws IOException {
+        VisitHeatmap heatmap = new VisitHeatmap();
+        heatmap.increment(-2, 3);
+        for (int i = 0; i < 9; ++i) {
+            heatmap.increment(1, -1);
+        }
+        File pgm = File.createTempFile("VisitHeatmapTest", ".pgm");
+        File png = File.createTempFile("VisitHeatmapTest", ".png");
+        try {
+            heatmap.write(pgm.getPath());
+            byte[] bytes = Files.readAllBytes(pgm.toPath());
+            String header = "P5\n4 5\n255\n";
+            assertEquals(header, new String(bytes, 0, header.length()));
+            assertEquals(header.length() + 4 * 5, bytes.length);
+            //(-2, 3) is the top left pixel and (1, -1) the bottom right.
+            assertEquals((byte) Math.round(Math.log(2) / Math.log(10) * 255), bytes[header.length()]);
+            assertEquals((byte) 255, bytes[bytes.length - 1]);
+            assertEquals(0, bytes[header.length() + 1]);
+
+            heatmap.write(png.getPath());
+            BufferedImage image = ImageIO.read(png);
+            assertEquals(4, image.getWidth());
+            assertEquals(5, image.getHeight());
+            assertEquals(255, image.getRaster().getSample(3, 4, 0));
+            assertEquals(0, image.getRaster().getSample(1, 0, 0));
+        } finally {
+            pgm.delete();
+            png.delete();
+        }
+    }
+
+    @Test
+    void write_testEmptyAndUnknown() throws IOException {
+        VisitHeatmap heatmap = new VisitHeatmap();
+        File fp = File.createTempFile("VisitHeatmapTest", ".pgm");
+        try {
+            heatmap.write(fp.getPath());
+            assertEquals("P5\n1 1\n255\n\0", new String(Files.readAllBytes(fp.toPath())));
+        } finally {
+            fp.delete();
+        }
+        assertThrows(IllegalArgumentException.class, () -> heatmap.write("heatmap.txt"));
+    }
+
+}
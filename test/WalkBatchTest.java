@@ -0,0 +1,154 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the WalkBatch class.
+ *
+ * 1. parsing jobs
+ * 1a. walker types are parsed by number or name.
+ * 1b. jobs given as arguments are parsed five values at a time.
+ * 1c. job files skip blank lines and comments, and report the line of an invalid job.
+ *
+ * 2. running jobs
+ * 2a. a job with seed 0 reproduces the gold files written by WalkSim.
+ * 2b. every walker type writes the walk it would save itself.
+ * 2c. matrix files are read once and shared by later jobs.
+ * 2d. a failed job is reported and the following jobs still run.
+ */
+public class WalkBatchTest {
+
+    static final String[] CARDINALS = {"N", "E", "S", "W"};
+
+    @Test
+    void parseWalkerType_testNumbersAndNames() {
+        assertEquals(WalkEnsemble.WalkerType.RANDOM, WalkBatch.parseWalkerType("0"));
+        assertEquals(WalkEnsemble.WalkerType.SPIRAL, WalkBatch.parseWalkerType("1"));
+        assertEquals(WalkEnsemble.WalkerType.BREADCRUMB, WalkBatch.parseWalkerType("2"));
+        assertEquals(WalkEnsemble.WalkerType.SPIRAL, WalkBatch.parseWalkerType("Spiral"));
+        assertEquals(WalkEnsemble.WalkerType.BREADCRUMB, WalkBatch.parseWalkerType("breadcrumb"));
+        assertThrows(IllegalArgumentException.class, () -> WalkBatch.parseWalkerType("3"));
+        assertThrows(IllegalArgumentException.class, () -> WalkBatch.parseWalkerType("drunk"));
+    }
+
+    @Test
+    void parseJobs_testArguments() {
+        List<WalkBatch.Job> jobs = WalkBatch.parseJobs(new String[]{
+                "a.txt", "0", "200", "0", "out1.txt",
+                "b.txt", "spiral", "10", "-5", "out2.walk"});
+        assertEquals(2, jobs.size());
+        assertEquals("b.txt", jobs.get(1).matrixFile);
+        assertEquals(WalkEnsemble.WalkerType.SPIRAL, jobs.get(1).walkerType);
+        assertEquals(10, jobs.get(1).nSteps);
+        assertEquals(-5, jobs.get(1).seed);
+        assertEquals("out2.walk", jobs.get(1).outputFile);
+
+        assertThrows(IllegalArgumentException.class, () -> WalkBatch.parseJobs(new String[]{"a.txt", "0", "200"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> WalkBatch.parseJobs(new String[]{"a.txt", "0", "many", "0", "out.txt"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> WalkBatch.parseJobs(new String[]{"a.txt", "0", "-1", "0", "out.txt"}));
+    }
+
+    @Test
+    void readJobFile_testCommentsAndErrors() throws IOException {
+        File fp = File.createTempFile("WalkBatchTest", ".jobs");
+        try {
+            Files.write(fp.toPath(), Arrays.asList(
+                    "# matrix type steps seed output",
+                    "",
+                    "test_cases/example1.txt 0 200 0 out1.txt",
+                    "   test_cases/example2.txt\tbreadcrumb  50 7 out2.dat  "));
+            List<WalkBatch.Job> jobs = WalkBatch.readJobFile(fp.getPath());
+            assertEquals(2, jobs.size());
+            assertEquals("test_cases/example2.txt", jobs.get(1).matrixFile);
+            assertEquals(WalkEnsemble.WalkerType.BREADCRUMB, jobs.get(1).walkerType);
+            assertEquals("out2.dat", jobs.get(1).outputFile);
+
+            Files.write(fp.toPath(), Arrays.asList("test_cases/example1.txt 0 200 0 out1.txt",
+                    "test_cases/example1.txt 0 200 out1.txt"));
+            IllegalArgumentException iae = assertThrows(IllegalArgumentException.class,
+                    () -> WalkBatch.readJobFile(fp.getPath()));
+            assertTrue(iae.getMessage().contains(":2:"), "The message should give the line: " + iae.getMessage());
+        } finally {
+            fp.delete();
+        }
+    }
+
+    @Test
+    void run_testGoldFiles() throws IOException {
+        WalkBatch batch = new WalkBatch();
+        for (int i = 1; i <= 4; ++i) {
+            File out = File.createTempFile("WalkBatchTest_gold", ".txt");
+            try {
+                batch.run(WalkBatch.Job.parse(new String[]{"test_cases/example" + i + ".txt", "0", "200", "0",
+                        out.getPath()}, 0));
+                assertArrayEquals(Files.readAllBytes(new File("test_cases/gold" + i + ".txt").toPath()),
+                        Files.readAllBytes(out.toPath()), "gold" + i);
+            } finally {
+                out.delete();
+            }
+        }
+    }
+
+    @Test
+    void run_testWalkerTypes() throws IOException {
+        FloatMatrix T = FloatMatrix.fromFile("test_cases/example3.txt");
+        WalkBatch batch = new WalkBatch();
+        File expected = File.createTempFile("WalkBatchTest_expected", ".txt");
+        File actual = File.createTempFile("WalkBatchTest_actual", ".txt");
+        try {
+            new SpiralWalker(new MarkovChain(T, CARDINALS, 3)).walkToFile(40, expected.getPath());
+            batch.run(new WalkBatch.Job("test_cases/example3.txt", WalkEnsemble.WalkerType.SPIRAL, 40, 3,
+                    actual.getPath()));
+            assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath()));
+
+            BreadCrumbWalker breadCrumb = new BreadCrumbWalker(new MarkovChain(T, CARDINALS, 3));
+            breadCrumb.walk(40);
+            breadCrumb.saveWalkToFile(expected.getPath());
+            batch.run(new WalkBatch.Job("test_cases/example3.txt", WalkEnsemble.WalkerType.BREADCRUMB, 40, 3,
+                    actual.getPath()));
+            assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath()));
+        } finally {
+            expected.delete();
+            actual.delete();
+        }
+    }
+
+    @Test
+    void getModel_testCached() throws IOException {
+        WalkBatch batch = new WalkBatch();
+        TransitionModel model = batch.getModel("test_cases/example1.txt");
+        assertSame(model, batch.getModel("test_cases/example1.txt"));
+        assertNotSame(model, batch.getModel("test_cases/example2.txt"));
+        assertEquals("W", model.getStateLabel(3));
+    }
+
+    @Test
+    void runAll_testFailureContinues() throws IOException {
+        File out = File.createTempFile("WalkBatchTest_continue", ".dat");
+        try {
+            List<WalkBatch.Job> jobs = WalkBatch.parseJobs(new String[]{
+                    "test_cases/definitelynotarealmatrix.txt", "0", "10", "0", out.getPath(),
+                    "test_cases/example1.txt", "0", "10", "0", out.getPath()});
+            ByteArrayOutputStream log = new ByteArrayOutputStream();
+            int failed = new WalkBatch().runAll(jobs, new PrintStream(log));
+
+            assertEquals(1, failed);
+            assertTrue(out.length() > 0, "The second job should still run");
+            assertTrue(log.toString().contains("job 1 failed"));
+            assertTrue(log.toString().contains("1 of 2 jobs succeeded"));
+        } finally {
+            out.delete();
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the WalkEnsemble class.
+ *
+ * 1. walkerSeed()
+ * 1a. seeds are deterministic and differ between walkers.
+ *
+ * 2. run()
+ * 2a. the endpoints do not depend on the number of threads.
+ * 2b. each walker walks the same path as a single RandomWalker with the walker's seed.
+ * 2c. breadcrumb walkers all return to the start.
+ * 2d. the consumer receives the path of every walker exactly once.
+ * 2e. an ensemble of 0 steps finishes every walker at the start.
+ *
+ * 4. runStatistics()
+ * 4a. the statistics match those of the walkers' paths and do not depend on the number of threads.
+ *
+ * 3. error cases
+ * 3a. negative steps or walkers, or a non-positive parallelism, throw IllegalArgumentException.
+ */
+public class WalkEnsembleTest {
+
+    static final String[] cardinals = {"N", "E", "S", "W"};
+    static final float[] testMat1 = {0.1f, 0.2f, 0.3f, 0.4f,
+                                     0.4f, 0.3f, 0.2f, 0.1f,
+                                     0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.7f, 0.1f, 0.1f, 0.1f};
+
+    @Test
+    void walkerSeed_testDeterministic() {
+        assertEquals(WalkEnsemble.walkerSeed(42, 7), WalkEnsemble.walkerSeed(42, 7));
+        assertNotEquals(WalkEnsemble.walkerSeed(42, 7), WalkEnsemble.walkerSeed(42, 8));
+        assertNotEquals(WalkEnsemble.walkerSeed(42, 7), WalkEnsemble.walkerSeed(43, 7));
+    }
+
+    @Test
+    void run_testThreadCountIndependent() throws InterruptedException {
+        WalkEnsemble ensemble = new WalkEnsemble(new FloatMatrix(testMat1, 4), cardinals,
+                WalkEnsemble.WalkerType.RANDOM, 100, 300, 12345);
+        WalkEnsemble.Result r1 = ensemble.run(1);
+        WalkEnsemble.Result r4 = ensemble.run(4);
+
+        assertEquals(300, r1.size());
+        for (int i = 0; i < r1.size(); ++i) {
+            assertEquals(r1.getEndpoint(i), r4.getEndpoint(i), "Walker " + i + " should not depend on threads");
+        }
+        assertEquals(r1.meanSquaredDisplacement(), r4.meanSquaredDisplacement());
+    }
+
+    @Test
+    void run_testMatchesSingleWalker() throws InterruptedException {
+        FloatMatrix T = new FloatMatrix(testMat1, 4);
+        long masterSeed = 99;
+        int Nsteps = 50;
+        WalkEnsemble ensemble = new WalkEnsemble(T, cardinals,
+                WalkEnsemble.WalkerType.RANDOM, Nsteps, 130, masterSeed);
+        WalkEnsemble.Result result = ensemble.run(2);
+
+        for (int i : new int[]{0, 1, 64, 129}) {
+            RandomWalker walker = new RandomWalker(
+                    new MarkovChain(T, cardinals, new SplittableRandom(WalkEnsemble.walkerSeed(masterSeed, i))));
+            WalkPath path = walker.walkCompact(Nsteps);
+            assertEquals(path.get(Nsteps), result.getEndpoint(i));
+        }
+    }
+
+    @Test
+    void run_testBreadCrumb() throws InterruptedException {
+        WalkEnsemble ensemble = new WalkEnsemble(new FloatMatrix(testMat1, 4), cardinals,
+                WalkEnsemble.WalkerType.BREADCRUMB, 20, 100, 1);
+        WalkEnsemble.Result result = ensemble.run(3);
+
+        for (int i = 0; i < result.size(); ++i) {
+            assertEquals(new Coordinate(RandomWalker.START_X, RandomWalker.START_Y), result.getEndpoint(i));
+        }
+        assertEquals(0.0, result.meanSquaredDisplacement());
+    }
+
+    @Test
+    void run_testConsumer() throws InterruptedException {
+        int nWalkers = 200;
+        int Nsteps = 10;
+        WalkEnsemble ensemble = new WalkEnsemble(new FloatMatrix(testMat1, 4), cardinals,
+                WalkEnsemble.WalkerType.RANDOM, Nsteps, nWalkers, 5);
+        AtomicIntegerArray seen = new AtomicIntegerArray(nWalkers);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            ensemble.run(executor, (walker, path) -> {
+                assertEquals(Nsteps + 1, path.size());
+                seen.incrementAndGet(walker);
+            });
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int i = 0; i < nWalkers; ++i) {
+            assertEquals(1, seen.get(i), "Walker " + i + " should be consumed once");
+        }
+    }
+
+    @Test
+    void run_testZeroSteps() throws InterruptedException {
+        WalkEnsemble ensemble = new WalkEnsemble(new FloatMatrix(testMat1, 4), cardinals,
+                WalkEnsemble.WalkerType.RANDOM, 0, 10, 5);
+        WalkEnsemble.Result result = ensemble.run(2);
+
+        assertEquals(new Coordinate(RandomWalker.START_X, RandomWalker.START_Y), result.getEndpoint(9));
+    }
+
+    @Test
+    void runStatistics_testMatchesPaths() throws InterruptedException {
+        WalkEnsemble ensemble = new WalkEnsemble(new FloatMatrix(testMat1, 4), cardinals,
+                WalkEnsemble.WalkerType.RANDOM, 200, 150, 9);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        try {
+            WalkStatistics expected = new WalkStatistics(5, 50, true);
+            WalkStatistics[] perWalker = new WalkStatistics[ensemble.getNumWalkers()];
+            ensemble.run(executor, (i, path) -> {
+                perWalker[i] = WalkStatistics.emptyLike(expected);
+                for (int j = 0; j < path.size(); ++j) {
+                    perWalker[i].accept(path.getX(j), path.getY(j));
+                }
+            });
+            for (WalkStatistics stats : perWalker) {
+                expected.merge(stats);
+            }
+
+            WalkStatistics actual = ensemble.runStatistics(executor, WalkStatistics.emptyLike(expected));
+            WalkStatistics single = ensemble.runStatistics(singleThread, WalkStatistics.emptyLike(expected));
+            for (WalkStatistics stats : new WalkStatistics[]{actual, single}) {
+                assertEquals(150, stats.getWalkCount());
+                assertEquals(150 * 200, stats.getStepCount());
+                assertEquals(expected.getMeanSquaredDisplacement(), stats.getMeanSquaredDisplacement(), 1e-9);
+                assertEquals(expected.getDistinctSites(), stats.getDistinctSites());
+                assertEquals(expected.getExtent(), stats.getExtent());
+                for (int k = 0; k < 5; ++k) {
+                    assertEquals(expected.getMeanSquaredDisplacement(k), stats.getMeanSquaredDisplacement(k), 1e-9);
+                }
+            }
+        } finally {
+            executor.shutdown();
+            singleThread.shutdown();
+        }
+    }
+
+    @Test
+    void constructor_testInvalid() {
+        FloatMatrix T = new FloatMatrix(testMat1, 4);
+        assertThrows(IllegalArgumentException.class,
+                () -> new WalkEnsemble(T, cardinals, WalkEnsemble.WalkerType.RANDOM, -1, 10, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new WalkEnsemble(T, cardinals, WalkEnsemble.WalkerType.RANDOM, 10, -1, 0));
+        WalkEnsemble ensemble = new WalkEnsemble(T, cardinals, WalkEnsemble.WalkerType.RANDOM, 10, 10, 0);
+        assertThrows(IllegalArgumentException.class, () -> ensemble.run(0));
+    }
+
+}
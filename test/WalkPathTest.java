@@ -0,0 +1,116 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the WalkPath class.
+ *
+ * 1. pack(), unpackX(), unpackY()
+ * 1a. round trip of positive, negative and extreme coordinates.
+ *
+ * 2. add() and get()
+ * 2a. common case: coordinates are stored in order.
+ * 2b. growth: adding beyond the initial capacity keeps every coordinate.
+ * 2c. error case: invalid indices throw IndexOutOfBoundsException.
+ *
+ * 3. clear()
+ * 3a. clear empties the path, which can then be reused.
+ *
+ * 4. asList()
+ * 4a. the view has the coordinates of the path and reflects later additions.
+ * 4b. the view is read-only.
+ */
+public class WalkPathTest {
+
+    @Test
+    void pack_testRoundTrip() {
+        int[] values = {0, 1, -1, 12345, -98765, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int x : values) {
+            for (int y : values) {
+                long packed = WalkPath.pack(x, y);
+                assertEquals(x, WalkPath.unpackX(packed));
+                assertEquals(y, WalkPath.unpackY(packed));
+            }
+        }
+    }
+
+    @Test
+    void add_testCommon() {
+        WalkPath path = new WalkPath();
+        path.add(0, 0);
+        path.add(0, 1);
+        path.add(-1, 1);
+
+        assertEquals(3, path.size());
+        assertEquals(-1, path.getX(2));
+        assertEquals(1, path.getY(2));
+        assertEquals(new Coordinate(0, 1), path.get(1));
+    }
+
+    @Test
+    void add_testGrowth() {
+        WalkPath path = new WalkPath(1);
+        int N = 10000;
+        for (int i = 0; i < N; ++i) {
+            path.add(i, -i);
+        }
+
+        assertEquals(N, path.size());
+        for (int i = 0; i < N; ++i) {
+            assertEquals(i, path.getX(i));
+            assertEquals(-i, path.getY(i));
+        }
+    }
+
+    @Test
+    void get_testInvalidIndex() {
+        WalkPath path = new WalkPath();
+        path.add(1, 2);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> path.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> path.getX(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> path.getY(5));
+    }
+
+    @Test
+    void clear_testReuse() {
+        WalkPath path = new WalkPath();
+        path.add(1, 2);
+        path.add(3, 4);
+        path.clear();
+
+        assertEquals(0, path.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> path.get(0));
+
+        path.add(5, 6);
+        assertEquals(1, path.size());
+        assertEquals(new Coordinate(5, 6), path.get(0));
+    }
+
+    @Test
+    void asList_testView() {
+        WalkPath path = new WalkPath();
+        path.add(0, 0);
+        path.add(1, 0);
+        List<Coordinate> list = path.asList();
+
+        assertEquals(List.of(new Coordinate(0, 0), new Coordinate(1, 0)), list);
+
+        path.add(1, -1);
+        assertEquals(3, list.size());
+        assertEquals(new Coordinate(1, -1), list.get(2));
+    }
+
+    @Test
+    void asList_testReadOnly() {
+        WalkPath path = new WalkPath();
+        path.add(0, 0);
+        List<Coordinate> list = path.asList();
+
+        assertThrows(UnsupportedOperationException.class, () -> list.add(new Coordinate(1, 1)));
+        assertThrows(UnsupportedOperationException.class, () -> list.remove(0));
+    }
+
+}
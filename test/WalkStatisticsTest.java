@@ -0,0 +1,179 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the WalkStatistics class.
+ *
+ * 1. accept()
+ * 1a. a single walk: steps, displacement, bounds, extent and distinct sites match its path.
+ * 1b. the mean squared displacement is recorded every msdInterval steps.
+ * 1c. no coordinates: no walks, zero statistics.
+ *
+ * 2. newWalk() and merge()
+ * 2a. statistics accumulated over several walks are averaged per walk.
+ * 2b. merging the statistics of parts of an ensemble gives those of the whole.
+ * 2c. merging statistics configured differently throws IllegalArgumentException.
+ *
+ * 3. error cases
+ * 3a. invalid MSD points or intervals throw IllegalArgumentException.
+ */
+public class WalkStatisticsTest {
+
+    static final float[] testMat1 = {0.1f, 0.2f, 0.3f, 0.4f,
+                                     0.4f, 0.3f, 0.2f, 0.1f,
+                                     0.25f, 0.25f, 0.25f, 0.25f,
+                                     0.7f, 0.1f, 0.1f, 0.1f};
+
+    static WalkPath randomPath(int steps, long seed) {
+        RandomWalker walker = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4),
+                new String[]{"N", "E", "S", "W"}, seed));
+        return walker.walkCompact(steps);
+    }
+
+    static void walkInto(WalkPath path, WalkStatistics stats) {
+        for (int i = 0; i < path.size(); ++i) {
+            stats.accept(path.getX(i), path.getY(i));
+        }
+    }
+
+    @Test
+    void accept_testSingleWalk() throws IOException {
+        RandomWalker walker = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4),
+                new String[]{"N", "E", "S", "W"}, 3));
+        WalkStatistics stats = new WalkStatistics(0, 1, true);
+        walker.walk(5000, stats);
+        WalkPath path = new RandomWalker(new MarkovChain(new FloatMatrix(testMat1, 4),
+                new String[]{"N", "E", "S", "W"}, 3)).walkCompact(5000);
+
+        int last = path.size() - 1;
+        int minX = 0, maxX = 0, minY = 0, maxY = 0, extent = 0;
+        HashSet<Long> sites = new HashSet<>();
+        for (int i = 0; i < path.size(); ++i) {
+            minX = Math.min(minX, path.getX(i));
+            maxX = Math.max(maxX, path.getX(i));
+            minY = Math.min(minY, path.getY(i));
+            maxY = Math.max(maxY, path.getY(i));
+            extent = Math.max(extent, Math.max(Math.abs(path.getX(i)), Math.abs(path.getY(i))));
+            sites.add(path.getPacked(i));
+        }
+
+        assertEquals(1, stats.getWalkCount());
+        assertEquals(5000, stats.getStepCount());
+        assertEquals(path.getX(last), stats.getDisplacementX());
+        assertEquals(path.getY(last), stats.getDisplacementY());
+        double d2 = (double) path.getX(last) * path.getX(last) + (double) path.getY(last) * path.getY(last);
+        assertEquals(d2, stats.getMeanSquaredDisplacement(), 1e-9);
+        assertEquals(Math.sqrt(d2), stats.getMeanDisplacement(), 1e-9);
+        assertEquals(minX, stats.getMinX());
+        assertEquals(maxX, stats.getMaxX());
+        assertEquals(minY, stats.getMinY());
+        assertEquals(maxY, stats.getMaxY());
+        assertEquals(extent, stats.getExtent());
+        assertEquals(sites.size(), stats.getDistinctSites());
+    }
+
+    @Test
+    void accept_testMsdPoints() {
+        WalkStatistics stats = new WalkStatistics(4, 10, false);
+        WalkPath path = randomPath(25, 4);
+        walkInto(path, stats);
+        assertEquals(4, stats.getMsdPoints());
+        assertEquals(10, stats.getMsdInterval());
+        for (int k = 0; k < 3; ++k) {
+            int x = path.getX(10 * k);
+            int y = path.getY(10 * k);
+            assertEquals(1, stats.getMsdWalkCount(k));
+            assertEquals((double) x * x + y * y, stats.getMeanSquaredDisplacement(k), 1e-9);
+        }
+        //The walk has only 25 steps, so it does not reach step 30.
+        assertEquals(0, stats.getMsdWalkCount(3));
+        assertEquals(0.0, stats.getMeanSquaredDisplacement(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> stats.getMeanSquaredDisplacement(4));
+    }
+
+    @Test
+    void accept_testEmpty() {
+        WalkStatistics stats = new WalkStatistics(2, 1, true);
+        stats.newWalk();
+        assertEquals(0, stats.getWalkCount());
+        assertEquals(0, stats.getStepCount());
+        assertEquals(0.0, stats.getMeanSquaredDisplacement());
+        assertEquals(0.0, stats.getMeanDistinctSites());
+        assertEquals(0, stats.getExtent());
+        assertEquals(0, stats.getMsdWalkCount(0));
+    }
+
+    @Test
+    void newWalk_testAverages() {
+        WalkStatistics stats = new WalkStatistics(0, 1, true);
+        double sumSq = 0.0;
+        long sumSites = 0;
+        for (int w = 0; w < 5; ++w) {
+            stats.newWalk();
+            WalkPath path = randomPath(100 + w, w);
+            walkInto(path, stats);
+            int x = path.getX(path.size() - 1);
+            int y = path.getY(path.size() - 1);
+            sumSq += (double) x * x + (double) y * y;
+            sumSites += new HashSet<>(path.asList()).size();
+        }
+        assertEquals(5, stats.getWalkCount());
+        assertEquals(100 + 101 + 102 + 103 + 104, stats.getStepCount());
+        assertEquals(sumSq / 5, stats.getMeanSquaredDisplacement(), 1e-9);
+        assertEquals(sumSites, stats.getDistinctSites());
+        assertEquals(sumSites / 5.0, stats.getMeanDistinctSites(), 1e-9);
+    }
+
+    @Test
+    void merge_testParts() {
+        WalkStatistics whole = new WalkStatistics(5, 20, true);
+        WalkStatistics first = WalkStatistics.emptyLike(whole);
+        WalkStatistics second = WalkStatistics.emptyLike(whole);
+        for (int w = 0; w < 6; ++w) {
+            WalkPath path = randomPath(90, w);
+            whole.newWalk();
+            walkInto(path, whole);
+            WalkStatistics part = w < 3 ? first : second;
+            part.newWalk();
+            walkInto(path, part);
+        }
+
+        WalkStatistics merged = WalkStatistics.emptyLike(whole);
+        merged.merge(first);
+        merged.merge(second);
+        assertEquals(whole.getWalkCount(), merged.getWalkCount());
+        assertEquals(whole.getStepCount(), merged.getStepCount());
+        assertEquals(whole.getMeanSquaredDisplacement(), merged.getMeanSquaredDisplacement(), 1e-9);
+        assertEquals(whole.getMeanDisplacement(), merged.getMeanDisplacement(), 1e-9);
+        assertEquals(whole.getDistinctSites(), merged.getDistinctSites());
+        assertEquals(whole.getExtent(), merged.getExtent());
+        assertEquals(whole.getMinX(), merged.getMinX());
+        assertEquals(whole.getMaxY(), merged.getMaxY());
+        for (int k = 0; k < whole.getMsdPoints(); ++k) {
+            assertEquals(whole.getMsdWalkCount(k), merged.getMsdWalkCount(k));
+            assertEquals(whole.getMeanSquaredDisplacement(k), merged.getMeanSquaredDisplacement(k), 1e-9);
+        }
+        //The parts are not changed.
+        assertEquals(3, first.getWalkCount());
+        assertEquals(3, second.getWalkCount());
+    }
+
+    @Test
+    void merge_testMismatch() {
+        WalkStatistics stats = new WalkStatistics(5, 20, true);
+        assertThrows(IllegalArgumentException.class, () -> stats.merge(new WalkStatistics(5, 20, false)));
+        assertThrows(IllegalArgumentException.class, () -> stats.merge(new WalkStatistics(4, 20, true)));
+        assertThrows(IllegalArgumentException.class, () -> stats.merge(new WalkStatistics(5, 10, true)));
+    }
+
+    @Test
+    void constructor_testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new WalkStatistics(-1, 1, false));
+        assertThrows(IllegalArgumentException.class, () -> new WalkStatistics(1, 0, false));
+    }
+
+}
@@ -0,0 +1,163 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the WalkWriter class.
+ *
+ * 1. formatOf()
+ * 1a. the format follows the file extension.
+ *
+ * 2. write()
+ * 2a. .txt output is byte-identical to printing String.format("(%d, %d)") per coordinate.
+ * 2b. .dat output is byte-identical to printing one space-separated line.
+ * 2c. extreme coordinates, four and five digit coordinates and walks larger than the buffer
+ *     are written exactly.
+ * 2d. empty paths: an empty .txt file, a .dat file holding only a line separator.
+ * 2e. other extensions produce an empty file.
+ *
+ * 3. exceptional cases
+ * 3a. a bad file path throws IOException.
+ * 3b. writing to a closed writer throws IllegalStateException; closing twice is allowed.
+ */
+public class WalkWriterTest {
+
+    /**
+     * The output of saveWalkToFile before WalkWriter, which the new output must match.
+     */
+    static void writeLegacy(String fname, WalkPath path) throws IOException {
+        PrintWriter writer = new PrintWriter(fname);
+        if (fname.endsWith(".txt")) {
+            for (int i = 0; i < path.size(); ++i) {
+                writer.println(String.format("(%d, %d)", path.getX(i), path.getY(i)));
+            }
+        } else if (fname.endsWith(".dat")) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < path.size(); ++i) {
+                if (sb.length() > 0) sb.append(" ");
+                sb.append(path.getX(i)).append(" ").append(path.getY(i));
+            }
+            writer.println(sb.toString());
+        }
+        writer.close();
+    }
+
+    static void assertSameAsLegacy(String suffix, WalkPath path) throws IOException {
+        File expected = File.createTempFile("WalkWriterTest_legacy", suffix);
+        File actual = File.createTempFile("WalkWriterTest_new", suffix);
+        try {
+            writeLegacy(expected.getPath(), path);
+            WalkWriter.write(actual.getPath(), path);
+            assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath()));
+        } finally {
+            expected.delete();
+            actual.delete();
+        }
+    }
+
+    static WalkPath samplePath() {
+        WalkPath path = new WalkPath();
+        path.add(0, 0);
+        path.add(0, 1);
+        path.add(-1, 1);
+        path.add(-1, 0);
+        path.add(-10, -105);
+        path.add(999, 1000);
+        return path;
+    }
+
+    @Test
+    void formatOf_testExtensions() {
+        assertEquals(WalkWriter.Format.TEXT, WalkWriter.formatOf("walk.txt"));
+        assertEquals(WalkWriter.Format.DATA, WalkWriter.formatOf("walk.dat"));
+        assertEquals(WalkWriter.Format.BINARY, WalkWriter.formatOf("walk.walk"));
+        assertEquals(WalkWriter.Format.NONE, WalkWriter.formatOf("walk.csv"));
+        assertEquals(WalkWriter.Format.NONE, WalkWriter.formatOf("walk"));
+    }
+
+    @Test
+    void write_testTextMatchesLegacy() throws IOException {
+        assertSameAsLegacy(".txt", samplePath());
+    }
+
+    @Test
+    void write_testDataMatchesLegacy() throws IOException {
+        assertSameAsLegacy(".dat", samplePath());
+    }
+
+    @Test
+    void write_testExtremesAndLargeWalks() throws IOException {
+        WalkPath path = new WalkPath();
+        int[] values = {Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -1000000000, -10000, -9999, -9, 0, 9, 10,
+                9999, 10000, 999999999, 1000000000, Integer.MAX_VALUE};
+        for (int x : values) {
+            for (int y : values) {
+                path.add(x, y);
+            }
+        }
+        //Enough coordinates to fill the buffer several times, with up to five digits.
+        for (int i = 0; i < 100000; ++i) {
+            path.add(i * 7919, -i);
+            path.add(i % 20003 - 10001, 10001 - i % 20003);
+        }
+        assertSameAsLegacy(".txt", path);
+        assertSameAsLegacy(".dat", path);
+    }
+
+    @Test
+    void write_testEmptyPath() throws IOException {
+        assertSameAsLegacy(".txt", new WalkPath());
+        assertSameAsLegacy(".dat", new WalkPath());
+
+        File fp = File.createTempFile("WalkWriterTest_empty", ".dat");
+        try {
+            WalkWriter.write(fp.getPath(), new WalkPath());
+            assertArrayEquals(System.lineSeparator().getBytes(), Files.readAllBytes(fp.toPath()));
+        } finally {
+            fp.delete();
+        }
+    }
+
+    @Test
+    void write_testOtherExtension() throws IOException {
+        File fp = File.createTempFile("WalkWriterTest_other", ".csv");
+        try {
+            Files.write(fp.toPath(), "stale contents".getBytes());
+            WalkWriter.write(fp.getPath(), samplePath());
+            assertEquals(0, fp.length());
+        } finally {
+            fp.delete();
+        }
+        assertSameAsLegacy(".csv", samplePath());
+    }
+
+    @Test
+    void write_testBadPath() {
+        String fakePath = "foobarbaddirectory" + File.separator
+                + "definitelynotarealdirectory123905" + File.separator
+                + "testFile.txt";
+        assertThrows(IOException.class, () -> WalkWriter.write(fakePath, samplePath()));
+    }
+
+    @Test
+    void write_testClosed() throws IOException {
+        File fp = File.createTempFile("WalkWriterTest_closed", ".txt");
+        try {
+            WalkWriter writer = new WalkWriter(fp.getPath());
+            writer.write(1, 2);
+            assertEquals(1, writer.getCount());
+            writer.close();
+            assertThrows(IllegalStateException.class, () -> writer.write(3, 4));
+            assertDoesNotThrow(writer::close);
+            assertEquals("(1, 2)" + System.lineSeparator(), new String(Files.readAllBytes(fp.toPath())));
+        } finally {
+            fp.delete();
+        }
+    }
+
+}